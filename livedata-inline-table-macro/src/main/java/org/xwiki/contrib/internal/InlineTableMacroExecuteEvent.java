@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event of a table converted to LiveData by the macro. The rows are extracted while the table is
+ * encoded, so the encoding duration excludes the time spent rendering and transforming the cells.
+ * 
+ * @version $Id$
+ */
+@Name("InlineTable.MacroExecute")
+@Label("Inline Table Macro Execution")
+@Category({ "XWiki", "LiveData Inline Table" })
+@Description("A table converted to LiveData by the livedata-inline-table macro.")
+public final class InlineTableMacroExecuteEvent extends Event
+{
+    @Label("Table Hash")
+    private String hash;
+
+    @Label("Rows")
+    private int rows;
+
+    @Label("Columns")
+    private int columns;
+
+    @Label("Render Duration")
+    @Description("The time spent rendering the cells, excluding their transformations.")
+    @Timespan(Timespan.NANOSECONDS)
+    private long renderDuration;
+
+    @Label("Transform Duration")
+    @Description("The time spent running the transformations of the cells, including nested macros.")
+    @Timespan(Timespan.NANOSECONDS)
+    private long transformDuration;
+
+    @Label("Encode Duration")
+    @Description("The time spent serializing, compressing and storing the table.")
+    @Timespan(Timespan.NANOSECONDS)
+    private long encodeDuration;
+
+    /**
+     * @param hash the hash of the table
+     */
+    public void setHash(String hash)
+    {
+        this.hash = hash;
+    }
+
+    /**
+     * @param rows the number of rows of the table
+     */
+    public void setRows(int rows)
+    {
+        this.rows = rows;
+    }
+
+    /**
+     * @param columns the number of columns of the table
+     */
+    public void setColumns(int columns)
+    {
+        this.columns = columns;
+    }
+
+    /**
+     * @param renderDuration the time spent rendering the cells, in nanoseconds
+     */
+    public void setRenderDuration(long renderDuration)
+    {
+        this.renderDuration = renderDuration;
+    }
+
+    /**
+     * @param transformDuration the time spent transforming the cells, in nanoseconds
+     */
+    public void setTransformDuration(long transformDuration)
+    {
+        this.transformDuration = transformDuration;
+    }
+
+    /**
+     * @param encodeDuration the time spent encoding the table, in nanoseconds
+     */
+    public void setEncodeDuration(long encodeDuration)
+    {
+        this.encodeDuration = encodeDuration;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.context.concurrent.ContextStoreManager;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Job rendering the documents containing the {@code livedata-inline-table} macro, so that their tables are stored in
+ * the {@link InlineTableCache} before the first LiveData query. The cache is lost on restart and LiveData queries
+ * coming from pages displayed before the restart would fail until the pages are rendered again.
+ * <p>
+ * Documents are rendered as they are viewed by guests: with the view action, the default locale of the document and a
+ * request to the URL of the wiki, so that their tables are stored under the hashes the pages reference. Are skipped:
+ * <ul>
+ * <li>the documents calling other macros than the inline table, e.g. scripts or includes, since their tables may
+ * depend on the viewer and the request, and rendering them would run their scripts without anyone viewing them;</li>
+ * <li>the translations of the documents, only their default locale is rendered;</li>
+ * <li>the documents of the wikis whose URL is not known, since the URLs rendered in their tables would differ.</li>
+ * </ul>
+ * <p>
+ * The job is started when the main wiki is ready if enabled in the {@link InlineTableConfiguration}, and can be started
+ * on demand using its type.
+ * 
+ * @version $Id$
+ */
+@Component
+@Named(InlineTableWarmUpJob.JOBTYPE)
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+public class InlineTableWarmUpJob
+    extends AbstractJob<InlineTableWarmUpRequest, DefaultJobStatus<InlineTableWarmUpRequest>>
+{
+    /**
+     * The type of the job.
+     */
+    public static final String JOBTYPE = "livedata-inline-table/warmup";
+
+    private static final String MACRO_ID = "livedata-inline-table";
+
+    // Macro calls, except the opening and closing ones of the inline table macro.
+    private static final Pattern OTHER_MACRO = Pattern.compile("\\{\\{(?!/?" + MACRO_ID + "[\\s/}])");
+
+    private static final String VIEW_ACTION = "view";
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private ContextStoreManager contextStoreManager;
+
+    @Inject
+    private Provider<XWikiContext> contextProvider;
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        Set<DocumentReference> documents = getDocuments();
+        int threads = this.configuration.getWarmUpThreads();
+        long delay = this.configuration.getWarmUpDelay();
+        logger.info("Warming up the inline tables of " + documents.size() + " documents using " + threads
+            + " threads.");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LiveData inline table warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.progressManager.pushLevelProgress(documents.size(), this);
+        try {
+            List<Future<?>> renderings = new ArrayList<>(documents.size());
+            for (DocumentReference document : documents) {
+                renderings.add(executor.submit(() -> warmUp(document, delay)));
+            }
+            // Progress has to be reported from the job thread.
+            for (Future<?> rendering : renderings) {
+                this.progressManager.startStep(this);
+                rendering.get();
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            executor.shutdownNow();
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    /**
+     * Finds the documents containing the macro.
+     * 
+     * @return the references of the documents
+     */
+    private Set<DocumentReference> getDocuments() throws Exception
+    {
+        Collection<String> wikis = this.request.getWikis();
+        if (wikis == null) {
+            wikis = this.wikiDescriptorManager.getAllIds();
+        }
+
+        // Translations share the reference of their document.
+        Set<DocumentReference> documents = new LinkedHashSet<>();
+        for (String wiki : wikis) {
+            Query query = this.queryManager.createQuery("where doc.content like :macro", Query.XWQL)
+                .bindValue("macro").anyChars().literal("{{" + MACRO_ID).anyChars().query().setWiki(wiki);
+            WikiReference wikiReference = new WikiReference(wiki);
+            for (Object name : query.execute()) {
+                documents.add(this.resolver.resolve((String) name, wikiReference));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Renders a document in its own execution context, which stores the tables it contains.
+     * 
+     * @param reference the reference of the document
+     * @param delay the pause to make after rendering the document, in milliseconds
+     */
+    private void warmUp(DocumentReference reference, long delay)
+    {
+        try {
+            this.executionContextManager.initialize(new ExecutionContext());
+            try {
+                render(reference);
+            } finally {
+                this.execution.removeContext();
+            }
+
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to warm up the inline tables of " + reference + ": "
+                + ExceptionUtils.getRootCauseMessage(e));
+        }
+    }
+
+    /**
+     * Renders a document as it is viewed by guests, unless it is skipped.
+     * 
+     * @param reference the reference of the document
+     */
+    private void render(DocumentReference reference) throws Exception
+    {
+        XWikiContext xcontext = this.contextProvider.get();
+        String wiki = reference.getWikiReference().getName();
+        xcontext.setWikiId(wiki);
+        URL serverURL = xcontext.getWiki().getServerURL(wiki, xcontext);
+        if (serverURL == null) {
+            logger.debug("Skipped the inline tables of " + reference + " since the URL of its wiki is not known.");
+            return;
+        }
+        XWikiDocument document = xcontext.getWiki().getDocument(reference, xcontext);
+        if (OTHER_MACRO.matcher(document.getContent()).find()) {
+            logger.debug("Skipped the inline tables of " + reference + " since it calls other macros.");
+            return;
+        }
+
+        // The context of a guest viewing the document, which does not have the rights of its author.
+        Map<String, Serializable> viewContext = new HashMap<>();
+        viewContext.put("wiki", wiki);
+        viewContext.put("action", VIEW_ACTION);
+        viewContext.put("doc.reference", reference);
+        viewContext.put("locale", document.getDefaultLocale());
+        viewContext.put("request.base", serverURL);
+        String webAppPath = StringUtils.removeEnd(xcontext.getWiki().getWebAppPath(xcontext), "/");
+        viewContext.put("request.contextpath", '/' + webAppPath);
+        this.contextStoreManager.restore(viewContext);
+
+        xcontext = this.contextProvider.get();
+        xcontext.setAction(VIEW_ACTION);
+        xcontext.setDoc(document);
+        document.getRenderedContent(xcontext);
+        logger.debug("Warmed up the inline tables of " + reference);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.WikiReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.job.JobException;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+/**
+ * Starts the {@link InlineTableWarmUpJob} once the main wiki is ready, when enabled in the
+ * {@link InlineTableConfiguration}.
+ * 
+ * @version $Id$
+ */
+@Component
+@Named(InlineTableWarmUpListener.NAME)
+@Singleton
+public class InlineTableWarmUpListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.contrib.internal.InlineTableWarmUpListener";
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Provider<JobExecutor> jobExecutorProvider;
+
+    @Inject
+    private Logger logger;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    /**
+     * Constructor.
+     */
+    public InlineTableWarmUpListener()
+    {
+        super(NAME, new WikiReadyEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (!this.configuration.isWarmUpEnabled()
+            || !this.wikiDescriptorManager.getMainWikiId().equals(((WikiReadyEvent) event).getWikiId())
+            || !this.started.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.jobExecutorProvider.get().execute(InlineTableWarmUpJob.JOBTYPE, new InlineTableWarmUpRequest());
+        } catch (JobException e) {
+            logger.error("Failed to start the inline tables warm-up.", e);
+        }
+    }
+}
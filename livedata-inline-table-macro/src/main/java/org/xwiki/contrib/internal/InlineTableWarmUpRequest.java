@@ -0,0 +1,61 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.xwiki.job.AbstractRequest;
+
+/**
+ * Request of the {@link InlineTableWarmUpJob}.
+ * 
+ * @version $Id$
+ */
+public class InlineTableWarmUpRequest extends AbstractRequest
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final String PROPERTY_WIKIS = "wikis";
+
+    /**
+     * Constructor.
+     */
+    public InlineTableWarmUpRequest()
+    {
+        setId(Arrays.asList("livedata-inline-table", "warmup"));
+    }
+
+    /**
+     * @return the wikis in which to look for inline tables, {@code null} for all the wikis
+     */
+    public Collection<String> getWikis()
+    {
+        return getProperty(PROPERTY_WIKIS);
+    }
+
+    /**
+     * @param wikis the wikis in which to look for inline tables, {@code null} for all the wikis
+     */
+    public void setWikis(Collection<String> wikis)
+    {
+        setProperty(PROPERTY_WIKIS, wikis);
+    }
+}
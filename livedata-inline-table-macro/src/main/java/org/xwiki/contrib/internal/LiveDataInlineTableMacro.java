@@ -28,10 +28,11 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.slf4j.Logger;
-import org.xwiki.cache.CacheException;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.livedata.LiveDataPropertyDescriptorStore;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.GroupBlock;
 import org.xwiki.rendering.block.MetaDataBlock;
@@ -83,11 +84,14 @@ public class LiveDataInlineTableMacro extends AbstractMacro<LiveDataInlineTableM
     private ComponentManager componentManager;
 
     @Inject
-    private InlineTableCache inlineTableCache;
+    private InlineTableEncoder encoder;
 
     @Inject
     private Provider<XWikiContext> contextProvider;
 
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
     @Inject
     private Logger logger;
 
@@ -133,11 +137,30 @@ public class LiveDataInlineTableMacro extends AbstractMacro<LiveDataInlineTableM
         }
 
         try {
-            return Collections.singletonList(new GroupBlock(parseReadOnlyContent(content, context))
-                .clone(new LiveDataInlineTableMacroBlockFilter(parameters, context, plainTextRenderer,
-                    componentManager.getInstance(BlockRenderer.class, renderSyntax), inlineTableCache.getCache(),
-                    contextProvider, transformationManager, logger)));
-        } catch (ComponentLookupException | LiveDataInlineTableMacroRuntimeException | CacheException e) {
+            // In lazy rendering mode, cells are stored in the syntax of the content and rendered when displayed.
+            BlockRenderer sourceRenderer = null;
+            if (parameters.isLazyRendering()) {
+                Syntax sourceSyntax = context.getSyntax() != null ? context.getSyntax() : Syntax.XWIKI_2_1;
+                sourceRenderer = componentManager.getInstance(BlockRenderer.class, sourceSyntax.toIdString());
+            }
+            String document = null;
+            if (xcontext.getDoc() != null) {
+                document = serializer.serialize(xcontext.getDoc().getDocumentReference());
+            }
+
+            // The property descriptors are generated the same way as by the LiveData source.
+            InlineTableLiveDataPropertyDescriptorStore propertyDescriptorStore =
+                (InlineTableLiveDataPropertyDescriptorStore) componentManager
+                    .getInstance(LiveDataPropertyDescriptorStore.class, InlineTableLiveDataSource.ID);
+
+            // The parsed content is not shared, so its tables can be replaced in place.
+            GroupBlock group = new GroupBlock(parseReadOnlyContent(content, context));
+            new LiveDataInlineTableMacroBlockFilter(parameters, context, plainTextRenderer,
+                componentManager.getInstance(BlockRenderer.class, renderSyntax), sourceRenderer, document,
+                encoder, propertyDescriptorStore, contextProvider, transformationManager, logger)
+                    .transformTables(group);
+            return Collections.singletonList(group);
+        } catch (ComponentLookupException | LiveDataInlineTableMacroRuntimeException e) {
             throw new MacroExecutionException(e.getMessage(), e);
         }
     }
@@ -19,38 +19,37 @@
  */
 package org.xwiki.contrib.internal;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
+import java.util.regex.Pattern;
 
 import javax.inject.Provider;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.IntegerRange;
 import org.slf4j.Logger;
-import org.xwiki.cache.Cache;
+import org.xwiki.livedata.LiveDataException;
 import org.xwiki.rendering.block.Block;
-import org.xwiki.rendering.block.BlockFilter;
 import org.xwiki.rendering.block.GroupBlock;
 import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
 import org.xwiki.rendering.block.TableBlock;
 import org.xwiki.rendering.block.TableCellBlock;
 import org.xwiki.rendering.block.TableHeadCellBlock;
 import org.xwiki.rendering.block.TableRowBlock;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
 import org.xwiki.rendering.transformation.TransformationManager;
@@ -65,7 +64,7 @@ import com.xpn.xwiki.XWikiContext;
  * @version $Id$
  * @since 0.0.4
  */
-public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
+public class LiveDataInlineTableMacroBlockFilter
 {
 
     private static final String ID = "id";
@@ -76,15 +75,26 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
 
     private static final String DEFAULT_FORMAT = "yyyy/MM/dd HH:mm";
 
+    // Encoded tables start with the GZIP magic number, so they are never mistaken for the sha256 of a stored table.
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
     private MacroTransformationContext context;
 
     private BlockRenderer plainTextRenderer;
 
     private BlockRenderer richTextRenderer;
 
+    // Renderer used to store cells as source, null when all cells are stored rendered.
+    private BlockRenderer sourceRenderer;
+
+    // Reference of the current document, used to track the stored tables and to render the cells stored as source.
+    private String document;
+
     private LiveDataInlineTableMacroParameters parameters;
 
-    private Cache<String> cache;
+    private InlineTableEncoder encoder;
+
+    private InlineTableLiveDataPropertyDescriptorStore propertyDescriptorStore;
 
     private Logger logger;
 
@@ -94,19 +104,32 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
 
     private TransformationManager transformationManager;
 
+    // Measures of the current table. The durations are only measured while the flight recorder records the event.
+    private boolean timed;
+
+    private int rowCount;
+
+    private long extractTime;
+
+    private long transformTime;
+
     /**
      * Constructor.
      */
     LiveDataInlineTableMacroBlockFilter(LiveDataInlineTableMacroParameters parameters,
         MacroTransformationContext context, BlockRenderer plainTextRenderer, BlockRenderer richTextRenderer,
-        Cache<String> cache, Provider<XWikiContext> contextProvider, TransformationManager transformationManager,
-        Logger logger)
+        BlockRenderer sourceRenderer, String document, InlineTableEncoder encoder,
+        InlineTableLiveDataPropertyDescriptorStore propertyDescriptorStore, Provider<XWikiContext> contextProvider,
+        TransformationManager transformationManager, Logger logger)
     {
         this.parameters = parameters;
         this.context = context;
         this.plainTextRenderer = plainTextRenderer;
         this.richTextRenderer = richTextRenderer;
-        this.cache = cache;
+        this.sourceRenderer = sourceRenderer;
+        this.document = document;
+        this.encoder = encoder;
+        this.propertyDescriptorStore = propertyDescriptorStore;
         this.logger = logger;
         this.contextProvider = contextProvider;
         this.transformationManager = transformationManager;
@@ -124,32 +147,21 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
     }
 
     /**
-     * Checks if there is a table in the ancestors of a given block.
+     * Replaces the top-level tables found in the descendants of a block with LiveData, in place. Tables nested in
+     * another table are left untouched, since the traversal does not go down into the tables it replaces.
      * 
-     * @param block the block to check for a table ancestor
-     * @return true when one of the parents of block is a table, false otherwise
+     * @param block the block containing the tables, owned by the caller
      */
-    private boolean hasTableParent(Block block)
+    public void transformTables(Block block)
     {
-        if (block.getParent() == null) {
-            return false;
-        }
-
-        if (block.getParent() instanceof TableBlock) {
-            return true;
-        }
-
-        return hasTableParent(block.getParent());
-    }
-
-    @Override
-    public List<Block> filter(Block block)
-    {
-        if (block instanceof TableBlock && !hasTableParent(block)) {
-            return transformTable((TableBlock) block);
+        // Iterate over a copy since the children are replaced during the iteration.
+        for (Block child : new ArrayList<>(block.getChildren())) {
+            if (child instanceof TableBlock) {
+                block.replaceChild(transformTable((TableBlock) child), child);
+            } else {
+                transformTables(child);
+            }
         }
-
-        return Collections.singletonList(block);
     }
 
     /**
@@ -163,15 +175,15 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
 
         private List<String> fieldsTypes;
 
-        private List<Map<String, Object>> entries;
+        private Iterator<Map<String, Object>> entries;
 
         /**
          * Constructor.
          * 
          * @param fields The fields of the table.
-         * @param entries The entries of table.
+         * @param entries The entries of table, extracted as they are iterated.
          */
-        ParsedTable(List<String> fields, List<String> fieldsTypes, List<Map<String, Object>> entries)
+        ParsedTable(List<String> fields, List<String> fieldsTypes, Iterator<Map<String, Object>> entries)
         {
             this.setFields(fields);
             this.setFieldsTypes(fieldsTypes);
@@ -219,11 +231,11 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
         }
 
         /**
-         * Gets the entries of the table.
+         * Gets the entries of the table, extracted from the rows as they are iterated.
          * 
          * @return the entries of the table.
          */
-        public List<Map<String, Object>> getEntries()
+        public Iterator<Map<String, Object>> getEntries()
         {
             return this.entries;
         }
@@ -233,7 +245,7 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
          * 
          * @param entries The entries of the table.
          */
-        public void setEntries(List<Map<String, Object>> entries)
+        public void setEntries(Iterator<Map<String, Object>> entries)
         {
             this.entries = entries;
         }
@@ -247,49 +259,48 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
      */
     public List<Block> transformTable(TableBlock table)
     {
+        InlineTableMacroExecuteEvent event = new InlineTableMacroExecuteEvent();
+        event.begin();
+        this.timed = event.isEnabled();
+        this.rowCount = 0;
+        this.extractTime = 0;
+        this.transformTime = 0;
+
         // Parse the table.
         ParsedTable parsedTable = tableToMap(table, parameters);
         List<String> fields = parsedTable.getFields();
         List<String> fieldsTypes = parsedTable.getFieldsTypes();
-        List<Map<String, Object>> entries = parsedTable.getEntries();
+        Iterator<Map<String, Object>> entries = parsedTable.getEntries();
 
         logger.debug("Found fields: " + String.join(",", fields.toArray(new String[0])));
         logger.debug("Fields types: " + String.join(",", fieldsTypes.toArray(new String[0])));
 
-        // Convert the entries and fields to JSON in order to pass them to LiveData.
-        String entriesJson = "";
-        try {
-            entriesJson = buildJSON(entries);
-        } catch (JsonProcessingException e) {
-            throw new LiveDataInlineTableMacroRuntimeException("Failed to serialize the table.", e);
-        }
-
-        logger.debug("Built the following entries JSON: " + entriesJson);
-
-        // Encode the JSON to URLBase64 because it is passed to LiveData as a query parameter.
-        String entriesB64 = "";
+        // The source syntax and the document are only needed to render the cells stored as source.
+        boolean lazy = this.sourceRenderer != null;
+        InlineTableSchema schema = new InlineTableSchema(fields, fieldsTypes, this.dateFormats[0],
+            lazy ? getSourceSyntax() : null, lazy ? this.document : null);
+        // Encode the table since it is passed to LiveData as a query parameter. Long tables are stored in the cache
+        // and passed to LiveData by their hash. The rows are extracted while the table is encoded, so that only the
+        // rows of a chunk are held in memory at once.
+        String entriesB64;
+        long encodeStart = this.timed ? System.nanoTime() : 0;
         try {
-            entriesB64 = Base64.getUrlEncoder().encodeToString(compressString(entriesJson));
-        } catch (IOException e) {
-            throw new LiveDataInlineTableMacroRuntimeException("Failed to compress the table entries.", e);
+            entriesB64 = this.encoder.encode(schema, entries, this.document);
+        } catch (LiveDataException e) {
+            throw new LiveDataInlineTableMacroRuntimeException("Failed to encode the table entries.", e);
         }
+        long encodeTime = this.timed ? System.nanoTime() - encodeStart - this.extractTime : 0;
 
-        logger.debug("Compressed and encoded the entries JSON as Base64: " + entriesB64);
-
-        if (entriesB64.length() > 180) {
-            String hash = DigestUtils.sha256Hex(entriesB64);
-            logger.debug("Base64 is longer than 180 characters, storing in cache using its sha256: " + hash);
-            this.cache.set(hash, entriesB64);
-            entriesB64 = hash;
-        }
+        logger.debug("Encoded the entries as: " + entriesB64);
 
-        // Build the LiveData JSON.
+        // Build the LiveData JSON. The liveData macro writes the resolved configuration, property descriptors included,
+        // in the page, so they are generated here from the schema rather than read back from the stored table.
         String ldJson = "";
         try {
             ldJson = buildJSON(Map.of("query",
                 Map.of("properties", toArray(IntegerRange.of(0, fields.size() - 1)), "source",
                     Map.of(ID, InlineTableLiveDataSource.ID, "entries", entriesB64), "offset", 0, "limit", 10),
-                "meta", Map.of("propertyDescriptors", getPropertyDescriptors(fields, fieldsTypes), "defaultDisplayer",
+                "meta", Map.of("propertyDescriptors", this.propertyDescriptorStore.get(schema), "defaultDisplayer",
                     "html")));
         } catch (JsonProcessingException e) {
             throw new LiveDataInlineTableMacroRuntimeException("Failed to serialize the LiveData parameters.", e);
@@ -302,6 +313,17 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
         Block liveDataBlock = new MacroBlock("liveData",
             id == null ? Collections.emptyMap() : Map.of(ID, parameters.getId()), ldJson, context.isInline());
 
+        event.end();
+        if (event.shouldCommit()) {
+            event.setHash(HASH_PATTERN.matcher(entriesB64).matches() ? entriesB64 : DigestUtils.sha256Hex(entriesB64));
+            event.setRows(this.rowCount);
+            event.setColumns(fields.size());
+            event.setRenderDuration(this.extractTime - this.transformTime);
+            event.setTransformDuration(this.transformTime);
+            event.setEncodeDuration(encodeTime);
+            event.commit();
+        }
+
         // TODO: Wrap the LiveData call in a div.
         return Collections.singletonList(liveDataBlock);
     }
@@ -316,65 +338,6 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
         return array;
     }
 
-    /**
-     * Compress a string using GZIP.
-     * 
-     * @param str the string to compress
-     * @return the compressed string as bytes.
-     * @throws IOException
-     */
-    private static byte[] compressString(String str) throws IOException
-    {
-        if (str == null || str.length() == 0) {
-            return "".getBytes(StandardCharsets.UTF_8);
-        }
-        ByteArrayOutputStream out = new ByteArrayOutputStream(str.length());
-        GZIPOutputStream gzip = new GZIPOutputStream(out);
-        gzip.write(str.getBytes(StandardCharsets.UTF_8));
-        gzip.close();
-
-        return out.toByteArray();
-    }
-
-    /**
-     * Generate the list of property descriptors for the given fields.
-     * 
-     * @param fields the name of the fields
-     * @return the list of property descriptor for the given fields
-     */
-    private List<Object> getPropertyDescriptors(List<String> fields, List<String> fieldsTypes)
-    {
-        List<Object> result = new ArrayList<>();
-
-        for (int i = 0; i < fields.size(); i++) {
-            String field = fields.get(i);
-            Map<String, Object> fieldMap = new HashMap<>();
-
-            logger.debug("Setting property descriptor for field " + i + ": " + field);
-
-            fieldMap.put(ID, "" + i);
-            fieldMap.put("name", field);
-            fieldMap.put("sortable", true);
-            fieldMap.put("filterable", true);
-
-            if (!fieldsTypes.get(i).equals(STRING)) {
-                logger.debug(
-                    "Field " + field + " has a special field type, using associated displayer: " + fieldsTypes.get(i));
-                fieldMap.put("displayer", fieldsTypes.get(i));
-
-                if (fieldsTypes.get(i).equals(DATE)) {
-                    logger.debug(
-                        "Field " + field + " is of type date, using html displayer and custom filter specification.");
-                    fieldMap.put("displayer", "html");
-                    fieldMap.put("filter", Map.of("id", "date", "dateFormat", this.dateFormats[0]));
-                }
-            }
-            result.add(fieldMap);
-        }
-
-        return result;
-    }
-
     /**
      * Convert a Java object to a JSON.
      * 
@@ -422,88 +385,156 @@ public class LiveDataInlineTableMacroBlockFilter implements BlockFilter
         // Detect the fields types.
         identifyPropertiesTypes(rows, fieldsTypes, this.dateFormats);
 
-        // Extract the entries from the rows.
-        List<Map<String, Object>> entries = new ArrayList<>();
-        boolean inlineHeading = false;
-        for (TableRowBlock row : rows) {
-            Map<String, Object> entry = new HashMap<>();
+        // A first row containing heading cells gives the names of the properties and is not an entry.
+        boolean inlineHeading = !rows.isEmpty()
+            && rows.get(0).getChildren().stream().anyMatch(TableHeadCellBlock.class::isInstance);
+        if (inlineHeading) {
             int i = 0;
-            for (Block child : row.getChildren()) {
-                if (child instanceof TableCellBlock) {
-                    logger.debug("Parsing a cell of column: " + i);
-                    TableCellBlock cell = (TableCellBlock) child;
+            for (Block child : rows.get(0).getChildren()) {
+                if (child instanceof TableHeadCellBlock) {
                     WikiPrinter textPrinter = new DefaultWikiPrinter();
+                    plainTextRenderer.render(child, textPrinter);
+                    properties.set(i, textPrinter.toString());
+                    logger.debug("Detected inline heading: " + textPrinter.toString());
+                }
+                if (child instanceof TableCellBlock) {
+                    i++;
+                }
+            }
+            logger.debug("Skipping the first detected row because it's a heading.");
+        }
 
-                    logger.debug("Rendering cell as text.");
-                    plainTextRenderer.render(cell, textPrinter);
+        // Extract the entries from the rows lazily, as they are consumed.
+        Iterator<Map<String, Object>> entries =
+            rows.stream().skip(inlineHeading ? 1 : 0).map(row -> rowToEntry(row, fieldsTypes)).iterator();
 
-                    logger.debug("Rendered cell as text: " + textPrinter.toString());
-                    if (entries.isEmpty() && child instanceof TableHeadCellBlock) {
-                        properties.set(i, textPrinter.toString());
-                        inlineHeading = true;
-                        logger.debug("Detected inline heading: " + textPrinter.toString());
-                    }
+        return new ParsedTable(properties, fieldsTypes, entries);
+    }
 
+    /**
+     * Extract the entry of a row.
+     * 
+     * @param row the row to read
+     * @param fieldsTypes the types of the fields
+     * @return the entry
+     */
+    private Map<String, Object> rowToEntry(TableRowBlock row, List<String> fieldsTypes)
+    {
+        long start = this.timed ? System.nanoTime() : 0;
+        Map<String, Object> entry = new HashMap<>();
+        int i = 0;
+        for (Block child : row.getChildren()) {
+            if (child instanceof TableCellBlock) {
+                logger.debug("Parsing a cell of column: " + i);
+                TableCellBlock cell = (TableCellBlock) child;
+                WikiPrinter textPrinter = new DefaultWikiPrinter();
+
+                logger.debug("Rendering cell as text.");
+                plainTextRenderer.render(cell, textPrinter);
+
+                logger.debug("Rendered cell as text: " + textPrinter.toString());
+                if (isRenderedLazily(cell)) {
+                    // The cell is rendered by the LiveData source, only when its row is displayed.
+                    WikiPrinter sourcePrinter = new DefaultWikiPrinter();
+                    sourceRenderer.render(cell.getChildren(), sourcePrinter);
+                    logger.debug("Stored cell as source: " + sourcePrinter.toString());
+                    entry.put("source." + i, sourcePrinter.toString());
+                } else {
                     // We need to render the content of the cell as a string so that we can pass it to LiveData.
                     WikiPrinter cellPrinter = new DefaultWikiPrinter();
 
-                    // We need to run transformations in case there is an other livedata-inline-table call inside the
-                    // cell.
+                    // We need to run transformations in case there is an other livedata-inline-table call inside
+                    // the cell.
                     Block cellGroup = new GroupBlock(cell.getChildren(), cell.getParameters());
                     logger.debug("Running cell transformations.");
+                    long transformStart = this.timed ? System.nanoTime() : 0;
                     try {
                         transformationManager.performTransformations(cellGroup,
                             this.context.getTransformationContext());
                     } catch (TransformationException e) {
                         throw new LiveDataInlineTableMacroRuntimeException("Failed to transform cell content.", e);
                     }
+                    if (this.timed) {
+                        this.transformTime += System.nanoTime() - transformStart;
+                    }
 
                     logger.debug("Rendering cell as html.");
                     richTextRenderer.render(cellGroup, cellPrinter);
                     logger.debug("Rendered cell as html: " + cellPrinter.toString());
                     entry.put("" + i, cellPrinter.toString());
-                    entry.put("text." + i, textPrinter.toString());
-                    if (fieldsTypes.get(i).equals(DATE)) {
-                        logger.debug("A date is expected, trying to parse.");
-                        String datetimeString = "";
-                        Object timestamp = "";
-                        if (!textPrinter.toString().isBlank()) {
-
-                            for (int j = 0; j < this.dateFormats.length; j++) {
-                                try {
-                                    logger.debug("Trying to parse date using format: " + this.dateFormats[j]);
-
-                                    Locale locale = this.contextProvider.get().getLocale();
-                                    SimpleDateFormat parser = new SimpleDateFormat(this.dateFormats[j], locale);
-                                    parser.setLenient(true);
-
-                                    Date date = parser.parse(textPrinter.toString());
-                                    datetimeString = new SimpleDateFormat(this.dateFormats[j], locale).format(date);
-                                    timestamp = date.toInstant().getEpochSecond();
-                                    logger.debug("Parsed date: " + datetimeString);
-                                    logger.debug("Parsed unix timestamp: " + timestamp);
-                                    entry.put("date." + i, timestamp);
-                                    break;
-                                } catch (ParseException e) {
-                                    logger.debug("Failed to parse '" + textPrinter.toString() + "' using format "
-                                        + this.dateFormats[j], e);
-                                }
-                            }
-                        }
-                    }
-                    i++;
                 }
+                entry.put("text." + i, textPrinter.toString());
+                if (fieldsTypes.get(i).equals(DATE)) {
+                    logger.debug("A date is expected, trying to parse.");
+                    putDate(entry, i, textPrinter.toString());
+                }
+                i++;
             }
-            entries.add(entry);
         }
-        if (inlineHeading)
 
-        {
-            logger.debug("Removing the first detected row because it's a heading.");
-            entries.remove(0);
+        this.rowCount++;
+        if (this.timed) {
+            this.extractTime += System.nanoTime() - start;
         }
+        return entry;
+    }
 
-        return new ParsedTable(properties, fieldsTypes, entries);
+    /**
+     * Parse the date of a cell using the first matching date format.
+     * 
+     * @param entry the entry of the row
+     * @param i the column of the cell
+     * @param text the cell rendered as text
+     */
+    private void putDate(Map<String, Object> entry, int i, String text)
+    {
+        if (text.isBlank()) {
+            return;
+        }
+
+        for (int j = 0; j < this.dateFormats.length; j++) {
+            try {
+                logger.debug("Trying to parse date using format: " + this.dateFormats[j]);
+
+                Locale locale = this.contextProvider.get().getLocale();
+                SimpleDateFormat parser = new SimpleDateFormat(this.dateFormats[j], locale);
+                parser.setLenient(true);
+
+                Date date = parser.parse(text);
+                String datetimeString = new SimpleDateFormat(this.dateFormats[j], locale).format(date);
+                Object timestamp = date.toInstant().getEpochSecond();
+                logger.debug("Parsed date: " + datetimeString);
+                logger.debug("Parsed unix timestamp: " + timestamp);
+                entry.put("date." + i, timestamp);
+                break;
+            } catch (ParseException e) {
+                logger.debug("Failed to parse '" + text + "' using format " + this.dateFormats[j], e);
+            }
+        }
+    }
+
+    /**
+     * Checks if a cell can be stored as source and rendered later. Cells with macros need to be transformed in the
+     * context of the current document, and cells with parameters cannot be represented by their content alone.
+     * 
+     * @param cell the cell to check
+     * @return true when the cell should be stored as source
+     */
+    private boolean isRenderedLazily(TableCellBlock cell)
+    {
+        return this.sourceRenderer != null && cell.getParameters().isEmpty()
+            && cell.getFirstBlock(new ClassBlockMatcher(MacroBlock.class), Block.Axes.DESCENDANT) == null
+            && cell.getFirstBlock(new ClassBlockMatcher(MacroMarkerBlock.class), Block.Axes.DESCENDANT) == null;
+    }
+
+    /**
+     * Gets the syntax of the cells stored as source.
+     * 
+     * @return the syntax id
+     */
+    private String getSourceSyntax()
+    {
+        return (this.context.getSyntax() != null ? this.context.getSyntax() : Syntax.XWIKI_2_1).toIdString();
     }
 
     private void identifyPropertiesTypes(List<TableRowBlock> rows, List<String> fieldsTypes, String[] formats)
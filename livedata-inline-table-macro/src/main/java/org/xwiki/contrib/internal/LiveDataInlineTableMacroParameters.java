@@ -43,6 +43,8 @@ public class LiveDataInlineTableMacroParameters
     
     private Boolean filtering = true;
 
+    private boolean lazyRendering;
+
     /**
      * Gets the id Parameter.
      * 
@@ -144,4 +146,25 @@ public class LiveDataInlineTableMacroParameters
         this.dateFormatsSeparator = dateFormatSeparator;
     }
 
+    /**
+     * Gets the lazyRendering parameter.
+     * 
+     * @return the lazyRendering parameter.
+     */
+    public boolean isLazyRendering()
+    {
+        return this.lazyRendering;
+    }
+
+    /**
+     * Sets the lazyRendering parameter.
+     * 
+     * @param lazyRendering
+     */
+    @PropertyDescription("Render the cells without macros only when their rows are displayed.")
+    public void setLazyRendering(boolean lazyRendering)
+    {
+        this.lazyRendering = lazyRendering;
+    }
+
 }
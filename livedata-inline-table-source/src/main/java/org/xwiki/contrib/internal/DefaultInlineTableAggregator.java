@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+
+/**
+ * Default {@link InlineTableAggregator}. Aggregations are computed from the numeric and date columns of the table in a
+ * single pass over the bitmap of the filtered rows. The dates of the histogram are sorted, so that the bucket of a date
+ * is only computed when it is past the end of the previous bucket.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableAggregator implements InlineTableAggregator
+{
+    /**
+     * Accumulates the values of the aggregated rows.
+     */
+    private static final class Accumulator
+    {
+        private long count;
+
+        private long numberCount;
+
+        private double sum;
+
+        private double min = Double.POSITIVE_INFINITY;
+
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private int dateCount;
+
+        private long minDate = Long.MAX_VALUE;
+
+        private long maxDate = Long.MIN_VALUE;
+
+        // The dates of the histogram, null when no histogram is requested.
+        private final long[] dates;
+
+        Accumulator(long[] dates)
+        {
+            this.dates = dates;
+        }
+
+        void add(double number, long date)
+        {
+            this.count++;
+            if (!Double.isNaN(number)) {
+                this.numberCount++;
+                this.sum += number;
+                this.min = Math.min(this.min, number);
+                this.max = Math.max(this.max, number);
+            }
+            if (date != InlineTable.NO_DATE) {
+                if (this.dates != null) {
+                    this.dates[this.dateCount] = date;
+                }
+                this.dateCount++;
+                this.minDate = Math.min(this.minDate, date);
+                this.maxDate = Math.max(this.maxDate, date);
+            }
+        }
+
+        InlineTableAggregation toAggregation(InlineTableDateInterval interval, ZoneId zone)
+        {
+            InlineTableAggregation aggregation = new InlineTableAggregation();
+            aggregation.setCount(this.count);
+            aggregation.setNumberCount(this.numberCount);
+            aggregation.setSum(this.sum);
+            if (this.numberCount > 0) {
+                aggregation.setMin(this.min);
+                aggregation.setMax(this.max);
+            }
+            aggregation.setDateCount(this.dateCount);
+            if (this.dateCount > 0) {
+                aggregation.setMinDate(this.minDate);
+                aggregation.setMaxDate(this.maxDate);
+            }
+            if (this.dates != null) {
+                aggregation.setDateHistogram(getHistogram(this.dates, this.dateCount, interval, zone));
+            }
+            return aggregation;
+        }
+    }
+
+    @Inject
+    private InlineTableQueryEvaluator evaluator;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public InlineTableAggregation aggregate(InlineTable table, String property, List<Filter> filters,
+        InlineTableDateInterval interval, ZoneId zone)
+    {
+        BitSet rows = this.evaluator.filter(table, InlineTableCondition.of(table.getSchema(), filters));
+        Accumulator accumulator = new Accumulator(interval == null ? null : new long[rows.cardinality()]);
+
+        InlineTableSegment segment = null;
+        double[] numbers = null;
+        long[] dates = null;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            // The segments without filtered rows are not loaded.
+            if (segment == null || row >= segment.getOffset() + segment.size()) {
+                segment = table.getSegment(table.getSegmentIndex(row));
+                numbers = segment.getNumbers(property);
+                dates = segment.getDates(property);
+            }
+            accumulator.add(numbers[row - segment.getOffset()], dates[row - segment.getOffset()]);
+        }
+
+        logger.debug("Aggregated " + accumulator.count + " rows of column " + property + ".");
+        return accumulator.toAggregation(interval, zone);
+    }
+
+    /**
+     * Counts the dates in each bucket of a histogram.
+     * 
+     * @param dates the dates, sorted in place
+     * @param count the number of dates
+     * @param interval the bucket size
+     * @param zone the time zone in which buckets start
+     * @return the number of dates in each non empty bucket, by first day of the bucket, in chronological order
+     */
+    private static Map<String, Long> getHistogram(long[] dates, int count, InlineTableDateInterval interval,
+        ZoneId zone)
+    {
+        Arrays.sort(dates, 0, count);
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        int index = 0;
+        while (index < count) {
+            LocalDate bucket = interval.getBucket(dates[index], zone);
+            long end = interval.getNextBucket(bucket).atStartOfDay(zone).toEpochSecond();
+            int first = index;
+            while (index < count && dates[index] < end) {
+                index++;
+            }
+            histogram.put(bucket.toString(), (long) (index - first));
+        }
+        return histogram;
+    }
+}
@@ -22,11 +22,14 @@ package org.xwiki.contrib.internal;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
 import org.xwiki.component.annotation.Component;
 
@@ -43,6 +46,15 @@ public class DefaultInlineTableCache implements InlineTableCache
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private InlineTableReferences references;
+
+    @Inject
+    private InlineTableStatistics statistics;
+
     @Inject
     private Logger logger;
 
@@ -57,6 +69,62 @@ public class DefaultInlineTableCache implements InlineTableCache
         return this.cache;
     }
 
+    @Override
+    public String store(String entries, String document) throws CacheException
+    {
+        int threshold = this.configuration.getInlineThreshold();
+        if (entries.length() <= threshold) {
+            return entries;
+        }
+
+        return store(entries, DigestUtils.sha256Hex(entries), document);
+    }
+
+    @Override
+    public String store(String entries, String hash, String document) throws CacheException
+    {
+        int threshold = this.configuration.getInlineThreshold();
+        if (entries.length() <= threshold) {
+            return entries;
+        }
+
+        logger.debug("Base64 is longer than " + threshold + " characters, storing it in cache.");
+        return put(entries, hash, document);
+    }
+
+    @Override
+    public String put(String entries, String hash, String document) throws CacheException
+    {
+        Cache<String> payloads = getCache();
+        if (payloads.get(hash) == null) {
+            logger.debug("Storing table in cache using its sha256: " + hash);
+            payloads.set(hash, entries);
+        } else {
+            logger.debug("Table is already stored in cache using its sha256: " + hash);
+        }
+        if (document != null) {
+            this.references.add(hash, document);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public void remove(String hash) throws CacheException
+    {
+        logger.debug("Removing table from cache: " + hash);
+        getCache().remove(hash);
+    }
+
+    @Override
+    public void flush() throws CacheException
+    {
+        // Remove the tables one by one so that the listeners drop what depends on them.
+        for (InlineTableInfo table : this.statistics.getTables()) {
+            remove(table.getHash());
+        }
+    }
+
     /**
      * Initialize the cache with a new id if it already exists.
      * 
@@ -73,6 +141,31 @@ public class DefaultInlineTableCache implements InlineTableCache
             logger.debug("Trying to create a cache with id: " + id);
             this.cache = this.cacheManager.createNewCache(this.buildCacheConfiguration("cache" + cacheId));
             logger.debug("Successfully created cache.");
+            // References to a table are meaningless once it is not stored anymore.
+            this.cache.addCacheEntryListener(new CacheEntryListener<String>()
+            {
+                @Override
+                public void cacheEntryAdded(CacheEntryEvent<String> event)
+                {
+                    statistics.onTableStored(event.getEntry().getKey(), event.getEntry().getValue().length());
+                }
+
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<String> event)
+                {
+                    references.removeTable(event.getEntry().getKey());
+                    statistics.onTableRemoved(event.getEntry().getKey());
+                    String value = event.getEntry().getValue();
+                    InlineTableCacheEvictionEvent.emit("payloads", event.getEntry().getKey(),
+                        value == null ? 0 : value.length());
+                }
+
+                @Override
+                public void cacheEntryModified(CacheEntryEvent<String> event)
+                {
+                    // Same hash, same table.
+                }
+            });
         } catch (CacheException e) {
             logger.debug("Failed to create cache.");
             if (id < 100) {
@@ -96,6 +189,7 @@ public class DefaultInlineTableCache implements InlineTableCache
         LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
         lru.setMaxEntries(100000000);
         lru.setMaxIdle(3600);
+        cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
         return cacheConfiguration;
     }
 }
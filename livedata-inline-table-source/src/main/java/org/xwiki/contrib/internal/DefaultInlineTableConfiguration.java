@@ -0,0 +1,195 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+
+/**
+ * Default {@link InlineTableConfiguration}.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableConfiguration implements InlineTableConfiguration
+{
+    private static final String PREFIX = "livedata.inlineTable.";
+
+    private static final int DEFAULT_INLINE_THRESHOLD = 180;
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final long DEFAULT_REMOVAL_DELAY = 600L;
+
+    private static final String WARM_UP_PREFIX = PREFIX + "warmUp.";
+
+    private static final String QUERY_PREFIX = PREFIX + "query.";
+
+    private static final long DEFAULT_QUERY_TIMEOUT = 10000L;
+
+    private static final int DEFAULT_MAX_CONCURRENT_QUERIES = 16;
+
+    private static final long DEFAULT_SLOW_QUERY_THRESHOLD = 1000L;
+
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 100000;
+
+    private static final long DEFAULT_QUERY_CACHE_SIZE = 10000000L;
+
+    private static final String LIMITS_PREFIX = PREFIX + "limits.";
+
+    private static final int DEFAULT_MAX_INLINE_PAYLOAD_SIZE = 16384;
+
+    private static final long DEFAULT_MAX_DECOMPRESSED_SIZE = 64L * 1024 * 1024;
+
+    private static final int DEFAULT_MAX_ROWS = 500000;
+
+    private static final int DEFAULT_MAX_COLUMNS = 256;
+
+    private static final int DEFAULT_MAX_CELL_LENGTH = 100000;
+
+    private static final int DEFAULT_MAX_EXPORT_ROWS = 100000;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Override
+    public int getInlineThreshold()
+    {
+        return this.configuration.getProperty(PREFIX + "inlineThreshold", DEFAULT_INLINE_THRESHOLD);
+    }
+
+    @Override
+    public int getChunkSize()
+    {
+        return Math.max(1, this.configuration.getProperty(PREFIX + "chunkSize", DEFAULT_CHUNK_SIZE));
+    }
+
+    @Override
+    public long getRemovalDelay()
+    {
+        return Math.max(0L, this.configuration.getProperty(PREFIX + "removalDelay", DEFAULT_REMOVAL_DELAY));
+    }
+
+    @Override
+    public boolean isWarmUpEnabled()
+    {
+        return this.configuration.getProperty(WARM_UP_PREFIX + "enabled", false);
+    }
+
+    @Override
+    public int getWarmUpThreads()
+    {
+        return Math.max(1, this.configuration.getProperty(WARM_UP_PREFIX + "threads", 1));
+    }
+
+    @Override
+    public long getWarmUpDelay()
+    {
+        return Math.max(0L, this.configuration.getProperty(WARM_UP_PREFIX + "delay", 0L));
+    }
+
+    @Override
+    public long getQueryTimeout()
+    {
+        return Math.max(1L, this.configuration.getProperty(QUERY_PREFIX + "timeout", DEFAULT_QUERY_TIMEOUT));
+    }
+
+    @Override
+    public int getMaxConcurrentQueries()
+    {
+        return Math.max(1,
+            this.configuration.getProperty(QUERY_PREFIX + "maxConcurrent", DEFAULT_MAX_CONCURRENT_QUERIES));
+    }
+
+    @Override
+    public long getSlowQueryThreshold()
+    {
+        return this.configuration.getProperty(QUERY_PREFIX + "slowThreshold", DEFAULT_SLOW_QUERY_THRESHOLD);
+    }
+
+    @Override
+    public int getParallelThreshold()
+    {
+        return this.configuration.getProperty(QUERY_PREFIX + "parallelThreshold", DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    @Override
+    public int getParallelism()
+    {
+        // Leave some processors to the rest of the wiki by default.
+        int defaultParallelism = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return Math.max(1, this.configuration.getProperty(QUERY_PREFIX + "parallelism", defaultParallelism));
+    }
+
+    @Override
+    public boolean isDateIndexEnabled()
+    {
+        return this.configuration.getProperty(QUERY_PREFIX + "dateIndex", true);
+    }
+
+    @Override
+    public long getQueryCacheSize()
+    {
+        return Math.max(0L, this.configuration.getProperty(QUERY_PREFIX + "cacheSize", DEFAULT_QUERY_CACHE_SIZE));
+    }
+
+    @Override
+    public int getMaxInlinePayloadSize()
+    {
+        return Math.max(getInlineThreshold(),
+            this.configuration.getProperty(LIMITS_PREFIX + "inlinePayloadSize", DEFAULT_MAX_INLINE_PAYLOAD_SIZE));
+    }
+
+    @Override
+    public long getMaxDecompressedSize()
+    {
+        return this.configuration.getProperty(LIMITS_PREFIX + "decompressedSize", DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    @Override
+    public int getMaxRows()
+    {
+        return this.configuration.getProperty(LIMITS_PREFIX + "rows", DEFAULT_MAX_ROWS);
+    }
+
+    @Override
+    public int getMaxColumns()
+    {
+        return this.configuration.getProperty(LIMITS_PREFIX + "columns", DEFAULT_MAX_COLUMNS);
+    }
+
+    @Override
+    public int getMaxCellLength()
+    {
+        return this.configuration.getProperty(LIMITS_PREFIX + "cellLength", DEFAULT_MAX_CELL_LENGTH);
+    }
+
+    @Override
+    public int getMaxExportRows()
+    {
+        return this.configuration.getProperty(LIMITS_PREFIX + "exportRows", DEFAULT_MAX_EXPORT_ROWS);
+    }
+}
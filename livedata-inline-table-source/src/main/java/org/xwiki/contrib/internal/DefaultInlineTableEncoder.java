@@ -0,0 +1,272 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.xwiki.cache.CacheException;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Default {@link InlineTableEncoder}. Tables are serialized to JSON, compressed using GZIP and encoded to URL safe
+ * Base64 since they are passed to LiveData as a query parameter. The JSON is streamed through the compression and the
+ * encoding, and the sha256 used to store the table is computed along the way, so that the only full copy of the table
+ * is its Base64.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableEncoder implements InlineTableEncoder
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * The Base64 of a table, written through a GZIP stream, along with the sha256 of the Base64 and the size of the
+     * JSON.
+     */
+    private static final class EncodedOutput
+    {
+        private final ByteArrayOutputStream base64 = new ByteArrayOutputStream();
+
+        private final MessageDigest digest = DigestUtils.getSha256Digest();
+
+        private final OutputStream json;
+
+        private long jsonSize;
+
+        EncodedOutput() throws IOException
+        {
+            OutputStream compressed =
+                new GZIPOutputStream(Base64.getUrlEncoder().wrap(new DigestOutputStream(this.base64, this.digest)));
+            this.json = new FilterOutputStream(compressed)
+            {
+                @Override
+                public void write(int b) throws IOException
+                {
+                    compressed.write(b);
+                    jsonSize++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException
+                {
+                    compressed.write(b, off, len);
+                    jsonSize += len;
+                }
+            };
+        }
+
+        JsonGenerator createGenerator() throws IOException
+        {
+            // Closing the generator closes the streams, which writes the end of the Base64.
+            return OBJECT_MAPPER.getFactory().createGenerator(this.json);
+        }
+
+        long getJsonSize()
+        {
+            return this.jsonSize;
+        }
+
+        String getBase64()
+        {
+            return this.base64.toString(StandardCharsets.US_ASCII);
+        }
+
+        String getHash()
+        {
+            return Hex.encodeHexString(this.digest.digest());
+        }
+    }
+
+    @Inject
+    private InlineTableCache inlineTableCache;
+
+    @Inject
+    private InlineTableStore tableStore;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public String encode(InlineTableSchema schema, Iterator<Map<String, Object>> entries, String document)
+        throws LiveDataException
+    {
+        int chunkSize = this.configuration.getChunkSize();
+        EncodedOutput output;
+        boolean chunked;
+        try {
+            output = new EncodedOutput();
+            try (JsonGenerator generator = output.createGenerator()) {
+                // The fields are stored along with the entries so that the LiveData source can serve the property
+                // descriptors.
+                generator.writeStartObject();
+                generator.writeObjectField("fields", schema.getFields());
+                generator.writeObjectField("types", schema.getFieldsTypes());
+                generator.writeStringField("dateFormat", schema.getDateFormat());
+                if (schema.getSyntax() != null) {
+                    generator.writeStringField("syntax", schema.getSyntax());
+                    generator.writeStringField("base", schema.getBase());
+                }
+
+                List<Map<String, Object>> rows = nextRows(entries, chunkSize);
+                chunked = entries.hasNext();
+                if (!chunked) {
+                    generator.writeFieldName("entries");
+                    writeRows(generator, rows);
+                } else {
+                    writeChunks(generator, rows, entries, schema, document);
+                }
+                generator.writeEndObject();
+            }
+        } catch (IOException e) {
+            throw new LiveDataException("Failed to encode the table entries.", e);
+        }
+
+        String entriesB64 = output.getBase64();
+        logger.debug("Compressed and encoded the entries JSON as " + entriesB64.length() + " Base64 characters.");
+        // Only the stored tables can be split into chunks.
+        String entriesParameter = chunked ? put(entriesB64, output.getHash(), document)
+            : store(entriesB64, output.getHash(), document);
+        if (!entriesParameter.equals(entriesB64)) {
+            // Decode the stored table in the background before LiveData queries it.
+            this.tableStore.prepare(entriesParameter);
+        }
+
+        return entriesParameter;
+    }
+
+    /**
+     * Writes the entries as chunks stored separately, each described by its values in the table. The chunks are always
+     * stored, whatever their length.
+     * 
+     * @param generator the generator of the table
+     * @param firstRows the entries of the first chunk
+     * @param entries the following entries
+     * @param schema the schema of the table
+     * @param document the reference of the document containing the table
+     */
+    private void writeChunks(JsonGenerator generator, List<Map<String, Object>> firstRows,
+        Iterator<Map<String, Object>> entries, InlineTableSchema schema, String document)
+        throws IOException, LiveDataException
+    {
+        int chunkSize = firstRows.size();
+        int offset = 0;
+        int count = 0;
+        generator.writeFieldName("chunks");
+        generator.writeStartArray();
+        for (List<Map<String, Object>> rows = firstRows; !rows.isEmpty(); rows = nextRows(entries, chunkSize)) {
+            EncodedOutput chunkOutput = new EncodedOutput();
+            try (JsonGenerator chunkGenerator = chunkOutput.createGenerator()) {
+                writeRows(chunkGenerator, rows);
+            }
+            String chunkEntries = put(chunkOutput.getBase64(), chunkOutput.getHash(), document);
+            generator.writeObject(InlineTableChunk
+                .of(chunkEntries, offset, rows, schema.getFields().size(), chunkOutput.getJsonSize()).toMap());
+            offset += rows.size();
+            count++;
+        }
+        generator.writeEndArray();
+        logger.debug("Split the " + offset + " entries into " + count + " chunks.");
+    }
+
+    private static List<Map<String, Object>> nextRows(Iterator<Map<String, Object>> entries, int count)
+    {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        while (rows.size() < count && entries.hasNext()) {
+            rows.add(entries.next());
+        }
+        return rows;
+    }
+
+    private static void writeRows(JsonGenerator generator, List<Map<String, Object>> rows) throws IOException
+    {
+        generator.writeStartArray();
+        for (Map<String, Object> row : rows) {
+            generator.writeObject(row);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Stores encoded entries in the cache when they are too long to be passed inline.
+     * 
+     * @param entriesB64 the encoded entries
+     * @param hash the sha256 of the encoded entries
+     * @param document the reference of the document containing the table
+     * @return the hash of the stored entries, or the encoded entries themselves
+     */
+    private String store(String entriesB64, String hash, String document) throws LiveDataException
+    {
+        // Long tables are stored in the cache and passed to LiveData by their hash.
+        try {
+            return this.inlineTableCache.store(entriesB64, hash, document);
+        } catch (CacheException e) {
+            throw storeFailed(e);
+        }
+    }
+
+    /**
+     * Stores encoded entries in the cache whatever their length.
+     * 
+     * @param entriesB64 the encoded entries
+     * @param hash the sha256 of the encoded entries
+     * @param document the reference of the document containing the table
+     * @return the hash of the stored entries
+     */
+    private String put(String entriesB64, String hash, String document) throws LiveDataException
+    {
+        try {
+            return this.inlineTableCache.put(entriesB64, hash, document);
+        } catch (CacheException e) {
+            throw storeFailed(e);
+        }
+    }
+
+    private static LiveDataException storeFailed(CacheException e)
+    {
+        return new LiveDataException("Failed to store the table entries.", e);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.GroupBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.util.ParserUtils;
+
+/**
+ * Default {@link InlineTableEntryRenderer}. Cells are stored as source by the macro only when they contain no macro, so
+ * they are parsed and rendered without running transformations.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableEntryRenderer implements InlineTableEntryRenderer
+{
+    /**
+     * The prefix of the fields containing the source of a cell that has not been rendered.
+     */
+    static final String SOURCE_ID = "source.";
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    @Named("html/5.0")
+    private BlockRenderer htmlRenderer;
+
+    @Inject
+    private Logger logger;
+
+    private final ParserUtils parserUtils = new ParserUtils();
+
+    @Override
+    public Map<String, Object> getEntry(InlineTable table, int id) throws LiveDataException
+    {
+        try {
+            return renderEntry(table, id);
+        } catch (IllegalStateException e) {
+            // The chunk of the entry could not be loaded.
+            throw new LiveDataException("Failed to read the rows of the table.", e);
+        }
+    }
+
+    private Map<String, Object> renderEntry(InlineTable table, int id) throws LiveDataException
+    {
+        InlineTableSchema schema = table.getSchema();
+        if (schema == null || schema.getSyntax() == null) {
+            return table.getEntry(id);
+        }
+
+        Map<String, Object> entry = table.getRenderedEntry(id);
+        if (entry == null) {
+            logger.debug("[" + id + "] Rendering the cells stored as source.");
+            entry = table.getEntry(id);
+            Parser parser;
+            try {
+                parser = this.componentManager.getInstance(Parser.class, schema.getSyntax());
+            } catch (ComponentLookupException e) {
+                throw new LiveDataException("Could not find a parser for syntax " + schema.getSyntax() + ".", e);
+            }
+            for (Map.Entry<String, Object> field : table.getEntries().get(id).entrySet()) {
+                if (field.getKey().startsWith(SOURCE_ID)) {
+                    entry.remove(field.getKey());
+                    entry.put(field.getKey().substring(SOURCE_ID.length()),
+                        render(parser, field.getValue().toString(), schema.getBase()));
+                }
+            }
+            entry = Collections.unmodifiableMap(entry);
+            table.setRenderedEntry(id, entry);
+        }
+
+        return new HashMap<>(entry);
+    }
+
+    private String render(Parser parser, String source, String base) throws LiveDataException
+    {
+        List<Block> children;
+        try {
+            children = parser.parse(new StringReader(source)).getChildren();
+        } catch (ParseException e) {
+            throw new LiveDataException("Failed to parse cell content.", e);
+        }
+        // Cells are rendered from their inline content, like the macro does.
+        this.parserUtils.removeTopLevelParagraph(children);
+
+        Block cellGroup = new GroupBlock(children);
+        if (base != null) {
+            // Resolve relative references against the document containing the table.
+            cellGroup = new MetaDataBlock(Collections.singletonList(cellGroup), MetaData.BASE, base);
+        }
+
+        WikiPrinter cellPrinter = new DefaultWikiPrinter();
+        this.htmlRenderer.render(cellGroup, cellPrinter);
+        return cellPrinter.toString();
+    }
+}
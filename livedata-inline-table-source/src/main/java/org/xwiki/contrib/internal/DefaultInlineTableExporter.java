@@ -0,0 +1,268 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.text.StringUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Default {@link InlineTableExporter}. Rows are matched by the same {@link InlineTableQueryRunner} as the LiveData
+ * entry store, then read from the decoded table and written one by one in the request thread, up to the
+ * {@link InlineTableConfiguration#getMaxExportRows() export limit}.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableExporter implements InlineTableExporter
+{
+    private static final String TEXT_ID = "text.";
+
+    private static final int CHUNK_ROWS = 1000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final char QUOTE = '"';
+
+    private static final char FORMULA_ESCAPE = '\'';
+
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    @Inject
+    private InlineTableQueryRunner queryRunner;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public void export(String entries, LiveDataQuery query, InlineTableExportFormat format, OutputStream out)
+        throws LiveDataException, IOException
+    {
+        InlineTableQueryResult result = this.queryRunner.run(entries, query, null);
+        InlineTable table = result.getTable();
+        int[] rowIds = result.getRowIds();
+        // Writing the rows is not part of the time budget of the query, bound it by their number instead.
+        int maxRows = this.configuration.getMaxExportRows();
+        if (rowIds.length > maxRows) {
+            throw new LiveDataException("The query matches " + rowIds.length + " rows, more than the " + maxRows
+                + " rows that can be exported at once.");
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            List<String> properties = getProperties(table, query);
+            List<String> names = getNames(table, properties);
+            logger.debug("Exporting " + rowIds.length + " rows as " + format + ".");
+
+            if (format == InlineTableExportFormat.NDJSON) {
+                writeNDJSON(table, rowIds, properties, names, writer);
+            } else {
+                writeCSV(table, rowIds, properties, names, writer);
+            }
+        } catch (IllegalStateException e) {
+            // The chunk of a row could not be loaded.
+            throw new LiveDataException("Failed to read the rows of the table.", e);
+        }
+        writer.flush();
+    }
+
+    private void writeCSV(InlineTable table, int[] rowIds, List<String> properties, List<String> names, Writer writer)
+        throws IOException
+    {
+        writeCSVRow(names, writer);
+        List<String> values = new ArrayList<>(properties.size());
+        for (int i = 0; i < rowIds.length; i++) {
+            Map<String, Object> entry = table.getEntries().get(rowIds[i]);
+            values.clear();
+            for (String property : properties) {
+                values.add(getText(entry, property));
+            }
+            writeCSVRow(values, writer);
+            flushChunk(i, writer);
+        }
+    }
+
+    private void writeCSVRow(List<String> values, Writer writer) throws IOException
+    {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values.get(i);
+            // Spreadsheets evaluate the cells starting like a formula, unless they are prefixed with a quote.
+            if (isFormula(value)) {
+                value = FORMULA_ESCAPE + value;
+            }
+            if (StringUtils.containsAny(value, ",\"\r\n")) {
+                writer.write(QUOTE);
+                writer.write(StringUtils.replace(value, "\"", "\"\""));
+                writer.write(QUOTE);
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeNDJSON(InlineTable table, int[] rowIds, List<String> properties, List<String> names,
+        Writer writer) throws IOException
+    {
+        JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+        // The writer is closed by the caller.
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Each row is followed by a new line, and nothing else.
+        generator.setRootValueSeparator(null);
+        for (int i = 0; i < rowIds.length; i++) {
+            Map<String, Object> entry = table.getEntries().get(rowIds[i]);
+            generator.writeStartObject();
+            for (int j = 0; j < properties.size(); j++) {
+                generator.writeStringField(names.get(j), getText(entry, properties.get(j)));
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            // Flushing the generator also flushes the writer.
+            flushChunk(i, generator);
+        }
+        generator.flush();
+    }
+
+    /**
+     * Flushes the output after each chunk of rows.
+     */
+    private void flushChunk(int row, Flushable output) throws IOException
+    {
+        if ((row + 1) % CHUNK_ROWS == 0) {
+            output.flush();
+        }
+    }
+
+    /**
+     * Gets the exported properties: the ones of the query, or all the columns of the table.
+     */
+    private List<String> getProperties(InlineTable table, LiveDataQuery query)
+    {
+        List<String> properties = new ArrayList<>();
+        if (query.getProperties() != null && !query.getProperties().isEmpty()) {
+            properties.addAll(query.getProperties());
+        } else if (table.getSchema() != null && table.getSchema().getFields() != null) {
+            for (int i = 0; i < table.getSchema().getFields().size(); i++) {
+                properties.add(String.valueOf(i));
+            }
+        } else if (table.size() > 0) {
+            // Tables stored by older versions have no schema, use the columns of their first entry.
+            for (String field : table.getEntries().get(0).keySet()) {
+                if (field.startsWith(TEXT_ID) && getIndex(field.substring(TEXT_ID.length())) >= 0) {
+                    properties.add(field.substring(TEXT_ID.length()));
+                }
+            }
+            properties.sort((p0, p1) -> Integer.compare(getIndex(p0), getIndex(p1)));
+        }
+        return properties;
+    }
+
+    /**
+     * Gets the names of the exported properties: the names of their columns, made unique so that they can be used as
+     * keys, or the properties themselves when their column is unknown.
+     */
+    private List<String> getNames(InlineTable table, List<String> properties)
+    {
+        List<String> fields = table.getSchema() != null ? table.getSchema().getFields() : null;
+        List<String> names = new ArrayList<>(properties.size());
+        Set<String> usedNames = new HashSet<>();
+        for (String property : properties) {
+            int index = getIndex(property);
+            String name = fields != null && index >= 0 && index < fields.size() ? fields.get(index) : property;
+            String uniqueName = name;
+            for (int n = 2; !usedNames.add(uniqueName); n++) {
+                uniqueName = name + " (" + n + ')';
+            }
+            names.add(uniqueName);
+        }
+        return names;
+    }
+
+    /**
+     * Gets the index of the column of a property.
+     * 
+     * @param property the property
+     * @return the index of its column, {@code -1} when the property is not a column index
+     */
+    private static int getIndex(String property)
+    {
+        if (!StringUtils.isAsciiPrintable(property) || !StringUtils.isNumeric(property)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(property);
+        } catch (NumberFormatException e) {
+            // Larger than any column index.
+            return -1;
+        }
+    }
+
+    /**
+     * Indicates if a cell would be evaluated as a formula by a spreadsheet. Numbers are not, even when they start with
+     * a sign.
+     */
+    private static boolean isFormula(String value)
+    {
+        if (value.isEmpty() || FORMULA_PREFIXES.indexOf(value.charAt(0)) < 0) {
+            return false;
+        }
+        try {
+            new BigDecimal(value);
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private String getText(Map<String, Object> entry, String property)
+    {
+        Object value = entry.get(TEXT_ID + property);
+        return value == null ? "" : value.toString();
+    }
+}
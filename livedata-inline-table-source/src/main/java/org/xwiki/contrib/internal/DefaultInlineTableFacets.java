@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+
+/**
+ * Default {@link InlineTableFacets}. Facets are counted on the dictionary codes of the column of each segment in a
+ * single pass over the bitmap of the filtered rows, and cached on the table.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableFacets implements InlineTableFacets
+{
+    @Inject
+    private InlineTableQueryEvaluator evaluator;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public Map<String, Integer> getFacets(InlineTable table, String property, List<Filter> filters)
+    {
+        List<InlineTableCondition> otherConditions = InlineTableCondition.of(table.getSchema(), filters).stream()
+            .filter(condition -> !property.equals(condition.getProperty())).collect(Collectors.toList());
+        String key = property + InlineTableQueryKey.of(otherConditions, Collections.emptyList());
+
+        Map<String, Integer> facets = table.getFacets(key);
+        if (facets != null) {
+            logger.debug("Found facets of column " + property + " in cache.");
+            return facets;
+        }
+
+        BitSet rows = this.evaluator.filter(table, otherConditions);
+        // The values are kept in the order of their first filtered row, which is the order of the values with the same
+        // count.
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int index = 0; index < table.getSegmentCount(); index++) {
+            countSegment(table, index, property, rows, counts);
+        }
+
+        List<Map.Entry<String, Integer>> sortedCounts = new ArrayList<>(counts.entrySet());
+        sortedCounts.sort((count0, count1) -> Integer.compare(count1.getValue(), count0.getValue()));
+        facets = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> count : sortedCounts) {
+            facets.put(count.getKey(), count.getValue());
+        }
+        facets = Collections.unmodifiableMap(facets);
+
+        logger.debug("Computed " + facets.size() + " facets for column " + property + ".");
+        table.setFacets(key, facets);
+        return facets;
+    }
+
+    /**
+     * Counts the values of the filtered rows of a segment. The codes of the segment are counted, and the counts are
+     * added once per distinct value of the segment. Segments without filtered rows are not loaded.
+     * 
+     * @param table the table
+     * @param index the index of the segment
+     * @param property the faceted property
+     * @param rows the filtered rows of the table
+     * @param counts the counts to update, by value
+     */
+    private void countSegment(InlineTable table, int index, String property, BitSet rows, Map<String, Integer> counts)
+    {
+        int offset = table.getChunks() == null ? 0 : table.getChunks().get(index).getOffset();
+        int end = table.getChunks() == null ? table.size() : offset + table.getChunks().get(index).getSize();
+        int first = rows.nextSetBit(offset);
+        if (first < 0 || first >= end) {
+            return;
+        }
+
+        InlineTableColumn column = table.getSegment(index).getColumn(property);
+        int[] codeCounts = new int[column.getDictionarySize()];
+        // The codes in the order of their first filtered row.
+        int[] codes = new int[codeCounts.length];
+        int codeCount = 0;
+        for (int row = first; row >= 0 && row < end; row = rows.nextSetBit(row + 1)) {
+            int code = column.getCode(row - offset);
+            if (code != InlineTableColumn.NO_VALUE && codeCounts[code]++ == 0) {
+                codes[codeCount++] = code;
+            }
+        }
+        for (int i = 0; i < codeCount; i++) {
+            counts.merge(column.getValue(codes[i]), codeCounts[codes[i]], Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+
+/**
+ * Default {@link InlineTableQueryCache}. Query results are grouped by table hash in an LRU map, each table keeping its
+ * most recently used query results. The cached row ids of all the tables share the
+ * {@link InlineTableConfiguration#getQueryCacheSize() budget} of the cache: the oldest results of the least recently
+ * used tables are dropped until the cache is within its budget, and the largest results are not cached, since they
+ * would evict many smaller ones.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableQueryCache implements InlineTableQueryCache, Initializable
+{
+    private static final int MAX_TABLES = 100;
+
+    private static final int MAX_QUERIES_PER_TABLE = 16;
+
+    // A single result cannot use more than a quarter of the budget.
+    private static final int MAX_RESULT_SHARE = 4;
+
+    @Inject
+    private InlineTableCache inlineTableCache;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    // Guarded by itself, along with the number of cached row ids.
+    private final Map<String, QueryResults> cache = new LinkedHashMap<>(MAX_TABLES, 0.75f, true);
+
+    private long rowIdCount;
+
+    /**
+     * The most recently used query results of a single table, along with their number of row ids.
+     * 
+     * @version $Id$
+     */
+    private static class QueryResults extends LinkedHashMap<String, int[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private long rowIdCount;
+
+        QueryResults()
+        {
+            super(MAX_QUERIES_PER_TABLE, 0.75f, true);
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            // Query results are only valid for the stored payload they were computed from.
+            this.inlineTableCache.getCache().addCacheEntryListener(new CacheEntryListener<String>()
+            {
+                @Override
+                public void cacheEntryAdded(CacheEntryEvent<String> event)
+                {
+                    // Nothing to invalidate.
+                }
+
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<String> event)
+                {
+                    invalidate(event.getEntry().getKey());
+                }
+
+                @Override
+                public void cacheEntryModified(CacheEntryEvent<String> event)
+                {
+                    invalidate(event.getEntry().getKey());
+                }
+            });
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to listen to the stored tables cache.", e);
+        }
+    }
+
+    @Override
+    public int[] get(String tableHash, String queryKey)
+    {
+        synchronized (this.cache) {
+            QueryResults results = this.cache.get(tableHash);
+            return results == null ? null : results.get(queryKey);
+        }
+    }
+
+    @Override
+    public void set(String tableHash, String queryKey, int[] rowIds)
+    {
+        long maxRowIdCount = this.configuration.getQueryCacheSize();
+        if (rowIds.length > maxRowIdCount / MAX_RESULT_SHARE) {
+            logger.debug("Not caching the " + rowIds.length + " rows matching a query on table: " + tableHash);
+            return;
+        }
+
+        synchronized (this.cache) {
+            QueryResults results = this.cache.computeIfAbsent(tableHash, hash -> new QueryResults());
+            int[] previous = results.put(queryKey, rowIds);
+            long added = rowIds.length - (previous == null ? 0L : previous.length);
+            results.rowIdCount += added;
+            this.rowIdCount += added;
+
+            if (results.size() > MAX_QUERIES_PER_TABLE) {
+                removeEldest(results);
+            }
+            if (this.cache.size() > MAX_TABLES) {
+                Iterator<QueryResults> tables = this.cache.values().iterator();
+                this.rowIdCount -= tables.next().rowIdCount;
+                tables.remove();
+            }
+            // The results just added are the most recently used, the budget leaves room for them.
+            while (this.rowIdCount > maxRowIdCount) {
+                Iterator<QueryResults> tables = this.cache.values().iterator();
+                QueryResults eldest = tables.next();
+                removeEldest(eldest);
+                if (eldest.isEmpty()) {
+                    tables.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(String tableHash)
+    {
+        logger.debug("Invalidating the cached query results of table: " + tableHash);
+        synchronized (this.cache) {
+            QueryResults results = this.cache.remove(tableHash);
+            if (results != null) {
+                this.rowIdCount -= results.rowIdCount;
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used result of a table. The caller must hold the lock of the cache.
+     * 
+     * @param results the results of the table
+     */
+    private void removeEldest(QueryResults results)
+    {
+        Iterator<int[]> rowIds = results.values().iterator();
+        int removed = rowIds.next().length;
+        rowIds.remove();
+        results.rowIdCount -= removed;
+        this.rowIdCount -= removed;
+    }
+}
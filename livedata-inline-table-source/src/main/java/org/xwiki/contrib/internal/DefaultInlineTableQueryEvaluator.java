@@ -0,0 +1,234 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+
+/**
+ * Default {@link InlineTableQueryEvaluator}. The rows are filtered segment by segment, after skipping the chunks that
+ * cannot match, so that only the segments a query needs are loaded. Tables with more rows than the configured
+ * threshold are filtered and sorted in parallel, using a fork-join pool shared by all the queries.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableQueryEvaluator implements InlineTableQueryEvaluator, Initializable, Disposable
+{
+    // Minimum number of rows processed by a parallel task, below which splitting costs more than it saves.
+    private static final int MIN_GRAIN = 4096;
+
+    private static final int TASKS_PER_THREAD = 4;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    // Shared by all the queries, so that the parallel evaluations cannot use more than the configured threads.
+    private ForkJoinPool pool;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.pool = new ForkJoinPool(this.configuration.getParallelism());
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.pool.shutdownNow();
+    }
+
+    @Override
+    public BitSet filter(InlineTable table, List<InlineTableCondition> conditions)
+    {
+        BitSet rows = new BitSet(table.size());
+        if (conditions.isEmpty()) {
+            rows.set(0, table.size());
+            return rows;
+        }
+
+        // Only load the segments of the chunks that may contain matching rows.
+        List<Integer> segments = new ArrayList<>();
+        List<InlineTableChunk> chunks = table.getChunks();
+        for (int index = 0; index < table.getSegmentCount(); index++) {
+            if (chunks == null || mayMatch(chunks.get(index), conditions)) {
+                segments.add(index);
+            } else {
+                logger.debug("Skipping the chunk starting at row {}.", chunks.get(index).getOffset());
+            }
+        }
+
+        InlineTableSegmentFilter segmentFilter = new InlineTableSegmentFilter(conditions, table.getTextProperties(),
+            this.configuration.isDateIndexEnabled(), Thread.currentThread());
+        if (segments.size() > 1 && table.size() >= this.configuration.getParallelThreshold()) {
+            return filterInParallel(table, segments, segmentFilter);
+        }
+
+        logger.debug("Filtering {} segments.", segments.size());
+        for (int index : segments) {
+            InlineTableSegment segment = table.getSegment(index);
+            setRows(rows, segment.getOffset(), segmentFilter.filter(segment));
+        }
+        return rows;
+    }
+
+    private static boolean mayMatch(InlineTableChunk chunk, List<InlineTableCondition> conditions)
+    {
+        for (InlineTableCondition condition : conditions) {
+            if (!condition.mayMatch(chunk)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Filters segments in parallel. The segments are grouped in consecutive tasks of similar sizes, each task loading
+     * and filtering its own segments, and the rows of the segments are merged once all the tasks are done.
+     * 
+     * @param table the table, split into chunks
+     * @param segments the indexes of the segments to filter, in table order
+     * @param segmentFilter the filter of the segments
+     * @return the rows matching the conditions
+     */
+    private BitSet filterInParallel(InlineTable table, List<Integer> segments, InlineTableSegmentFilter segmentFilter)
+    {
+        int grain = getGrain(table.size());
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> group = new ArrayList<>();
+        int groupSize = 0;
+        for (int index : segments) {
+            group.add(index);
+            groupSize += table.getChunks().get(index).getSize();
+            if (groupSize >= grain) {
+                groups.add(group);
+                group = new ArrayList<>();
+                groupSize = 0;
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+
+        List<ForkJoinTask<List<BitSet>>> tasks = new ArrayList<>(groups.size());
+        for (List<Integer> taskSegments : groups) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                List<BitSet> segmentRows = new ArrayList<>(taskSegments.size());
+                for (int index : taskSegments) {
+                    segmentRows.add(segmentFilter.filter(table.getSegment(index)));
+                }
+                return segmentRows;
+            }));
+        }
+        logger.debug("Filtering {} segments in {} parallel tasks.", segments.size(), tasks.size());
+
+        return this.pool.invoke(ForkJoinTask.adapt(() -> {
+            ForkJoinTask.invokeAll(tasks);
+            BitSet rows = new BitSet(table.size());
+            for (int t = 0; t < tasks.size(); t++) {
+                List<BitSet> segmentRows = tasks.get(t).join();
+                for (int i = 0; i < segmentRows.size(); i++) {
+                    setRows(rows, table.getChunks().get(groups.get(t).get(i)).getOffset(), segmentRows.get(i));
+                }
+            }
+            return rows;
+        }));
+    }
+
+    private static void setRows(BitSet rows, int offset, BitSet segmentRows)
+    {
+        for (int row = segmentRows.nextSetBit(0); row >= 0; row = segmentRows.nextSetBit(row + 1)) {
+            rows.set(offset + row);
+        }
+    }
+
+    /**
+     * Gets the number of rows processed by each parallel task, so that each query is split into a few tasks per
+     * thread of the pool. Queries evaluated at the same time then share the threads of the pool.
+     * 
+     * @param size the number of rows of the table
+     * @return the number of rows of a task
+     */
+    private int getGrain(int size)
+    {
+        return Math.max(MIN_GRAIN, size / (this.pool.getParallelism() * TASKS_PER_THREAD) + 1);
+    }
+
+    @Override
+    public int[] sort(InlineTable table, BitSet rows, List<SortEntry> sortEntries)
+    {
+        int[] rowIds = rows.stream().toArray();
+        if (sortEntries.isEmpty() || rowIds.length < 2) {
+            return rowIds;
+        }
+
+        // Rows are compared through primitive keys, built for the sorted rows only and indexed by their position.
+        long[][] keys = new long[sortEntries.size()][];
+        boolean[] descending = new boolean[sortEntries.size()];
+        for (int s = 0; s < keys.length; s++) {
+            keys[s] = InlineTableSortKeys.of(table, rowIds, sortEntries.get(s).getProperty());
+            descending[s] = sortEntries.get(s).isDescending();
+        }
+        InlineTableMergeSort.RowComparator comparator = (position0, position1) -> {
+            for (int s = 0; s < keys.length; s++) {
+                int c = Long.compare(keys[s][position0], keys[s][position1]);
+                if (c != 0) {
+                    return descending[s] ? -c : c;
+                }
+            }
+            // The sort is stable, equivalent rows stay in table order.
+            return 0;
+        };
+
+        int[] positions = new int[rowIds.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        logger.debug("Sorting {} entries.", rowIds.length);
+        if (rowIds.length >= this.configuration.getParallelThreshold()) {
+            InlineTableMergeSort.sort(positions, comparator, this.pool, getGrain(rowIds.length));
+        } else {
+            InlineTableMergeSort.sort(positions, comparator);
+        }
+
+        int[] sortedRowIds = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            sortedRowIds[i] = rowIds[positions[i]];
+        }
+        return sortedRowIds;
+    }
+}
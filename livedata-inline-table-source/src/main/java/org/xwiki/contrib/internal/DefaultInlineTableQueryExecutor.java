@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.livedata.LiveDataException;
+
+/**
+ * Default {@link InlineTableQueryExecutor}. Evaluations run on virtual threads when the JVM supports them, and on a
+ * cached pool of daemon threads otherwise.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableQueryExecutor implements InlineTableQueryExecutor, Initializable, Disposable
+{
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    private ExecutorService executor;
+
+    private Semaphore permits;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.permits = new Semaphore(this.configuration.getMaxConcurrentQueries());
+
+        try {
+            this.executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.debug("Evaluating inline table queries on virtual threads.");
+        } catch (ReflectiveOperationException e) {
+            this.executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "LiveData inline table query");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logger.debug("Virtual threads are not available, evaluating inline table queries on a thread pool.");
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.executor.shutdownNow();
+    }
+
+    @Override
+    public <T> T execute(Callable<T> evaluation) throws LiveDataException
+    {
+        long timeout = this.configuration.getQueryTimeout();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        // Waiting for a permit is part of the time budget.
+        try {
+            if (!this.permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new LiveDataException("Too many inline table queries are being evaluated, try again later.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LiveDataException("Interrupted while waiting to evaluate the query.", e);
+        }
+
+        Future<T> future;
+        try {
+            future = this.executor.submit(() -> {
+                try {
+                    return evaluation.call();
+                } finally {
+                    // Released only once the evaluation really stopped, so that the limit holds for timed out ones.
+                    this.permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.permits.release();
+            throw new LiveDataException("Failed to start the query evaluation.", e);
+        }
+
+        try {
+            return future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.debug("Query evaluation exceeded its time budget of " + timeout + "ms, cancelled it.");
+            throw new LiveDataException("The query exceeded its time budget of " + timeout + "ms.", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LiveDataException("Interrupted while evaluating the query.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LiveDataException) {
+                throw (LiveDataException) e.getCause();
+            }
+            throw new LiveDataException("Failed to evaluate the query.", e.getCause());
+        } catch (CancellationException e) {
+            throw new LiveDataException("The query evaluation was cancelled.", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.BitSet;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+
+/**
+ * Default {@link InlineTableQueryRunner}.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableQueryRunner implements InlineTableQueryRunner
+{
+    @Inject
+    private InlineTableStore tableStore;
+
+    @Inject
+    private InlineTableQueryCache queryCache;
+
+    @Inject
+    private InlineTableQueryEvaluator evaluator;
+
+    @Inject
+    private InlineTableQueryExecutor queryExecutor;
+
+    @Inject
+    private InlineTableStatistics statistics;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public InlineTableQueryResult run(String entries, LiveDataQuery query, InlineTableQueryEvent event)
+        throws LiveDataException
+    {
+        // Decoding, filtering and sorting share the time budget of the query.
+        return this.queryExecutor.execute(() -> evaluate(entries, query, event));
+    }
+
+    private InlineTableQueryResult evaluate(String entries, LiveDataQuery query, InlineTableQueryEvent event)
+        throws LiveDataException
+    {
+        long start = System.nanoTime();
+        InlineTable table = this.tableStore.get(entries);
+        long decoded = System.nanoTime();
+        List<InlineTableCondition> conditions = InlineTableCondition.of(table.getSchema(), query.getFilters());
+        String queryKey = InlineTableQueryKey.of(conditions, query.getSort());
+        int[] cachedRowIds = this.queryCache.get(table.getHash(), queryKey);
+        if (cachedRowIds != null) {
+            logger.debug("Found the filtered and sorted row ids in cache.");
+            this.statistics.onQuery(table.getHash(), table.size(), decoded - start, 0, 0);
+            if (event != null) {
+                event.setCacheTier(InlineTableQueryEvent.QUERY_TIER);
+                event.setDecodeDuration(decoded - start);
+            }
+            return new InlineTableQueryResult(table, cachedRowIds);
+        }
+
+        BitSet rows = this.evaluator.filter(table, conditions);
+        long filtered = System.nanoTime();
+        int[] sortedRowIds = this.evaluator.sort(table, rows, query.getSort());
+        long sorted = System.nanoTime();
+        this.statistics.onQuery(table.getHash(), table.size(), decoded - start, filtered - decoded, sorted - filtered);
+        if (event != null) {
+            event.setDecodeDuration(decoded - start);
+            event.setFilterDuration(filtered - decoded);
+            event.setSortDuration(sorted - filtered);
+        }
+        this.queryCache.set(table.getHash(), queryKey, sortedRowIds);
+        return new InlineTableQueryResult(table, sortedRowIds);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+
+/**
+ * Default {@link InlineTableReferences}, keeping the references in memory, like the stored tables.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableReferences implements InlineTableReferences
+{
+    private final Map<String, Set<String>> documentsByTable = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> tablesByDocument = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(String hash, String document)
+    {
+        this.documentsByTable.computeIfAbsent(hash, key -> ConcurrentHashMap.newKeySet()).add(document);
+        this.tablesByDocument.computeIfAbsent(document, key -> ConcurrentHashMap.newKeySet()).add(hash);
+    }
+
+    @Override
+    public Set<String> getDocuments(String hash)
+    {
+        return Collections.unmodifiableSet(this.documentsByTable.getOrDefault(hash, Collections.emptySet()));
+    }
+
+    @Override
+    public Set<String> getTables(String document)
+    {
+        return Collections.unmodifiableSet(this.tablesByDocument.getOrDefault(document, Collections.emptySet()));
+    }
+
+    @Override
+    public Set<String> removeDocument(String document)
+    {
+        Set<String> unreferenced = new HashSet<>();
+        Set<String> tables = this.tablesByDocument.remove(document);
+        if (tables != null) {
+            for (String hash : tables) {
+                this.documentsByTable.computeIfPresent(hash, (key, documents) -> {
+                    documents.remove(document);
+                    if (documents.isEmpty()) {
+                        unreferenced.add(hash);
+                        return null;
+                    }
+                    return documents;
+                });
+            }
+        }
+        return unreferenced;
+    }
+
+    @Override
+    public void removeTable(String hash)
+    {
+        Set<String> documents = this.documentsByTable.remove(hash);
+        if (documents != null) {
+            for (String document : documents) {
+                this.tablesByDocument.computeIfPresent(document, (key, tables) -> {
+                    tables.remove(hash);
+                    return tables.isEmpty() ? null : tables;
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+
+/**
+ * Default {@link InlineTableStatistics}, kept in memory for the current node.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableStatistics implements InlineTableStatistics
+{
+    private static final int MAX_SLOW_QUERIES = 20;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<String, InlineTableInfo> tables = new ConcurrentHashMap<>();
+
+    private final AtomicLong payloadSize = new AtomicLong();
+
+    private final LongAdder payloadHits = new LongAdder();
+
+    private final LongAdder payloadMisses = new LongAdder();
+
+    private final LongAdder decodedHits = new LongAdder();
+
+    private final LongAdder decodedMisses = new LongAdder();
+
+    private final LongAdder removals = new LongAdder();
+
+    private final Deque<InlineTableSlowQuery> slowQueries = new ArrayDeque<>(MAX_SLOW_QUERIES);
+
+    @Override
+    public void onTableStored(String hash, int size)
+    {
+        InlineTableInfo previous = this.tables.put(hash, new InlineTableInfo(hash, size, 0, 0));
+        this.payloadSize.addAndGet(previous == null ? size : size - previous.getPayloadSize());
+    }
+
+    @Override
+    public void onTableRemoved(String hash)
+    {
+        InlineTableInfo removed = this.tables.remove(hash);
+        if (removed != null) {
+            this.payloadSize.addAndGet(-removed.getPayloadSize());
+        }
+        this.removals.increment();
+    }
+
+    @Override
+    public void onTableDecoded(String hash, long decodedSize, int rows)
+    {
+        // Inline tables are not stored, only keep track of the stored ones.
+        this.tables.computeIfPresent(hash,
+            (key, info) -> new InlineTableInfo(hash, info.getPayloadSize(), decodedSize, rows));
+    }
+
+    @Override
+    public void onPayloadLookup(boolean hit)
+    {
+        (hit ? this.payloadHits : this.payloadMisses).increment();
+    }
+
+    @Override
+    public void onDecodedLookup(boolean hit)
+    {
+        (hit ? this.decodedHits : this.decodedMisses).increment();
+    }
+
+    @Override
+    public void onQuery(String hash, int rows, long decodeTime, long filterTime, long sortTime)
+    {
+        long total = TimeUnit.NANOSECONDS.toMillis(decodeTime + filterTime + sortTime);
+        if (total < this.configuration.getSlowQueryThreshold()) {
+            return;
+        }
+
+        logger.debug("Slow query on table " + hash + " of " + rows + " rows: " + total + "ms.");
+        InlineTableSlowQuery query = new InlineTableSlowQuery(new Date(), hash, rows,
+            TimeUnit.NANOSECONDS.toMillis(decodeTime), TimeUnit.NANOSECONDS.toMillis(filterTime),
+            TimeUnit.NANOSECONDS.toMillis(sortTime));
+        synchronized (this.slowQueries) {
+            if (this.slowQueries.size() == MAX_SLOW_QUERIES) {
+                this.slowQueries.removeLast();
+            }
+            this.slowQueries.addFirst(query);
+        }
+    }
+
+    @Override
+    public List<InlineTableInfo> getTables()
+    {
+        List<InlineTableInfo> result = new ArrayList<>(this.tables.values());
+        result.sort(Comparator.comparingLong(InlineTableInfo::getDecodedSize)
+            .thenComparingInt(InlineTableInfo::getPayloadSize).reversed());
+        return result;
+    }
+
+    @Override
+    public long getPayloadSize()
+    {
+        return this.payloadSize.get();
+    }
+
+    @Override
+    public long getPayloadHits()
+    {
+        return this.payloadHits.sum();
+    }
+
+    @Override
+    public long getPayloadMisses()
+    {
+        return this.payloadMisses.sum();
+    }
+
+    @Override
+    public long getDecodedHits()
+    {
+        return this.decodedHits.sum();
+    }
+
+    @Override
+    public long getDecodedMisses()
+    {
+        return this.decodedMisses.sum();
+    }
+
+    @Override
+    public long getRemovals()
+    {
+        return this.removals.sum();
+    }
+
+    @Override
+    public List<InlineTableSlowQuery> getSlowQueries()
+    {
+        synchronized (this.slowQueries) {
+            return new ArrayList<>(this.slowQueries);
+        }
+    }
+}
@@ -0,0 +1,510 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.livedata.LiveDataException;
+
+/**
+ * Default {@link InlineTableStore}. Decoded tables are kept in an LRU cache using the same hash as their stored
+ * payload. Each table is decoded only once at a time: the tables being decoded, either for a query or in the
+ * background, are tracked so that concurrent requests for the same table wait for the decoding in progress. The chunks
+ * of the tables split into chunks are decoded when accessed and kept in their own LRU cache, along with the structures
+ * built by the queries on their rows, so that the cold chunks of a large table can be evicted without evicting the
+ * whole table.
+ * 
+ * @version $Id$
+ */
+@Component
+@Singleton
+public class DefaultInlineTableStore implements InlineTableStore, Initializable, Disposable
+{
+    private static final int MAX_TABLES = 50;
+
+    private static final int MAX_CHUNKS = 2000;
+
+    private static final int MAX_PENDING_PREPARATIONS = 16;
+
+    private static final String CACHE_PREFIX = "xwiki.contrib.livedata-inline-table.";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private InlineTableCache inlineTableCache;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private InlineTableStatistics statistics;
+
+    @Inject
+    private Logger logger;
+
+    private Cache<InlineTable> cache;
+
+    private Cache<InlineTableSegment> chunkCache;
+
+    private final Map<String, CompletableFuture<InlineTable>> decodings = new ConcurrentHashMap<>();
+
+    // Single background thread with a bounded queue, preparing tables must never compete with the queries.
+    private final ExecutorService preparationExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(MAX_PENDING_PREPARATIONS), runnable -> {
+            Thread thread = new Thread(runnable, "LiveData inline table preparation");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /**
+     * Reports the entries removed from a cache of decoded rows to the flight recorder.
+     * 
+     * @param <T> the type of the cached values
+     */
+    private static final class EvictionListener<T> implements CacheEntryListener<T>
+    {
+        private final String cacheName;
+
+        private final ToIntFunction<T> rows;
+
+        EvictionListener(String cacheName, ToIntFunction<T> rows)
+        {
+            this.cacheName = cacheName;
+            this.rows = rows;
+        }
+
+        @Override
+        public void cacheEntryAdded(CacheEntryEvent<T> event)
+        {
+            // Only removals are reported.
+        }
+
+        @Override
+        public void cacheEntryRemoved(CacheEntryEvent<T> event)
+        {
+            T value = event.getEntry().getValue();
+            InlineTableCacheEvictionEvent.emit(this.cacheName, event.getEntry().getKey(),
+                value == null ? 0 : this.rows.applyAsInt(value));
+        }
+
+        @Override
+        public void cacheEntryModified(CacheEntryEvent<T> event)
+        {
+            // Only removals are reported.
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewLocalCache(buildCacheConfiguration("decoded", MAX_TABLES));
+            this.chunkCache = this.cacheManager.createNewLocalCache(buildCacheConfiguration("chunks", MAX_CHUNKS));
+            // A decoded table is only valid as long as the payload it was decoded from.
+            this.inlineTableCache.getCache().addCacheEntryListener(new CacheEntryListener<String>()
+            {
+                @Override
+                public void cacheEntryAdded(CacheEntryEvent<String> event)
+                {
+                    // Nothing to invalidate.
+                }
+
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<String> event)
+                {
+                    cache.remove(event.getEntry().getKey());
+                    chunkCache.remove(event.getEntry().getKey());
+                }
+
+                @Override
+                public void cacheEntryModified(CacheEntryEvent<String> event)
+                {
+                    cache.remove(event.getEntry().getKey());
+                    chunkCache.remove(event.getEntry().getKey());
+                }
+            });
+            this.cache.addCacheEntryListener(new EvictionListener<>("decoded", InlineTable::size));
+            this.chunkCache.addCacheEntryListener(new EvictionListener<>("chunks", InlineTableSegment::size));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to create the decoded tables cache.", e);
+        }
+    }
+
+    /**
+     * Builds the configuration of a local LRU cache.
+     * 
+     * @param id the id of the cache
+     * @param maxEntries the maximum number of entries of the cache
+     * @return the cache configuration
+     */
+    private CacheConfiguration buildCacheConfiguration(String id, int maxEntries)
+    {
+        CacheConfiguration cacheConfiguration = new CacheConfiguration();
+        cacheConfiguration.setConfigurationId(CACHE_PREFIX + id);
+        LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+        lru.setMaxEntries(maxEntries);
+        cacheConfiguration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+        return cacheConfiguration;
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.preparationExecutor.shutdownNow();
+    }
+
+    @Override
+    public InlineTable get(String entries) throws LiveDataException
+    {
+        // Most of the time, the entries parameter is the hash of a stored table that has already been decoded.
+        InlineTable table = this.cache.get(entries);
+        this.statistics.onDecodedLookup(table != null);
+        if (table != null) {
+            logger.debug("Found decoded table in cache: " + entries);
+            touchPayloads(table);
+            return table;
+        }
+
+        CompletableFuture<InlineTable> decoding = new CompletableFuture<>();
+        CompletableFuture<InlineTable> inProgress = this.decodings.putIfAbsent(entries, decoding);
+        if (inProgress != null) {
+            logger.debug("Waiting for the table being decoded: " + entries);
+            return waitFor(inProgress, entries);
+        }
+
+        // The decoding is forgotten before it completes, so that the queries following a removal of the table never
+        // get the table decoded before the removal.
+        try {
+            table = decode(entries);
+            this.decodings.remove(entries, decoding);
+            decoding.complete(table);
+            return table;
+        } catch (LiveDataException | RuntimeException e) {
+            this.decodings.remove(entries, decoding);
+            decoding.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public InlineTableSchema getSchema(String entries) throws LiveDataException
+    {
+        InlineTable table = this.cache.get(entries);
+        if (table == null && entries.length() <= this.configuration.getMaxInlinePayloadSize()) {
+            table = this.cache.get(DigestUtils.sha256Hex(entries));
+        }
+        if (table != null) {
+            touchPayloads(table);
+            return table.getSchema();
+        }
+
+        String entriesB64 = getEntriesB64(entries);
+        checkInlinePayloadSize(entries, entriesB64);
+        try {
+            return new InlineTableDecoder(this.configuration).decodeSchema(Base64.getUrlDecoder().decode(entriesB64));
+        } catch (IOException | IllegalArgumentException e) {
+            throw invalidEntries(entries, entriesB64, e);
+        }
+    }
+
+    @Override
+    public boolean isDecoded(String entries)
+    {
+        // Inline tables are cached using the sha256 of their Base64.
+        return this.cache.get(entries) != null
+            || entries.length() <= this.configuration.getMaxInlinePayloadSize()
+                && this.cache.get(DigestUtils.sha256Hex(entries)) != null;
+    }
+
+    @Override
+    public void prepare(String hash)
+    {
+        if (this.cache.get(hash) != null) {
+            return;
+        }
+
+        CompletableFuture<InlineTable> decoding = new CompletableFuture<>();
+        if (this.decodings.putIfAbsent(hash, decoding) != null) {
+            return;
+        }
+
+        try {
+            this.preparationExecutor.execute(() -> {
+                try {
+                    InlineTable table = decode(hash);
+                    buildColumns(table);
+                    this.decodings.remove(hash, decoding);
+                    decoding.complete(table);
+                    logger.debug("Prepared table: " + hash);
+                } catch (Exception e) {
+                    logger.debug("Failed to prepare table " + hash + ": " + e.getMessage());
+                    this.decodings.remove(hash, decoding);
+                    decoding.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Too many tables waiting to be prepared, skipping: " + hash);
+            this.decodings.remove(hash, decoding);
+            // Queries that started waiting in the meantime decode the table themselves.
+            decoding.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Accesses the stored payloads of a table. The payloads expire once idle, and their removal drops the decoded
+     * table, so they must stay in use as long as the decoded table is. The chunks of a table are accessed along with
+     * it, since the chunks skipped by the queries are still needed by the others.
+     * 
+     * @param table the decoded table
+     */
+    private void touchPayloads(InlineTable table) throws LiveDataException
+    {
+        try {
+            Cache<String> payloads = this.inlineTableCache.getCache();
+            payloads.get(table.getHash());
+            if (table.getChunks() != null) {
+                for (InlineTableChunk chunk : table.getChunks()) {
+                    payloads.get(chunk.getEntries());
+                }
+            }
+        } catch (CacheException e) {
+            throw new LiveDataException("Failed to retrieve cache.", e);
+        }
+    }
+
+    /**
+     * Waits for a table being decoded by another thread.
+     * 
+     * @param decoding the decoding in progress
+     * @param entries the entries parameter
+     * @return the decoded table
+     */
+    private InlineTable waitFor(CompletableFuture<InlineTable> decoding, String entries) throws LiveDataException
+    {
+        try {
+            return decoding.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LiveDataException("Interrupted while waiting for the table to be decoded.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LiveDataException) {
+                throw (LiveDataException) e.getCause();
+            }
+            // The table was not decoded because of the background preparation itself, decode it here.
+            return decode(entries);
+        }
+    }
+
+    /**
+     * Builds the per-column structures of a table, as the first queries would. The structures of the tables split
+     * into chunks are built per chunk, only for the chunks the queries need.
+     * 
+     * @param table the table
+     */
+    private void buildColumns(InlineTable table)
+    {
+        InlineTableSchema schema = table.getSchema();
+        if (table.getChunks() != null || schema == null || schema.getFields() == null) {
+            return;
+        }
+
+        InlineTableSegment segment = table.getSegment(0);
+        for (int i = 0; i < schema.getFields().size(); i++) {
+            String property = String.valueOf(i);
+            segment.getColumn(property);
+            if (schema.isDate(property)) {
+                segment.getDates(property);
+            }
+        }
+    }
+
+    /**
+     * Decodes the table for an entries parameter and keeps it in cache.
+     * 
+     * @param entries the entries parameter
+     * @return the decoded table
+     */
+    private InlineTable decode(String entries) throws LiveDataException
+    {
+        InlineTable table;
+        String entriesB64 = getEntriesB64(entries);
+        checkInlinePayloadSize(entries, entriesB64);
+        // Cached entries are stored using the sha256 of their Base64, compute it for the inline ones.
+        String tableHash = entries.equals(entriesB64) ? DigestUtils.sha256Hex(entries) : entries;
+        if (!tableHash.equals(entries)) {
+            table = this.cache.get(tableHash);
+            if (table != null) {
+                logger.debug("Found decoded table in cache: " + tableHash);
+                return table;
+            }
+        }
+
+        // Decode the received entries. Only the stored tables, which were encoded by this wiki, can be split into
+        // chunks, so that a received table cannot reference chunks outside of the limits of the inline tables.
+        logger.debug("Attemtping to decode and decompress the entries.");
+        InlineTableDecoder decoder = new InlineTableDecoder(this.configuration);
+        try {
+            table = decoder.decode(tableHash, Base64.getUrlDecoder().decode(entriesB64),
+                tableHash.equals(entries) ? this::getSegment : null);
+        } catch (IOException | IllegalArgumentException e) {
+            throw invalidEntries(entries, entriesB64, e);
+        }
+
+        logger.debug("Decoded " + table.size() + " entries.");
+        this.statistics.onTableDecoded(tableHash, decoder.getDecompressedSize(), table.size());
+        this.cache.set(tableHash, table);
+        return table;
+    }
+
+    /**
+     * Checks that received tables are small, larger ones are expected to be stored in the cache.
+     * 
+     * @param entries the entries parameter
+     * @param entriesB64 the Base64 of the table
+     */
+    private void checkInlinePayloadSize(String entries, String entriesB64) throws LiveDataException
+    {
+        if (entries.equals(entriesB64) && entries.length() > this.configuration.getMaxInlinePayloadSize()) {
+            throw new LiveDataException("Failed to retrieve entries. Received entries parameter is not in cache and is"
+                + " too long to be an inline table.");
+        }
+    }
+
+    /**
+     * Reports a table that could not be decoded.
+     * 
+     * @param entries the entries parameter
+     * @param entriesB64 the Base64 of the table
+     * @param e the decoding error
+     * @return the exception to throw
+     */
+    private LiveDataException invalidEntries(String entries, String entriesB64, Exception e)
+    {
+        if (e instanceof InlineTableDecoder.LimitExceededException) {
+            return new LiveDataException("Failed to retrieve entries. " + e.getMessage(), e);
+        } else if (entries.equals(entriesB64)) {
+            return new LiveDataException(
+                "Failed to retrieve entries. Received entries parameter is not in cache or is not valid.", e);
+        }
+        return new LiveDataException("Failed to retrieve entries. The data was found in cache but is not valid.", e);
+    }
+
+    /**
+     * Gets the segment of a chunk, decoding its entries when it is not in cache.
+     * 
+     * @param chunk the chunk
+     * @return the segment of the chunk
+     */
+    private InlineTableSegment getSegment(InlineTableChunk chunk)
+    {
+        // Identical chunks of different tables share their payload, but not the ids of their rows.
+        InlineTableSegment segment = this.chunkCache.get(chunk.getEntries());
+        if (segment != null && segment.getOffset() == chunk.getOffset()) {
+            return segment;
+        }
+
+        List<Map<String, Object>> entries;
+        try {
+            // Chunks are always stored, a chunk missing from the cache has been evicted while its table was still
+            // decoded.
+            String entriesB64 = this.inlineTableCache.getCache().get(chunk.getEntries());
+            this.statistics.onPayloadLookup(entriesB64 != null);
+            if (entriesB64 == null) {
+                throw new IllegalStateException(chunkNotFound(chunk));
+            }
+            InlineTableDecoder decoder = new InlineTableDecoder(this.configuration);
+            entries = decoder.decodeChunk(Base64.getUrlDecoder().decode(entriesB64), chunk);
+        } catch (CacheException | IOException | IllegalArgumentException e) {
+            throw new IllegalStateException(chunkNotFound(chunk), e);
+        }
+        if (entries.size() != chunk.getSize()) {
+            throw new IllegalStateException("The chunk of the table starting at row " + chunk.getOffset() + " has "
+                + entries.size() + " entries instead of " + chunk.getSize() + ".");
+        }
+
+        logger.debug("Decoded chunk of " + entries.size() + " entries starting at row " + chunk.getOffset() + ".");
+        segment = new InlineTableSegment(chunk.getOffset(), entries);
+        this.chunkCache.set(chunk.getEntries(), segment);
+        return segment;
+    }
+
+    private static String chunkNotFound(InlineTableChunk chunk)
+    {
+        return "Failed to retrieve the chunk of the table starting at row " + chunk.getOffset()
+            + ". The page containing the table may need to be displayed again.";
+    }
+
+    /**
+     * Find the cached entries and get its base64 representation.
+     * 
+     * @param entries the received entries query parameter
+     * @return the entries base64 representation
+     */
+    private String getEntriesB64(String entries) throws LiveDataException
+    {
+        String result;
+
+        logger.debug("Trying to retrieve entry from cache.");
+        try {
+            result = this.inlineTableCache.getCache().get(entries);
+        } catch (CacheException e) {
+            throw new LiveDataException("Failed to retrieve cache.", e);
+        }
+        this.statistics.onPayloadLookup(result != null);
+
+        if (result == null) {
+            logger.debug("Entries could not be found in cache. Assuming " + entries
+                + " is not a hash but the entries Base64 itself.");
+            return entries;
+        }
+
+        logger.debug("Found entries Base64 in cache: " + result);
+        return result;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * A decoded inline table. Entries are indexed by their {@code _inline_id}, i.e. their position in the table, so that a
+ * single entry can be accessed without going through the whole table. The rows are queried through segments, holding
+ * the per-column structures of consecutive rows: a single segment for the whole table, or one segment per chunk.
+ * 
+ * @version $Id$
+ */
+public class InlineTable
+{
+    private final String hash;
+
+    private final InlineTableSchema schema;
+
+    /**
+     * The value of rows without date in a date column.
+     */
+    public static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int MAX_CACHED_FACETS = 32;
+
+    private static final String TEXT_ID = "text.";
+
+    private final List<Map<String, Object>> entries;
+
+    private final List<InlineTableChunk> chunks;
+
+    // The single segment of a table which is not split into chunks.
+    private final InlineTableSegment segment;
+
+    private final Function<InlineTableChunk, InlineTableSegment> segmentLoader;
+
+    private final AtomicReferenceArray<Map<String, Object>> renderedEntries;
+
+    private final Map<String, Map<String, Integer>> facets = new LinkedHashMap<>(MAX_CACHED_FACETS, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, Integer>> eldest)
+        {
+            return size() > MAX_CACHED_FACETS;
+        }
+    };
+
+    /**
+     * Constructor of a table which is not split into chunks.
+     * 
+     * @param hash the hash identifying the table
+     * @param schema the schema of the table, {@code null} when the payload does not contain it
+     * @param entries the decoded entries of the table, in table order
+     */
+    public InlineTable(String hash, InlineTableSchema schema, List<Map<String, Object>> entries)
+    {
+        this.hash = hash;
+        this.schema = schema;
+        this.entries = entries;
+        this.chunks = null;
+        this.segment = new InlineTableSegment(0, entries);
+        this.segmentLoader = null;
+        this.renderedEntries = new AtomicReferenceArray<>(entries.size());
+    }
+
+    /**
+     * Constructor of a table split into chunks.
+     * 
+     * @param hash the hash identifying the table
+     * @param schema the schema of the table
+     * @param chunks the chunks of the table, in table order, all of the same size except the last one
+     * @param segmentLoader loads the segment of a chunk, and is expected to keep the recently used segments in a cache
+     */
+    public InlineTable(String hash, InlineTableSchema schema, List<InlineTableChunk> chunks,
+        Function<InlineTableChunk, InlineTableSegment> segmentLoader)
+    {
+        this.hash = hash;
+        this.schema = schema;
+        this.chunks = chunks;
+        this.segment = null;
+        this.segmentLoader = segmentLoader;
+        this.entries = new InlineTableChunkedEntries(chunks, chunk -> segmentLoader.apply(chunk).getEntries());
+        this.renderedEntries = new AtomicReferenceArray<>(this.entries.size());
+    }
+
+    /**
+     * Gets the hash identifying the table.
+     * 
+     * @return the hash of the table
+     */
+    public String getHash()
+    {
+        return this.hash;
+    }
+
+    /**
+     * Gets the schema of the table.
+     * 
+     * @return the schema, {@code null} when the stored table does not contain it
+     */
+    public InlineTableSchema getSchema()
+    {
+        return this.schema;
+    }
+
+    /**
+     * Gets the number of entries in the table.
+     * 
+     * @return the number of entries
+     */
+    public int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets a copy of an entry of the table.
+     * 
+     * @param id the id of the entry
+     * @return the entry, that can be modified freely
+     */
+    public Map<String, Object> getEntry(int id)
+    {
+        return new HashMap<>(this.entries.get(id));
+    }
+
+    /**
+     * Gets the rendered version of an entry whose cells are stored as source.
+     * 
+     * @param id the id of the entry
+     * @return the rendered entry, {@code null} when it has not been rendered yet
+     */
+    public Map<String, Object> getRenderedEntry(int id)
+    {
+        return this.renderedEntries.get(id);
+    }
+
+    /**
+     * Keeps the rendered version of an entry whose cells are stored as source, so that it is rendered only once.
+     * 
+     * @param id the id of the entry
+     * @param entry the rendered entry, which must not be modified afterwards
+     */
+    public void setRenderedEntry(int id, Map<String, Object> entry)
+    {
+        this.renderedEntries.set(id, entry);
+    }
+
+    /**
+     * Gets the entries of the table. The returned entries are shared and must not be modified.
+     * 
+     * @return the entries of the table, in table order
+     */
+    public List<Map<String, Object>> getEntries()
+    {
+        return this.entries;
+    }
+
+    /**
+     * Gets the chunks of the table. The entries of a chunk are loaded when they are accessed, so filters should check
+     * the chunks to skip the ones that cannot match.
+     * 
+     * @return the chunks, in table order, or {@code null} when the table is not split into chunks
+     */
+    public List<InlineTableChunk> getChunks()
+    {
+        return this.chunks;
+    }
+
+    /**
+     * @return the number of segments of the table, one per chunk when the table is split into chunks
+     */
+    public int getSegmentCount()
+    {
+        return this.chunks == null ? 1 : this.chunks.size();
+    }
+
+    /**
+     * Gets a segment of the table. The segments of a table split into chunks are loaded when accessed, so the chunks
+     * that cannot match a query should be skipped before accessing their segment.
+     * 
+     * @param index the index of the segment, i.e. the index of its chunk
+     * @return the segment
+     */
+    public InlineTableSegment getSegment(int index)
+    {
+        return this.chunks == null ? this.segment : this.segmentLoader.apply(this.chunks.get(index));
+    }
+
+    /**
+     * Gets the segment containing a row.
+     * 
+     * @param row the id of the row
+     * @return the index of the segment containing the row
+     */
+    public int getSegmentIndex(int row)
+    {
+        if (this.chunks == null) {
+            return 0;
+        }
+        // All the chunks have the same size, except the last one.
+        return Math.min(row / this.chunks.get(0).getSize(), this.chunks.size() - 1);
+    }
+
+    /**
+     * Checks if a property is sorted by date. The schema tells which columns are dates, while for tables stored by
+     * older versions, which are never split into chunks, a column is a date column when some of its rows have a date.
+     * 
+     * @param property the property, i.e. the column index
+     * @return whether the property is a date column
+     */
+    public boolean isDateColumn(String property)
+    {
+        if (this.schema != null && this.schema.getFieldsTypes() != null) {
+            return this.schema.isDate(property);
+        }
+        return this.segment != null && this.segment.hasDates(property);
+    }
+
+    /**
+     * Gets the properties holding a plain text value, searched by the search index.
+     * 
+     * @return the text properties, i.e. the column indexes
+     */
+    public List<String> getTextProperties()
+    {
+        List<String> properties = new ArrayList<>();
+        if (this.schema != null && this.schema.getFields() != null) {
+            for (int i = 0; i < this.schema.getFields().size(); i++) {
+                properties.add(String.valueOf(i));
+            }
+        } else if (!this.entries.isEmpty()) {
+            // Tables stored by older versions have no schema, but all their entries have the same fields.
+            for (String field : this.entries.get(0).keySet()) {
+                if (field.startsWith(TEXT_ID)) {
+                    properties.add(field.substring(TEXT_ID.length()));
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Gets cached facets.
+     * 
+     * @param key the key identifying the facets, see {@link #setFacets(String, Map)}
+     * @return the cached facets, or {@code null} when they are not cached
+     */
+    public Map<String, Integer> getFacets(String key)
+    {
+        synchronized (this.facets) {
+            return this.facets.get(key);
+        }
+    }
+
+    /**
+     * Caches facets computed on this table. Only the most recently used facets are kept.
+     * 
+     * @param key the key identifying the facets, made of the faceted property and the applied filters
+     * @param values the facets
+     */
+    public void setFacets(String key, Map<String, Integer> values)
+    {
+        synchronized (this.facets) {
+            this.facets.put(key, values);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Map;
+
+/**
+ * The aggregated values of a column over the rows matching a query.
+ * 
+ * @version $Id$
+ */
+public class InlineTableAggregation
+{
+    private long count;
+
+    private long numberCount;
+
+    private double sum;
+
+    private Double min;
+
+    private Double max;
+
+    private long dateCount;
+
+    private Long minDate;
+
+    private Long maxDate;
+
+    private Map<String, Long> dateHistogram;
+
+    /**
+     * Gets the number of rows matching the query.
+     * 
+     * @return the number of matching rows
+     */
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    /**
+     * Sets the number of rows matching the query.
+     * 
+     * @param count the number of matching rows
+     */
+    public void setCount(long count)
+    {
+        this.count = count;
+    }
+
+    /**
+     * Gets the number of matching rows whose value is a number.
+     * 
+     * @return the number of numeric values
+     */
+    public long getNumberCount()
+    {
+        return this.numberCount;
+    }
+
+    /**
+     * Sets the number of matching rows whose value is a number.
+     * 
+     * @param numberCount the number of numeric values
+     */
+    public void setNumberCount(long numberCount)
+    {
+        this.numberCount = numberCount;
+    }
+
+    /**
+     * Gets the sum of the numeric values.
+     * 
+     * @return the sum of the numeric values
+     */
+    public double getSum()
+    {
+        return this.sum;
+    }
+
+    /**
+     * Sets the sum of the numeric values.
+     * 
+     * @param sum the sum of the numeric values
+     */
+    public void setSum(double sum)
+    {
+        this.sum = sum;
+    }
+
+    /**
+     * Gets the average of the numeric values.
+     * 
+     * @return the average of the numeric values, {@code null} when there is none
+     */
+    public Double getAverage()
+    {
+        return this.numberCount == 0 ? null : this.sum / this.numberCount;
+    }
+
+    /**
+     * Gets the smallest numeric value.
+     * 
+     * @return the smallest numeric value, {@code null} when there is none
+     */
+    public Double getMin()
+    {
+        return this.min;
+    }
+
+    /**
+     * Sets the smallest numeric value.
+     * 
+     * @param min the smallest numeric value
+     */
+    public void setMin(Double min)
+    {
+        this.min = min;
+    }
+
+    /**
+     * Gets the largest numeric value.
+     * 
+     * @return the largest numeric value, {@code null} when there is none
+     */
+    public Double getMax()
+    {
+        return this.max;
+    }
+
+    /**
+     * Sets the largest numeric value.
+     * 
+     * @param max the largest numeric value
+     */
+    public void setMax(Double max)
+    {
+        this.max = max;
+    }
+
+    /**
+     * Gets the number of matching rows having a date.
+     * 
+     * @return the number of dates
+     */
+    public long getDateCount()
+    {
+        return this.dateCount;
+    }
+
+    /**
+     * Sets the number of matching rows having a date.
+     * 
+     * @param dateCount the number of dates
+     */
+    public void setDateCount(long dateCount)
+    {
+        this.dateCount = dateCount;
+    }
+
+    /**
+     * Gets the earliest date.
+     * 
+     * @return the earliest date as a unix timestamp, {@code null} when there is none
+     */
+    public Long getMinDate()
+    {
+        return this.minDate;
+    }
+
+    /**
+     * Sets the earliest date.
+     * 
+     * @param minDate the earliest date as a unix timestamp
+     */
+    public void setMinDate(Long minDate)
+    {
+        this.minDate = minDate;
+    }
+
+    /**
+     * Gets the latest date.
+     * 
+     * @return the latest date as a unix timestamp, {@code null} when there is none
+     */
+    public Long getMaxDate()
+    {
+        return this.maxDate;
+    }
+
+    /**
+     * Sets the latest date.
+     * 
+     * @param maxDate the latest date as a unix timestamp
+     */
+    public void setMaxDate(Long maxDate)
+    {
+        this.maxDate = maxDate;
+    }
+
+    /**
+     * Gets the date histogram.
+     * 
+     * @return the number of dates in each bucket, by ISO 8601 first day of the bucket, or {@code null} when no
+     *         histogram was requested
+     */
+    public Map<String, Long> getDateHistogram()
+    {
+        return this.dateHistogram;
+    }
+
+    /**
+     * Sets the date histogram.
+     * 
+     * @param dateHistogram the number of dates in each bucket, by ISO 8601 first day of the bucket
+     */
+    public void setDateHistogram(Map<String, Long> dateHistogram)
+    {
+        this.dateHistogram = dateHistogram;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.ZoneId;
+import java.util.List;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+
+/**
+ * Computes aggregations over the rows of inline tables matching a query, e.g. to display totals in a footer.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableAggregator
+{
+    /**
+     * Aggregates the values of a column over the rows matching the given filters. The count, min, max, sum and
+     * average of the numeric values, the min and max of the dates and the date histogram are computed in a single
+     * pass.
+     * 
+     * @param table the decoded table
+     * @param property the aggregated property, i.e. the column index
+     * @param filters the filters selecting the aggregated rows
+     * @param interval the bucket size of the date histogram, {@code null} to skip the histogram
+     * @param zone the time zone in which histogram buckets start
+     * @return the aggregated values
+     */
+    InlineTableAggregation aggregate(InlineTable table, String property, List<Filter> filters,
+        InlineTableDateInterval interval, ZoneId zone);
+}
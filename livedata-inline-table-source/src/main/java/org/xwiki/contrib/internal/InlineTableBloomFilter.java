@@ -0,0 +1,131 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Small Bloom filter of the text values of a column of a chunk, used to skip the chunks that cannot contain a value.
+ * Values are hashed with {@link String#hashCode()}, which is the same on every JVM, so the filters can be built when
+ * storing a table and used by another node.
+ * 
+ * @version $Id$
+ */
+public class InlineTableBloomFilter
+{
+    private static final int BITS_PER_VALUE = 10;
+
+    private static final int HASHES = 4;
+
+    private final long[] bits;
+
+    private InlineTableBloomFilter(long[] bits)
+    {
+        this.bits = bits;
+    }
+
+    /**
+     * Creates an empty filter.
+     * 
+     * @param expectedValues the number of values that will be added
+     * @return the filter
+     */
+    public static InlineTableBloomFilter create(int expectedValues)
+    {
+        int words = Math.max(1, (expectedValues * BITS_PER_VALUE + Long.SIZE - 1) / Long.SIZE);
+        return new InlineTableBloomFilter(new long[words]);
+    }
+
+    /**
+     * Reads a filter serialized with {@link #toBase64()}.
+     * 
+     * @param base64 the serialized filter
+     * @return the filter
+     */
+    public static InlineTableBloomFilter fromBase64(String base64)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(base64));
+        long[] bits = new long[Math.max(1, buffer.remaining() / Long.BYTES)];
+        buffer.asLongBuffer().get(bits, 0, buffer.remaining() / Long.BYTES);
+        return new InlineTableBloomFilter(bits);
+    }
+
+    /**
+     * Adds a value to the filter.
+     * 
+     * @param value the value
+     */
+    public void add(String value)
+    {
+        long bitCount = (long) this.bits.length * Long.SIZE;
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            this.bits[(int) (index / Long.SIZE)] |= 1L << (index % Long.SIZE);
+        }
+    }
+
+    /**
+     * Checks if a value may have been added to the filter.
+     * 
+     * @param value the value
+     * @return {@code false} when the value was not added, {@code true} when it may have been
+     */
+    public boolean mightContain(String value)
+    {
+        long bitCount = (long) this.bits.length * Long.SIZE;
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < HASHES; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            if ((this.bits[(int) (index / Long.SIZE)] & (1L << (index % Long.SIZE))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the filter serialized as URL safe Base64
+     */
+    public String toBase64()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(this.bits.length * Long.BYTES);
+        buffer.asLongBuffer().put(this.bits);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Derives a second hash from the first one, using the finalizer of MurmurHash3.
+     */
+    private static int mix(int hash)
+    {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        // An odd step visits all the bits.
+        return h | 1;
+    }
+}
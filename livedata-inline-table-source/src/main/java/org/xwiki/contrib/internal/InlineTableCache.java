@@ -38,4 +38,48 @@ public interface InlineTableCache
      * @return the cache for livedata-inline-table
      */
     Cache<String> getCache() throws CacheException;
+
+    /**
+     * Stores an encoded table in the cache when it is too long to be passed inline to LiveData. Tables are stored
+     * using the sha256 of their Base64, so identical tables share the same cache entry and are stored only once.
+     * 
+     * @param entries the Base64 of the encoded table
+     * @param document the serialized reference of the document displaying the table, {@code null} when unknown
+     * @return the entries parameter to pass to LiveData, either the hash of the stored table or the table itself
+     */
+    String store(String entries, String document) throws CacheException;
+
+    /**
+     * Stores an encoded table in the cache when it is too long to be passed inline to LiveData, using the sha256 of
+     * its Base64 computed while it was encoded.
+     * 
+     * @param entries the Base64 of the encoded table
+     * @param hash the hex encoded sha256 of the Base64
+     * @param document the serialized reference of the document displaying the table, {@code null} when unknown
+     * @return the entries parameter to pass to LiveData, either the hash of the stored table or the table itself
+     */
+    String store(String entries, String hash, String document) throws CacheException;
+
+    /**
+     * Stores an encoded table in the cache whatever its length. The tables split into chunks, and their chunks, are
+     * always stored, since they are only accepted from the cache.
+     * 
+     * @param entries the Base64 of the encoded table
+     * @param hash the hex encoded sha256 of the Base64
+     * @param document the serialized reference of the document displaying the table, {@code null} when unknown
+     * @return the hash of the stored table, to pass to LiveData
+     */
+    String put(String entries, String hash, String document) throws CacheException;
+
+    /**
+     * Removes a stored table. The decoded table and the cached query results are dropped along with it.
+     * 
+     * @param hash the hash of the stored table
+     */
+    void remove(String hash) throws CacheException;
+
+    /**
+     * Removes all the tables stored by the current node.
+     */
+    void flush() throws CacheException;
 }
@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event of an entry removed from one of the inline table caches, either evicted or invalidated
+ * along with the table it depends on.
+ * 
+ * @version $Id$
+ */
+@Name("InlineTable.CacheEviction")
+@Label("Inline Table Cache Eviction")
+@Category({ "XWiki", "LiveData Inline Table" })
+@Description("An entry removed from one of the inline table caches.")
+public final class InlineTableCacheEvictionEvent extends Event
+{
+    @Label("Cache")
+    @Description("The cache of the entry: payloads, decoded or chunks.")
+    private String cache;
+
+    @Label("Key")
+    @Description("The hash of the table or of the chunk.")
+    private String key;
+
+    @Label("Size")
+    @Description("The number of Base64 characters of a payload, or the number of rows of a decoded table or chunk.")
+    private long size;
+
+    /**
+     * Emits an event for a removed cache entry, when the event is enabled.
+     * 
+     * @param cache the cache of the entry
+     * @param key the key of the entry
+     * @param size the size of the entry
+     */
+    public static void emit(String cache, String key, long size)
+    {
+        InlineTableCacheEvictionEvent event = new InlineTableCacheEvictionEvent();
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.key = key;
+            event.size = size;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed-size range of rows of a large table, stored and decoded independently of the other ranges. Each chunk
+ * describes the values of its columns, so that filters can skip the chunks that cannot match without decoding them.
+ * Chunks are always stored, and referenced by the hash of their stored payload.
+ * 
+ * @version $Id$
+ */
+public class InlineTableChunk
+{
+    private static final String TEXT_ID = "text.";
+
+    private static final String DATE_ID = "date.";
+
+    private static final String ENTRIES = "entries";
+
+    private static final String OFFSET = "offset";
+
+    private static final String ROWS = "rows";
+
+    private static final String BYTES = "bytes";
+
+    private static final String COLUMNS = "columns";
+
+    private static final String MIN_DATE = "minDate";
+
+    private static final String MAX_DATE = "maxDate";
+
+    private static final String TEXTS = "texts";
+
+    /**
+     * The values of a column of a chunk.
+     */
+    private static class Column
+    {
+        // Bounds of the dates of the column, null when some rows have no date.
+        private Long minDate;
+
+        private Long maxDate;
+
+        // Text values of the column, null when some rows have no text.
+        private InlineTableBloomFilter texts;
+    }
+
+    /**
+     * Builds a chunk from its stored description, see {@link #toMap()}.
+     */
+    public static class Builder
+    {
+        private String entries;
+
+        private int offset;
+
+        private int size;
+
+        private long bytes;
+
+        private final Map<String, Column> columns = new HashMap<>();
+
+        /**
+         * @param entries the hash of the stored chunk
+         * @return this builder
+         */
+        public Builder entries(String entries)
+        {
+            this.entries = entries;
+            return this;
+        }
+
+        /**
+         * @param offset the position of the first row of the chunk in the table
+         * @return this builder
+         */
+        public Builder offset(int offset)
+        {
+            this.offset = offset;
+            return this;
+        }
+
+        /**
+         * @param size the number of rows of the chunk
+         * @return this builder
+         */
+        public Builder size(int size)
+        {
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * @param bytes the size of the JSON of the chunk, once decompressed
+         * @return this builder
+         */
+        public Builder bytes(long bytes)
+        {
+            this.bytes = bytes;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the dates of a column.
+         * 
+         * @param property the property, i.e. the column index
+         * @param minDate the earliest date of the column, as a unix timestamp
+         * @param maxDate the latest date of the column, as a unix timestamp
+         * @return this builder
+         */
+        public Builder dates(String property, long minDate, long maxDate)
+        {
+            Column column = this.columns.computeIfAbsent(property, p -> new Column());
+            column.minDate = minDate;
+            column.maxDate = maxDate;
+            return this;
+        }
+
+        /**
+         * Sets the text values of a column.
+         * 
+         * @param property the property, i.e. the column index
+         * @param texts the filter of the text values of the column
+         * @return this builder
+         */
+        public Builder texts(String property, InlineTableBloomFilter texts)
+        {
+            this.columns.computeIfAbsent(property, p -> new Column()).texts = texts;
+            return this;
+        }
+
+        /**
+         * @return the number of columns described so far
+         */
+        public int getColumnCount()
+        {
+            return this.columns.size();
+        }
+
+        /**
+         * @return the chunk
+         */
+        public InlineTableChunk build()
+        {
+            return new InlineTableChunk(this);
+        }
+    }
+
+    private final String entries;
+
+    private final int offset;
+
+    private final int size;
+
+    private final long bytes;
+
+    private final Map<String, Column> columns;
+
+    private InlineTableChunk(Builder builder)
+    {
+        this.entries = builder.entries;
+        this.offset = builder.offset;
+        this.size = builder.size;
+        this.bytes = builder.bytes;
+        this.columns = builder.columns;
+    }
+
+    /**
+     * Describes the rows of a chunk.
+     * 
+     * @param entries the hash of the stored chunk
+     * @param offset the position of the first row of the chunk in the table
+     * @param rows the rows of the chunk
+     * @param columnCount the number of columns of the table
+     * @param bytes the size of the JSON of the chunk, once decompressed
+     * @return the chunk
+     */
+    public static InlineTableChunk of(String entries, int offset, List<Map<String, Object>> rows, int columnCount,
+        long bytes)
+    {
+        Builder builder = new Builder().entries(entries).offset(offset).size(rows.size()).bytes(bytes);
+        for (int i = 0; i < columnCount; i++) {
+            String property = String.valueOf(i);
+            Column column = builder.columns.computeIfAbsent(property, p -> new Column());
+            column.texts = InlineTableBloomFilter.create(rows.size());
+            long minDate = Long.MAX_VALUE;
+            long maxDate = Long.MIN_VALUE;
+            boolean allDates = true;
+            for (Map<String, Object> row : rows) {
+                Object text = row.get(TEXT_ID + property);
+                if (text == null) {
+                    column.texts = null;
+                } else if (column.texts != null) {
+                    column.texts.add(text.toString());
+                }
+
+                Object date = row.get(DATE_ID + property);
+                if (date instanceof Number) {
+                    minDate = Math.min(minDate, ((Number) date).longValue());
+                    maxDate = Math.max(maxDate, ((Number) date).longValue());
+                } else {
+                    allDates = false;
+                }
+            }
+            if (allDates && !rows.isEmpty()) {
+                column.minDate = minDate;
+                column.maxDate = maxDate;
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * @return the description of the chunk, to store along with the table
+     */
+    public Map<String, Object> toMap()
+    {
+        Map<String, Object> columnsMap = new HashMap<>();
+        for (Map.Entry<String, Column> column : this.columns.entrySet()) {
+            Map<String, Object> columnMap = new HashMap<>();
+            if (column.getValue().minDate != null) {
+                columnMap.put(MIN_DATE, column.getValue().minDate);
+                columnMap.put(MAX_DATE, column.getValue().maxDate);
+            }
+            if (column.getValue().texts != null) {
+                columnMap.put(TEXTS, column.getValue().texts.toBase64());
+            }
+            columnsMap.put(column.getKey(), columnMap);
+        }
+
+        Map<String, Object> map = new HashMap<>();
+        map.put(ENTRIES, this.entries);
+        map.put(OFFSET, this.offset);
+        map.put(ROWS, this.size);
+        map.put(BYTES, this.bytes);
+        map.put(COLUMNS, columnsMap);
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return the hash of the stored chunk
+     */
+    public String getEntries()
+    {
+        return this.entries;
+    }
+
+    /**
+     * @return the position of the first row of the chunk in the table
+     */
+    public int getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * @return the number of rows of the chunk
+     */
+    public int getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return the size of the JSON of the chunk, once decompressed
+     */
+    public long getBytes()
+    {
+        return this.bytes;
+    }
+
+    /**
+     * Checks if some rows of the chunk may have a date in a range, or no date at all.
+     * 
+     * @param property the property
+     * @param begin the beginning of the range, as a unix timestamp
+     * @param end the end of the range, as a unix timestamp
+     * @return {@code false} when all the rows have a date outside of the range
+     */
+    public boolean mayHaveDateBetween(String property, long begin, long end)
+    {
+        Column column = this.columns.get(property);
+        if (column == null || column.minDate == null) {
+            return true;
+        }
+        return column.maxDate >= begin && column.minDate <= end;
+    }
+
+    /**
+     * Checks if some rows of the chunk may have a given text, or no text at all.
+     * 
+     * @param property the property
+     * @param text the text
+     * @return {@code false} when all the rows have a text different from the given one
+     */
+    public boolean mayHaveText(String property, String text)
+    {
+        Column column = this.columns.get(property);
+        return column == null || column.texts == null || column.texts.mightContain(text);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The entries of a chunked table. Chunks are loaded when one of their entries is accessed, through a loader which is
+ * expected to keep the recently used chunks in a cache, so that cold chunks of a large table can be evicted.
+ * 
+ * @version $Id$
+ */
+public class InlineTableChunkedEntries extends AbstractList<Map<String, Object>>
+{
+    private final List<InlineTableChunk> chunks;
+
+    private final Function<InlineTableChunk, List<Map<String, Object>>> loader;
+
+    private final int size;
+
+    private final int chunkSize;
+
+    /**
+     * Constructor.
+     * 
+     * @param chunks the chunks, in table order, all of the same size except the last one, which the decoder checks
+     * @param loader loads the entries of a chunk
+     */
+    public InlineTableChunkedEntries(List<InlineTableChunk> chunks,
+        Function<InlineTableChunk, List<Map<String, Object>>> loader)
+    {
+        this.chunks = chunks;
+        this.loader = loader;
+        this.chunkSize = chunks.isEmpty() ? 1 : chunks.get(0).getSize();
+        InlineTableChunk last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+        this.size = last == null ? 0 : last.getOffset() + last.getSize();
+    }
+
+    @Override
+    public Map<String, Object> get(int index)
+    {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+        }
+
+        InlineTableChunk chunk = this.chunks.get(index / this.chunkSize);
+        return this.loader.apply(chunk).get(index - chunk.getOffset());
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+}
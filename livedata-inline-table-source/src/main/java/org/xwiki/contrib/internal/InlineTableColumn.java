@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+/**
+ * A dictionary-encoded text column of a decoded inline table. The distinct plain text values of the column are
+ * numbered from 0 and rows reference them by this code. The values themselves stay in the {@link InlineTableDictionary}
+ * of the decoded rows, as UTF-8 bytes, and a string is only created when a value is accessed.
+ * 
+ * @version $Id$
+ */
+public class InlineTableColumn
+{
+    /**
+     * The code of rows that have no value for the column.
+     */
+    public static final int NO_VALUE = -1;
+
+    private final InlineTableDictionary dictionary;
+
+    private final int[] valueCodes;
+
+    private final int[] codes;
+
+    /**
+     * Constructor.
+     * 
+     * @param dictionary the dictionary holding the values of the column
+     * @param valueCodes the code in the dictionary of each distinct value of the column
+     * @param codes the code of the value of each row, i.e. its index in the distinct values, {@link #NO_VALUE} when
+     *            the row has no value
+     */
+    public InlineTableColumn(InlineTableDictionary dictionary, int[] valueCodes, int[] codes)
+    {
+        this.dictionary = dictionary;
+        this.valueCodes = valueCodes;
+        this.codes = codes;
+    }
+
+    /**
+     * Gets the number of distinct values of the column.
+     * 
+     * @return the size of the dictionary
+     */
+    public int getDictionarySize()
+    {
+        return this.valueCodes.length;
+    }
+
+    /**
+     * Gets a distinct value of the column. The string is created on each call, callers needing it repeatedly should
+     * keep it.
+     * 
+     * @param code the code of the value
+     * @return the value
+     */
+    public String getValue(int code)
+    {
+        return this.dictionary.get(this.valueCodes[code]);
+    }
+
+    /**
+     * Gets the code of the value of a row.
+     * 
+     * @param row the id of the row
+     * @return the code of the value, {@link #NO_VALUE} when the row has no value for the column
+     */
+    public int getCode(int row)
+    {
+        return this.codes[row];
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.text.StringUtils;
+
+/**
+ * A LiveData filter, as evaluated on an inline table. The constraints of the filter are converted to terms, and the
+ * constraints that cannot be evaluated, because of a missing value, an unknown operator or an invalid date, are
+ * dropped. The terms of a condition are all required when the filter matches all its constraints, otherwise any of
+ * them is enough. The conditions of a query are all required.
+ * 
+ * @version $Id$
+ */
+public final class InlineTableCondition
+{
+    /**
+     * The kinds of terms.
+     */
+    public enum Kind
+    {
+        /**
+         * Selects the rows whose date is in a range, and the rows without date.
+         */
+        DATE,
+
+        /**
+         * Selects the rows whose plain text value matches a text, and the rows without value.
+         */
+        TEXT,
+
+        /**
+         * Selects the rows containing words in any column, through the search index of the table.
+         */
+        SEARCH
+    }
+
+    /**
+     * A constraint of a filter, as evaluated on an inline table.
+     */
+    public static final class Term
+    {
+        private final Kind kind;
+
+        private final String operator;
+
+        private final String value;
+
+        private final long begin;
+
+        private final long end;
+
+        private Term(Kind kind, String operator, String value, long begin, long end)
+        {
+            this.kind = kind;
+            this.operator = operator;
+            this.value = value;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        /**
+         * @return the kind of the term
+         */
+        public Kind getKind()
+        {
+            return this.kind;
+        }
+
+        /**
+         * @return the operator of a text term
+         */
+        public String getOperator()
+        {
+            return this.operator;
+        }
+
+        /**
+         * @return the value of a text or search term
+         */
+        public String getValue()
+        {
+            return this.value;
+        }
+
+        /**
+         * @return the beginning of the range of a date term, as an inclusive unix timestamp
+         */
+        public long getBegin()
+        {
+            return this.begin;
+        }
+
+        /**
+         * @return the end of the range of a date term, as an inclusive unix timestamp
+         */
+        public long getEnd()
+        {
+            return this.end;
+        }
+
+        /**
+         * Checks a plain text value against a text term.
+         * 
+         * @param text the plain text value of a row
+         * @return whether the value matches the term
+         */
+        public boolean matches(String text)
+        {
+            switch (this.operator) {
+                case STARTS_WITH:
+                    return StringUtils.startsWithIgnoreCase(text, this.value);
+                case CONTAINS:
+                    return StringUtils.containsIgnoreCase(text, this.value);
+                default:
+                    return text.equals(this.value);
+            }
+        }
+
+        /**
+         * Checks if some rows of a chunk may match the term, using the values of its columns.
+         * 
+         * @param chunk the chunk
+         * @param property the constrained property
+         * @return {@code false} when no row of the chunk can match the term
+         */
+        public boolean mayMatch(InlineTableChunk chunk, String property)
+        {
+            if (this.kind == Kind.DATE) {
+                return chunk.mayHaveDateBetween(property, this.begin, this.end);
+            }
+            return this.kind != Kind.TEXT || !EQUALS.equals(this.operator) || chunk.mayHaveText(property, this.value);
+        }
+
+        /**
+         * @return a description of what the term selects, equal for equivalent terms
+         */
+        public String toKey()
+        {
+            if (this.kind == Kind.DATE) {
+                return this.kind.toString() + KEY_SEPARATOR + this.begin + DATE_RANGE_SEPARATOR + this.end;
+            }
+            return this.kind.toString() + KEY_SEPARATOR + this.operator + KEY_SEPARATOR + this.value;
+        }
+    }
+
+    private static final String BETWEEN = "between";
+
+    private static final String BEFORE = "before";
+
+    private static final String AFTER = "after";
+
+    private static final String EQUALS = "equals";
+
+    private static final String STARTS_WITH = "startsWith";
+
+    private static final String CONTAINS = "contains";
+
+    private static final String DATE_RANGE_SEPARATOR = "/";
+
+    private static final char KEY_SEPARATOR = ':';
+
+    // Bounds of the open-ended date ranges, the lowest value is reserved for the rows without date.
+    private static final long MIN_DATE = InlineTable.NO_DATE + 1;
+
+    private static final long MAX_DATE = Long.MAX_VALUE;
+
+    private final String property;
+
+    private final boolean matchAll;
+
+    private final List<Term> terms;
+
+    private InlineTableCondition(String property, boolean matchAll, List<Term> terms)
+    {
+        this.property = property;
+        // A single term is matched the same way whatever the filter says.
+        this.matchAll = matchAll || terms.size() <= 1;
+        this.terms = Collections.unmodifiableList(terms);
+    }
+
+    /**
+     * Converts the filters of a query to conditions. Filters without any term left are dropped, since they do not
+     * constrain the rows.
+     * 
+     * @param schema the schema of the filtered table, {@code null} when the table was stored without it
+     * @param filters the filters of the query
+     * @return the conditions, in the order of the filters
+     */
+    public static List<InlineTableCondition> of(InlineTableSchema schema, List<Filter> filters)
+    {
+        List<InlineTableCondition> conditions = new ArrayList<>();
+        for (Filter filter : filters) {
+            String property = filter.getProperty();
+            if (property == null) {
+                continue;
+            }
+            boolean search = InlineTableLiveDataEntryStore.INLINE_SEARCH.equals(property);
+            boolean dateColumn = schema != null && schema.isDate(property);
+            List<Term> terms = new ArrayList<>();
+            for (Constraint constraint : filter.getConstraints()) {
+                Term term = null;
+                if (constraint.getValue() == null) {
+                    continue;
+                } else if (search) {
+                    term = new Term(Kind.SEARCH, null, constraint.getValue().toString(), 0, 0);
+                } else if (constraint.getOperator() != null) {
+                    term = getTerm(constraint.getOperator(), constraint.getValue().toString(), dateColumn);
+                }
+                if (term != null) {
+                    terms.add(term);
+                }
+            }
+            if (!terms.isEmpty()) {
+                conditions.add(new InlineTableCondition(property, filter.isMatchAll(), terms));
+            }
+        }
+
+        return conditions;
+    }
+
+    /**
+     * @return the constrained property, i.e. the column index, or the search pseudo property
+     */
+    public String getProperty()
+    {
+        return this.property;
+    }
+
+    /**
+     * @return {@code true} when all the terms are required, {@code false} when any of them is enough
+     */
+    public boolean isMatchAll()
+    {
+        return this.matchAll;
+    }
+
+    /**
+     * @return the terms of the condition, never empty
+     */
+    public List<Term> getTerms()
+    {
+        return this.terms;
+    }
+
+    /**
+     * Checks if some rows of a chunk may match the condition, using the values of its columns.
+     * 
+     * @param chunk the chunk
+     * @return {@code false} when no row of the chunk can match the condition
+     */
+    public boolean mayMatch(InlineTableChunk chunk)
+    {
+        for (Term term : this.terms) {
+            if (term.mayMatch(chunk, this.property) != this.matchAll) {
+                return !this.matchAll;
+            }
+        }
+        return this.matchAll;
+    }
+
+    /**
+     * Converts a constraint to a term.
+     * 
+     * @param operator the operator of the constraint
+     * @param value the value of the constraint
+     * @param dateColumn whether the constrained property is a date column, for the operators shared with text
+     * @return the term, or {@code null} when the operator is unknown or the date is not valid
+     */
+    private static Term getTerm(String operator, String value, boolean dateColumn)
+    {
+        try {
+            switch (operator) {
+                case BETWEEN:
+                    // Open-ended ranges omit one of their bounds.
+                    String[] dates = StringUtils.splitPreserveAllTokens(value, DATE_RANGE_SEPARATOR);
+                    if (dates.length != 2) {
+                        return null;
+                    }
+                    return dateTerm(dates[0].isEmpty() ? MIN_DATE : parseInstant(dates[0]),
+                        dates[1].isEmpty() ? MAX_DATE : parseInstant(dates[1]));
+                case BEFORE:
+                    return dateTerm(MIN_DATE, parseInstant(value));
+                case AFTER:
+                    return dateTerm(parseInstant(value), MAX_DATE);
+                case EQUALS:
+                    return dateColumn ? getDay(value) : new Term(Kind.TEXT, operator, value, 0, 0);
+                case STARTS_WITH:
+                case CONTAINS:
+                    return new Term(Kind.TEXT, operator, value, 0, 0);
+                default:
+                    return null;
+            }
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static Term dateTerm(long begin, long end)
+    {
+        return new Term(Kind.DATE, null, null, begin, end);
+    }
+
+    private static long parseInstant(String value)
+    {
+        return Instant.from(DateTimeFormatter.ISO_INSTANT.parse(value)).getEpochSecond();
+    }
+
+    /**
+     * Gets the range of a day. The day is either an ISO date, in UTC, or an ISO date-time with an offset or a time
+     * zone, in which case it is the day of that date-time in its time zone.
+     * 
+     * @param value the day
+     * @return the date term selecting the first to the last second of the day
+     */
+    private static Term getDay(String value)
+    {
+        LocalDate day;
+        ZoneId zone;
+        if (value.indexOf('T') < 0) {
+            day = LocalDate.parse(value);
+            zone = ZoneOffset.UTC;
+        } else {
+            ZonedDateTime dateTime = ZonedDateTime.parse(value);
+            day = dateTime.toLocalDate();
+            zone = dateTime.getZone();
+        }
+
+        return dateTerm(day.atStartOfDay(zone).toEpochSecond(), day.plusDays(1).atStartOfDay(zone).toEpochSecond() - 1);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Configuration of the Inline Table for LiveData extension, read from {@code xwiki.properties}.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableConfiguration
+{
+    /**
+     * Gets the maximum length of an encoded table passed inline to LiveData. Longer tables are stored in the cache and
+     * referenced by their hash.
+     * 
+     * @return the maximum length of inline tables, in Base64 characters
+     */
+    int getInlineThreshold();
+
+    /**
+     * Gets the number of rows of the chunks in which larger tables are split. Each chunk is stored and decoded on its
+     * own, so that queries can skip the chunks that cannot match and only the recently used chunks are kept decoded.
+     * 
+     * @return the number of rows of a chunk
+     */
+    int getChunkSize();
+
+    /**
+     * Gets the time during which the stored tables of a modified or deleted document are kept once no document
+     * references them anymore. The LiveData views already displaying these tables keep working during this time, and a
+     * table displayed again by the new version of the document is not removed.
+     * 
+     * @return the delay before removing an unreferenced table, in seconds
+     */
+    long getRemovalDelay();
+
+    /**
+     * Indicates if the documents containing inline tables should be rendered in the background once the wiki is
+     * ready, so that the stored tables are available before the first LiveData query.
+     * 
+     * @return {@code true} if the cache should be warmed up at startup
+     */
+    boolean isWarmUpEnabled();
+
+    /**
+     * Gets the number of documents rendered concurrently when warming up the cache.
+     * 
+     * @return the number of warm-up threads
+     */
+    int getWarmUpThreads();
+
+    /**
+     * Gets the pause made by each warm-up thread after rendering a document, to limit the load on the wiki.
+     * 
+     * @return the delay between two documents, in milliseconds
+     */
+    long getWarmUpDelay();
+
+    /**
+     * Gets the time budget of the evaluation of a LiveData query, including the decoding of the table.
+     * 
+     * @return the maximum duration of a query evaluation, in milliseconds
+     */
+    long getQueryTimeout();
+
+    /**
+     * Gets the maximum number of LiveData queries evaluated at the same time.
+     * 
+     * @return the maximum number of concurrent query evaluations
+     */
+    int getMaxConcurrentQueries();
+
+    /**
+     * Gets the duration above which a LiveData query is reported as slow in the {@link InlineTableStatistics}.
+     * 
+     * @return the slow query threshold, in milliseconds
+     */
+    long getSlowQueryThreshold();
+
+    /**
+     * Gets the number of rows above which the filtering and sorting of a table are done in parallel.
+     * 
+     * @return the parallel evaluation threshold, in rows
+     */
+    int getParallelThreshold();
+
+    /**
+     * Gets the number of threads shared by all the queries evaluated in parallel.
+     * 
+     * @return the parallelism of the query evaluation
+     */
+    int getParallelism();
+
+    /**
+     * Indicates if date filters select their rows from a sorted index of the date column, built once per table and
+     * column. Otherwise each date filter scans the whole column, which uses less memory and avoids sorting the column
+     * for tables that are only queried a few times: building the index takes about as long as a few dozen scans.
+     * 
+     * @return {@code true} if date filters should use a sorted index
+     */
+    boolean isDateIndexEnabled();
+
+    /**
+     * Gets the maximum number of row ids kept by the cache of the query results, all tables included. The oldest
+     * results are dropped to stay within this budget, and the results larger than a quarter of it are not cached.
+     * 
+     * @return the maximum number of cached row ids, each using 4 bytes
+     */
+    long getQueryCacheSize();
+
+    /**
+     * Gets the maximum length of an encoded table received inline by LiveData, i.e. not found in the cache. It is never
+     * lower than the {@link #getInlineThreshold() inline threshold}.
+     * 
+     * @return the maximum length of a received inline table, in Base64 characters
+     */
+    int getMaxInlinePayloadSize();
+
+    /**
+     * Gets the maximum size of the JSON of a table once decompressed.
+     * 
+     * @return the maximum decompressed size of a table, in bytes
+     */
+    long getMaxDecompressedSize();
+
+    /**
+     * Gets the maximum number of rows of a decoded table.
+     * 
+     * @return the maximum number of rows
+     */
+    int getMaxRows();
+
+    /**
+     * Gets the maximum number of columns of a decoded table.
+     * 
+     * @return the maximum number of columns
+     */
+    int getMaxColumns();
+
+    /**
+     * Gets the maximum length of a value of a decoded table.
+     * 
+     * @return the maximum length of a cell, in characters
+     */
+    int getMaxCellLength();
+
+    /**
+     * Gets the maximum number of rows of an export. Exported rows are written to the response outside of the time
+     * budget of the query, so exports matching more rows are refused before anything is written.
+     * 
+     * @return the maximum number of exported rows
+     */
+    int getMaxExportRows();
+}
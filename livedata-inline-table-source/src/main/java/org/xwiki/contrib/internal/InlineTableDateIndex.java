@@ -0,0 +1,135 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * The dates of a column of a decoded table, sorted, along with the rows they belong to. A range of dates is located
+ * using binary search, so selecting the rows of a range costs O(log n) plus the number of selected rows.
+ * 
+ * @version $Id$
+ */
+public class InlineTableDateIndex
+{
+    // Bits used by the row id when packing a date and a row in a single long.
+    private static final int ROW_BITS = 31;
+
+    private static final long MAX_PACKED_DATE_RANGE = 1L << 32;
+
+    private final long[] dates;
+
+    private final int[] rows;
+
+    private final BitSet undatedRows;
+
+    /**
+     * Constructor.
+     * 
+     * @param columnDates the date of each row, {@link InlineTable#NO_DATE} when the row has no date
+     */
+    public InlineTableDateIndex(long[] columnDates)
+    {
+        this.undatedRows = new BitSet(columnDates.length);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int count = 0;
+        for (int row = 0; row < columnDates.length; row++) {
+            if (columnDates[row] == InlineTable.NO_DATE) {
+                this.undatedRows.set(row);
+            } else {
+                min = Math.min(min, columnDates[row]);
+                max = Math.max(max, columnDates[row]);
+                count++;
+            }
+        }
+
+        this.dates = new long[count];
+        this.rows = new int[count];
+        if (count > 0 && max - min >= 0 && max - min < MAX_PACKED_DATE_RANGE) {
+            // Usual case: sort the dates and their rows at once, packed in primitive longs.
+            long[] packed = new long[count];
+            int i = 0;
+            for (int row = 0; row < columnDates.length; row++) {
+                if (columnDates[row] != InlineTable.NO_DATE) {
+                    packed[i++] = ((columnDates[row] - min) << ROW_BITS) | row;
+                }
+            }
+            Arrays.sort(packed);
+            for (i = 0; i < count; i++) {
+                this.dates[i] = (packed[i] >>> ROW_BITS) + min;
+                this.rows[i] = (int) (packed[i] & ((1L << ROW_BITS) - 1));
+            }
+        } else if (count > 0) {
+            int[] sorted = IntStream.range(0, columnDates.length).filter(row -> columnDates[row] != InlineTable.NO_DATE)
+                .boxed().sorted(Comparator.comparingLong(row -> columnDates[row])).mapToInt(Integer::intValue)
+                .toArray();
+            for (int i = 0; i < count; i++) {
+                this.rows[i] = sorted[i];
+                this.dates[i] = columnDates[sorted[i]];
+            }
+        }
+    }
+
+    /**
+     * Selects the rows whose date is in a range, and the rows without date, which date filters do not apply to.
+     * 
+     * @param begin the beginning of the range, inclusive, as a unix timestamp
+     * @param end the end of the range, inclusive, as a unix timestamp
+     * @return the selected rows
+     */
+    public BitSet select(long begin, long end)
+    {
+        BitSet selected = (BitSet) this.undatedRows.clone();
+        if (begin > end) {
+            return selected;
+        }
+        for (int i = firstIndexNotBefore(begin); i < this.dates.length && this.dates[i] <= end; i++) {
+            selected.set(this.rows[i]);
+        }
+        return selected;
+    }
+
+    /**
+     * @return the number of rows that have a date
+     */
+    public int size()
+    {
+        return this.dates.length;
+    }
+
+    private int firstIndexNotBefore(long date)
+    {
+        int low = 0;
+        int high = this.dates.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.dates[middle] < date) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Defines the size of the buckets of a date histogram.
+ * 
+ * @version $Id$
+ */
+public enum InlineTableDateInterval
+{
+    /**
+     * One bucket per day.
+     */
+    DAY,
+    /**
+     * One bucket per week, starting on Monday.
+     */
+    WEEK,
+    /**
+     * One bucket per month.
+     */
+    MONTH;
+
+    /**
+     * Gets the bucket containing a date.
+     * 
+     * @param timestamp the date as a unix timestamp
+     * @param zone the time zone in which days start
+     * @return the first day of the bucket
+     */
+    public LocalDate getBucket(long timestamp, ZoneId zone)
+    {
+        LocalDate day = LocalDate.ofInstant(Instant.ofEpochSecond(timestamp), zone);
+        switch (this) {
+            case WEEK:
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH:
+                return day.withDayOfMonth(1);
+            default:
+                return day;
+        }
+    }
+
+    /**
+     * Gets the bucket following a bucket.
+     * 
+     * @param bucket the first day of a bucket
+     * @return the first day of the next bucket
+     */
+    public LocalDate getNextBucket(LocalDate bucket)
+    {
+        switch (this) {
+            case WEEK:
+                return bucket.plusWeeks(1);
+            case MONTH:
+                return bucket.plusMonths(1);
+            default:
+                return bucket.plusDays(1);
+        }
+    }
+}
@@ -0,0 +1,583 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Decodes the compressed JSON of a table into an {@link InlineTable}. The JSON is decompressed and parsed as a stream,
+ * and the limits of the {@link InlineTableConfiguration} are enforced while reading it, so that a small payload cannot
+ * inflate into a huge table. The limits apply to whole tables: the chunks of a table split into chunks declare their
+ * rows and their decompressed size, which count towards the limits of the table and bound the decoding of each chunk.
+ * 
+ * @version $Id$
+ */
+public class InlineTableDecoder
+{
+    /**
+     * Thrown when a table exceeds one of the configured limits.
+     */
+    public static class LimitExceededException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructor.
+         * 
+         * @param message the limit that was exceeded
+         */
+        public LimitExceededException(String message)
+        {
+            super(message);
+        }
+    }
+
+    /**
+     * The fields of the schema of a table, as they are read.
+     */
+    private static final class SchemaFields
+    {
+        private List<String> fields;
+
+        private List<String> types;
+
+        private String dateFormat;
+
+        private String syntax;
+
+        private String base;
+
+        InlineTableSchema build()
+        {
+            return new InlineTableSchema(this.fields, this.types, this.dateFormat, this.syntax, this.base);
+        }
+    }
+
+    /**
+     * Stream failing once more than a given number of bytes have been read.
+     */
+    private static class LimitedInputStream extends FilterInputStream
+    {
+        private final long limit;
+
+        private long count;
+
+        LimitedInputStream(InputStream in, long limit)
+        {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException
+        {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long read) throws LimitExceededException
+        {
+            this.count += read;
+            if (this.count > this.limit) {
+                throw tooLarge(this.limit);
+            }
+        }
+    }
+
+    private static final String ENTRIES = "entries";
+
+    private static final String CHUNKS = "chunks";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Chunks are always stored, and referenced by the sha256 of their stored payload.
+    private static final int STORED_HASH_LENGTH = 64;
+
+    private static final Pattern STORED_HASH = Pattern.compile("[0-9a-f]{" + STORED_HASH_LENGTH + '}');
+
+    // An entry has up to one field per representation of a cell: rendered, plain text, date and source.
+    private static final int FIELDS_PER_COLUMN = 4;
+
+    private final long maxDecompressedSize;
+
+    private final int maxRows;
+
+    private final int maxColumns;
+
+    private final int maxCellLength;
+
+    private long decompressedSize;
+
+    private long chunksSize;
+
+    /**
+     * Constructor.
+     * 
+     * @param configuration the configuration holding the limits to enforce
+     */
+    public InlineTableDecoder(InlineTableConfiguration configuration)
+    {
+        this.maxDecompressedSize = configuration.getMaxDecompressedSize();
+        this.maxRows = configuration.getMaxRows();
+        this.maxColumns = configuration.getMaxColumns();
+        this.maxCellLength = configuration.getMaxCellLength();
+    }
+
+    /**
+     * Decodes a table.
+     * 
+     * @param hash the hash identifying the table
+     * @param compressed the GZIP compressed JSON of the table
+     * @param segmentLoader loads the segment of a chunk, {@code null} when the table was not stored, in which case it
+     *            cannot be split into chunks
+     * @return the decoded table
+     * @throws LimitExceededException when the table exceeds one of the configured limits
+     * @throws IOException when the table is not valid
+     */
+    public InlineTable decode(String hash, byte[] compressed,
+        Function<InlineTableChunk, InlineTableSegment> segmentLoader) throws IOException
+    {
+        this.chunksSize = 0;
+        InputStream json =
+            new LimitedInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)), this.maxDecompressedSize);
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            // Tables stored by older versions only contain the entries.
+            if (token == JsonToken.START_ARRAY) {
+                InlineTable table =
+                    new InlineTable(hash, null, readEntries(parser, 0, this.maxRows, this::tooManyRows));
+                this.decompressedSize = ((LimitedInputStream) json).count;
+                return table;
+            } else if (token != JsonToken.START_OBJECT) {
+                throw notATable(parser);
+            }
+
+            SchemaFields schemaFields = new SchemaFields();
+            List<Map<String, Object>> entries = Collections.emptyList();
+            List<InlineTableChunk> chunks = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if (ENTRIES.equals(name)) {
+                    entries = readEntries(parser, 0, this.maxRows, this::tooManyRows);
+                } else if (CHUNKS.equals(name)) {
+                    if (segmentLoader == null) {
+                        throw new JsonParseException(parser, "Only stored tables can be split into chunks.");
+                    }
+                    chunks = readChunks(parser);
+                } else {
+                    readSchemaField(parser, name, schemaFields);
+                }
+            }
+
+            this.decompressedSize = ((LimitedInputStream) json).count + this.chunksSize;
+            if (this.decompressedSize > this.maxDecompressedSize) {
+                throw tooLarge(this.maxDecompressedSize);
+            }
+            InlineTableSchema schema = schemaFields.build();
+            return chunks == null ? new InlineTable(hash, schema, entries)
+                : new InlineTable(hash, schema, chunks, segmentLoader);
+        }
+    }
+
+    /**
+     * Decodes the schema of a table, without reading its rows. The schema is written before the rows, so the JSON is
+     * only decompressed up to the rows.
+     * 
+     * @param compressed the GZIP compressed JSON of the table
+     * @return the schema of the table, {@code null} for the tables stored by older versions, which have none
+     * @throws LimitExceededException when the schema exceeds one of the configured limits
+     * @throws IOException when the table is not valid
+     */
+    public InlineTableSchema decodeSchema(byte[] compressed) throws IOException
+    {
+        InputStream json =
+            new LimitedInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)), this.maxDecompressedSize);
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token = parser.nextToken();
+            // Tables stored by older versions only contain the entries.
+            if (token == JsonToken.START_ARRAY) {
+                return null;
+            } else if (token != JsonToken.START_OBJECT) {
+                throw notATable(parser);
+            }
+
+            SchemaFields schemaFields = new SchemaFields();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                if (ENTRIES.equals(name) || CHUNKS.equals(name)) {
+                    break;
+                }
+                parser.nextToken();
+                readSchemaField(parser, name, schemaFields);
+            }
+            this.decompressedSize = ((LimitedInputStream) json).count;
+            return schemaFields.build();
+        }
+    }
+
+    /**
+     * Decodes the entries of a chunk of a table. The chunk cannot be larger than declared by its table, whose limits
+     * include the rows and the size of its chunks.
+     * 
+     * @param compressed the GZIP compressed JSON of the chunk
+     * @param chunk the chunk, as described by its table
+     * @return the decoded entries
+     * @throws LimitExceededException when the chunk is larger than declared by its table
+     * @throws IOException when the chunk is not valid
+     */
+    public List<Map<String, Object>> decodeChunk(byte[] compressed, InlineTableChunk chunk) throws IOException
+    {
+        InputStream json =
+            new LimitedInputStream(new GZIPInputStream(new ByteArrayInputStream(compressed)), chunk.getBytes());
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            parser.nextToken();
+            List<Map<String, Object>> entries = readEntries(parser, chunk.getOffset(), chunk.getSize(),
+                () -> new LimitExceededException(
+                    "The chunk starting at row " + chunk.getOffset() + " has more than " + chunk.getSize() + " rows."));
+            this.decompressedSize = ((LimitedInputStream) json).count;
+            return entries;
+        }
+    }
+
+    /**
+     * @return the size of the JSON of the last decoded table, including the size declared by its chunks, in bytes
+     */
+    public long getDecompressedSize()
+    {
+        return this.decompressedSize;
+    }
+
+    private void readSchemaField(JsonParser parser, String name, SchemaFields schemaFields) throws IOException
+    {
+        switch (name) {
+            case "fields":
+                schemaFields.fields = readList(parser);
+                break;
+            case "types":
+                schemaFields.types = readList(parser);
+                break;
+            case "dateFormat":
+                schemaFields.dateFormat = readText(parser);
+                break;
+            case "syntax":
+                schemaFields.syntax = readText(parser);
+                break;
+            case "base":
+                schemaFields.base = readText(parser);
+                break;
+            default:
+                parser.skipChildren();
+                break;
+        }
+    }
+
+    /**
+     * Reads the chunks of a table. The chunks are stored separately, so their rows and their decompressed size count
+     * towards the limits of the table: each chunk is later decoded within the size it declares.
+     * 
+     * @param parser the parser, positioned on the start of the chunks
+     * @return the chunks, in table order
+     */
+    private List<InlineTableChunk> readChunks(JsonParser parser) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "The chunks of the table are not an array.");
+        }
+
+        List<InlineTableChunk> chunks = new ArrayList<>();
+        long rows = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            InlineTableChunk chunk = readChunk(parser);
+            // Rows are located in their chunk by dividing their id by the size of the chunks, which must all have the
+            // same size except the last one, and follow each other.
+            InlineTableChunk previous = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (chunk.getEntries() == null || chunk.getSize() <= 0 || chunk.getOffset() != rows
+                || chunk.getBytes() <= 0 || previous != null && (previous.getSize() != chunks.get(0).getSize()
+                    || chunk.getSize() > previous.getSize())) {
+                throw new JsonParseException(parser,
+                    "The chunk starting at row " + chunk.getOffset() + " is not valid.");
+            }
+            rows += chunk.getSize();
+            if (rows > this.maxRows) {
+                throw tooManyRows();
+            }
+            this.chunksSize += chunk.getBytes();
+            chunks.add(chunk);
+        }
+
+        return Collections.unmodifiableList(chunks);
+    }
+
+    private InlineTableChunk readChunk(JsonParser parser) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "The chunk is not an object.");
+        }
+
+        InlineTableChunk.Builder builder = new InlineTableChunk.Builder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case ENTRIES:
+                    builder.entries(readStoredHash(parser));
+                    break;
+                case "offset":
+                    builder.offset(parser.getValueAsInt(-1));
+                    break;
+                case "rows":
+                    builder.size(parser.getValueAsInt(-1));
+                    break;
+                case "bytes":
+                    builder.bytes(parser.getValueAsLong(-1));
+                    break;
+                case "columns":
+                    readChunkColumns(parser, builder);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        return builder.build();
+    }
+
+    private String readStoredHash(JsonParser parser) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.VALUE_STRING || parser.getTextLength() != STORED_HASH_LENGTH
+            || !STORED_HASH.matcher(parser.getText()).matches()) {
+            throw new JsonParseException(parser, "The chunk is not referenced by the hash of a stored payload.");
+        }
+        return parser.getText();
+    }
+
+    private void readChunkColumns(JsonParser parser, InlineTableChunk.Builder builder) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String property = parser.getCurrentName();
+            if (builder.getColumnCount() >= this.maxColumns) {
+                throw tooManyColumns();
+            }
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            Long minDate = null;
+            Long maxDate = null;
+            String texts = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                boolean number = token == JsonToken.VALUE_NUMBER_INT;
+                if ("minDate".equals(name) && number) {
+                    minDate = parser.getLongValue();
+                } else if ("maxDate".equals(name) && number) {
+                    maxDate = parser.getLongValue();
+                } else if ("texts".equals(name)) {
+                    texts = readText(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (minDate != null && maxDate != null) {
+                builder.dates(property, minDate, maxDate);
+            }
+            if (texts != null) {
+                try {
+                    builder.texts(property, InlineTableBloomFilter.fromBase64(texts));
+                } catch (IllegalArgumentException e) {
+                    throw new JsonParseException(parser, "The texts of the chunk are not valid.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads entries.
+     * 
+     * @param parser the parser, positioned on the start of the entries
+     * @param offset the position of the first entry in the table
+     * @param maxEntries the maximum number of entries to read
+     * @param tooManyEntries creates the exception thrown when there are more entries
+     * @return the entries
+     */
+    private List<Map<String, Object>> readEntries(JsonParser parser, int offset, int maxEntries,
+        Supplier<LimitExceededException> tooManyEntries) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return Collections.emptyList();
+        }
+
+        // The entries share a dictionary so that repeated values are stored once.
+        InlineTableDictionary dictionary = new InlineTableDictionary();
+        InlineTableRow.Builder builder = new InlineTableRow.Builder(dictionary);
+        List<Map<String, Object>> entries = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            InlineTableInterruptions.check();
+            if (entries.size() >= maxEntries) {
+                throw tooManyEntries.get();
+            }
+            entries.add(readEntry(parser, builder.start(offset + entries.size())));
+        }
+        dictionary.trim();
+
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Reads an entry and converts it to a LiveData entry.
+     * 
+     * @param parser the parser, positioned on the start of the entry
+     * @param builder the builder of the entry, started with the generated id of the entry, i.e. its position in the
+     *            table
+     * @return the LiveData entry
+     */
+    private Map<String, Object> readEntry(JsonParser parser, InlineTableRow.Builder builder) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return builder.build();
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            if (builder.size() >= this.maxColumns * FIELDS_PER_COLUMN) {
+                throw tooManyColumns();
+            }
+            parser.nextToken();
+            builder.put(field, readValue(parser));
+        }
+
+        return builder.build();
+    }
+
+    private Object readValue(JsonParser parser) throws IOException
+    {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT
+            || parser.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getNumberValue();
+        }
+
+        // Same as JsonNode#asText().
+        String text = readText(parser);
+        return text == null ? "null" : text;
+    }
+
+    private String readText(JsonParser parser) throws IOException
+    {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        } else if (token.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+
+        if (parser.getTextLength() > this.maxCellLength) {
+            throw new LimitExceededException("The table has a cell longer than " + this.maxCellLength + " characters.");
+        }
+        return parser.getText();
+    }
+
+    private static JsonParseException notATable(JsonParser parser)
+    {
+        return new JsonParseException(parser, "The table is neither an object nor an array.");
+    }
+
+    private LimitExceededException tooManyRows()
+    {
+        return new LimitExceededException("The table has more than " + this.maxRows + " rows.");
+    }
+
+    private static LimitExceededException tooLarge(long limit)
+    {
+        return new LimitExceededException("The table is larger than " + limit + " bytes once decompressed.");
+    }
+
+    private LimitExceededException tooManyColumns()
+    {
+        return new LimitExceededException("The table has more than " + this.maxColumns + " columns.");
+    }
+
+    private List<String> readList(JsonParser parser) throws IOException
+    {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<String> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (list.size() >= this.maxColumns) {
+                throw tooManyColumns();
+            }
+            list.add(readValue(parser).toString());
+        }
+
+        return Collections.unmodifiableList(list);
+    }
+}
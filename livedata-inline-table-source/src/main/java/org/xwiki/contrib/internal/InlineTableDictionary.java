@@ -0,0 +1,218 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deduplicating dictionary of the values of a decoded table. Each distinct value is stored once, as UTF-8 bytes in a
+ * shared arena, and referenced by an int code. Values are only converted back to strings when they are accessed, so a
+ * decoded table holds its repeated values, such as the rendered and plain text versions of a simple cell, only once.
+ * <p>
+ * A dictionary is filled by a single thread while decoding and must be {@link #trim() trimmed} once the decoding is
+ * done, after which it is read-only and can be shared between threads.
+ * 
+ * @version $Id$
+ */
+public class InlineTableDictionary
+{
+    private static final int INITIAL_ARENA_SIZE = 4096;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private byte[] arena = new byte[INITIAL_ARENA_SIZE];
+
+    private int arenaSize;
+
+    // Offset of each value in the arena, followed by the end of the last value.
+    private int[] offsets = new int[INITIAL_CAPACITY + 1];
+
+    private int size;
+
+    // Open addressing table of the codes, shifted by one so that 0 marks a free slot. Dropped once trimmed.
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    // The names of the fields are few, they are kept as strings.
+    private final List<String> names = new ArrayList<>();
+
+    private final Map<String, Integer> nameCodes = new HashMap<>();
+
+    /**
+     * Adds a value to the dictionary.
+     * 
+     * @param value the value
+     * @return the code of the value, the same for equal values
+     */
+    public int add(String value)
+    {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(bytes);
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        while (this.slots[slot] != 0) {
+            int code = this.slots[slot] - 1;
+            if (this.hashes[code] == hash && equals(code, bytes)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int code = append(bytes, hash);
+        this.slots[slot] = code + 1;
+        if (this.size * 2 > this.slots.length) {
+            rehash();
+        }
+        return code;
+    }
+
+    /**
+     * Gets a value of the dictionary.
+     * 
+     * @param code the code of the value
+     * @return the value
+     */
+    public String get(int code)
+    {
+        return new String(this.arena, this.offsets[code], this.offsets[code + 1] - this.offsets[code],
+            StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds the name of a field to the dictionary.
+     * 
+     * @param name the name of the field
+     * @return the code of the name
+     */
+    public int addName(String name)
+    {
+        return this.nameCodes.computeIfAbsent(name, n -> {
+            this.names.add(n);
+            return this.names.size() - 1;
+        });
+    }
+
+    /**
+     * Gets the code of the name of a field.
+     * 
+     * @param name the name of the field
+     * @return the code of the name, -1 when no field has this name
+     */
+    public int getNameCode(String name)
+    {
+        Integer code = this.nameCodes.get(name);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Gets the name of a field.
+     * 
+     * @param code the code of the name
+     * @return the name of the field
+     */
+    public String getName(int code)
+    {
+        return this.names.get(code);
+    }
+
+    /**
+     * @return the number of distinct values of the dictionary
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return the number of bytes used to store the values
+     */
+    public int getArenaSize()
+    {
+        return this.arenaSize;
+    }
+
+    /**
+     * Releases the memory only needed to add values. No value can be added afterwards.
+     */
+    public void trim()
+    {
+        this.arena = Arrays.copyOf(this.arena, this.arenaSize);
+        this.offsets = Arrays.copyOf(this.offsets, this.size + 1);
+        this.slots = null;
+        this.hashes = null;
+    }
+
+    private int append(byte[] bytes, int hash)
+    {
+        if (bytes.length > this.arena.length - this.arenaSize) {
+            long needed = (long) this.arenaSize + bytes.length;
+            if (needed > MAX_ARRAY_SIZE) {
+                throw new IllegalStateException("The values of the table are too large.");
+            }
+            this.arena =
+                Arrays.copyOf(this.arena, (int) Math.min(MAX_ARRAY_SIZE, Math.max(needed, 2L * this.arena.length)));
+        }
+        if (this.size == this.hashes.length) {
+            this.hashes = Arrays.copyOf(this.hashes, this.size * 2);
+            this.offsets = Arrays.copyOf(this.offsets, this.size * 2 + 1);
+        }
+
+        System.arraycopy(bytes, 0, this.arena, this.arenaSize, bytes.length);
+        this.offsets[this.size] = this.arenaSize;
+        this.arenaSize += bytes.length;
+        this.offsets[this.size + 1] = this.arenaSize;
+        this.hashes[this.size] = hash;
+        return this.size++;
+    }
+
+    private void rehash()
+    {
+        this.slots = new int[this.slots.length * 2];
+        int mask = this.slots.length - 1;
+        for (int code = 0; code < this.size; code++) {
+            int slot = this.hashes[code] & mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.slots[slot] = code + 1;
+        }
+    }
+
+    private boolean equals(int code, byte[] bytes)
+    {
+        int offset = this.offsets[code];
+        return Arrays.equals(this.arena, offset, this.offsets[code + 1], bytes, 0, bytes.length);
+    }
+
+    private static int hash(byte[] bytes)
+    {
+        int hash = Arrays.hashCode(bytes);
+        // Spread the bits since the table is indexed by the lowest ones.
+        return hash ^ (hash >>> 16);
+    }
+}
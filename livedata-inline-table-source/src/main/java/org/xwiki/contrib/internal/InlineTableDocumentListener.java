@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.cache.CacheException;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Removes the stored tables of a document once it is modified or deleted, unless another document still references
+ * them. The tables are only removed after the {@link InlineTableConfiguration#getRemovalDelay() removal delay}: the
+ * LiveData views already open on the document keep working in the meantime, and the tables that the new version still
+ * contains are referenced again when it is displayed, so saving a document without changing its tables does not remove
+ * them. The cache follows the current content of the documents instead of waiting for the stale tables to be evicted.
+ * The decoded tables, their indexes and the cached query results are dropped along with the stored tables.
+ * 
+ * @version $Id$
+ */
+@Component
+@Named(InlineTableDocumentListener.NAME)
+@Singleton
+public class InlineTableDocumentListener extends AbstractEventListener implements Disposable
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.contrib.internal.InlineTableDocumentListener";
+
+    @Inject
+    private InlineTableReferences references;
+
+    @Inject
+    private InlineTableCache inlineTableCache;
+
+    @Inject
+    private InlineTableConfiguration configuration;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private Logger logger;
+
+    private final ScheduledExecutorService removals = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LiveData inline table removal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor.
+     */
+    public InlineTableDocumentListener()
+    {
+        super(NAME, Arrays.asList(new DocumentUpdatedEvent(), new DocumentDeletedEvent()));
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        // Documents are referenced the same way as when the macro stores their tables.
+        String document = this.serializer.serialize(((XWikiDocument) source).getDocumentReference());
+        Set<String> unreferenced = this.references.removeDocument(document);
+        if (unreferenced.isEmpty()) {
+            return;
+        }
+
+        long delay = this.configuration.getRemovalDelay();
+        logger.debug("Removing in " + delay + "s the tables " + unreferenced
+            + " which are not referenced anymore after a change of " + document + ".");
+        try {
+            this.removals.schedule(() -> remove(unreferenced, document), delay, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // The wiki is stopping, the tables are dropped along with the cache.
+            logger.debug("Failed to schedule the removal of the tables of " + document + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void dispose()
+    {
+        this.removals.shutdownNow();
+    }
+
+    private void remove(Set<String> unreferenced, String document)
+    {
+        for (String hash : unreferenced) {
+            // The table may have been stored again by a rendering of the new version in the meantime.
+            if (!this.references.getDocuments(hash).isEmpty()) {
+                continue;
+            }
+            try {
+                logger.debug("Removing table " + hash + " which is not referenced anymore after a change of "
+                    + document + ".");
+                this.inlineTableCache.remove(hash);
+            } catch (CacheException e) {
+                logger.warn("Failed to remove the inline table " + hash + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataException;
+
+/**
+ * Encodes the tables extracted by the macro into the entries parameter passed to LiveData.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableEncoder
+{
+    /**
+     * Encodes a table and stores it in the cache when it is too long to be passed inline. Tables with more rows than
+     * the configured chunk size are split into chunks stored separately, and referenced by a manifest describing the
+     * values of each chunk. The entries are consumed as the table is encoded, only the entries of one chunk are held
+     * at once.
+     * 
+     * @param schema the schema of the table
+     * @param entries the entries of the table
+     * @param document the reference of the document containing the table, {@code null} when unknown
+     * @return the entries parameter to pass to LiveData, either the hash of the stored table or the table itself
+     * @throws LiveDataException when the table cannot be encoded or stored
+     */
+    String encode(InlineTableSchema schema, Iterator<Map<String, Object>> entries, String document)
+        throws LiveDataException;
+}
@@ -0,0 +1,45 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataException;
+
+/**
+ * Renders the entries of inline tables whose cells were stored as source rather than as HTML.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableEntryRenderer
+{
+    /**
+     * Gets an entry of a table, rendering the cells stored as source. Rendered entries are kept on the table, so that
+     * each entry is rendered at most once.
+     * 
+     * @param table the decoded table
+     * @param id the id of the entry
+     * @return the entry, that can be modified freely
+     * @throws LiveDataException when a cell cannot be rendered or the chunk of the entry cannot be loaded
+     */
+    Map<String, Object> getEntry(InlineTable table, int id) throws LiveDataException;
+}
@@ -0,0 +1,63 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+/**
+ * Formats in which inline tables can be exported.
+ * 
+ * @version $Id$
+ */
+public enum InlineTableExportFormat
+{
+    /**
+     * Comma-separated values, with a header row holding the column names.
+     */
+    CSV("text/csv", "csv"),
+    /**
+     * Newline-delimited JSON, one object per row using the column names as keys.
+     */
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String mimeType;
+
+    private final String extension;
+
+    InlineTableExportFormat(String mimeType, String extension)
+    {
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    /**
+     * @return the MIME type of the exported content
+     */
+    public String getMimeType()
+    {
+        return this.mimeType;
+    }
+
+    /**
+     * @return the extension of exported files
+     */
+    public String getExtension()
+    {
+        return this.extension;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+
+/**
+ * Exports the rows of inline tables matching a LiveData query.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableExporter
+{
+    /**
+     * Streams the plain text values of the rows matching the filters of a query, in the order of its sort entries.
+     * Pagination is ignored. The output is written and flushed in chunks, without building the exported rows in
+     * memory. Queries matching more than the {@link InlineTableConfiguration#getMaxExportRows() export limit} are
+     * refused before anything is written.
+     * 
+     * @param entries the entries parameter of the LiveData source, either the hash of a cached table or the encoded
+     *            table itself
+     * @param query the query, whose properties select the exported columns, all of them when empty
+     * @param format the export format
+     * @param out the stream to write to, which is not closed
+     * @throws LiveDataException when the table cannot be decoded, the query cannot be evaluated, it matches too many
+     *             rows or the rows cannot be read
+     * @throws IOException when writing fails
+     */
+    void export(String entries, LiveDataQuery query, InlineTableExportFormat format, OutputStream out)
+        throws LiveDataException, IOException;
+}
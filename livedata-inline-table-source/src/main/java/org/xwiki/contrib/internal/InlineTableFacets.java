@@ -0,0 +1,51 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+
+/**
+ * Computes the distinct values of the columns of inline tables, so that filters can offer them as choices.
+ * <p>
+ * Facets are only served through the {@link InlineTableScriptService}, the property descriptors keep free text
+ * filters. The options of a LiveData list filter are fixed when the page is rendered, while facets depend on the
+ * other active filters, and computing them at render time would decode the table of every rendered macro.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableFacets
+{
+    /**
+     * Gets the distinct plain text values of a column with their number of occurrences, among the rows matching the
+     * filters on the other columns. The filter on the faceted column itself is ignored so that all its choices remain
+     * available.
+     * 
+     * @param table the decoded table
+     * @param property the faceted property, i.e. the column index
+     * @param filters the active filters
+     * @return the distinct values and their counts, by decreasing count then in the order of their first matching row
+     */
+    Map<String, Integer> getFacets(InlineTable table, String property, List<Filter> filters);
+}
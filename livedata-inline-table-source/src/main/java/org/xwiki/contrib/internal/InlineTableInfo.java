@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+/**
+ * Size of a table stored in the {@link InlineTableCache}.
+ * 
+ * @version $Id$
+ */
+public class InlineTableInfo
+{
+    private final String hash;
+
+    private final int payloadSize;
+
+    private final long decodedSize;
+
+    private final int rows;
+
+    /**
+     * Constructor.
+     * 
+     * @param hash the hash of the table
+     * @param payloadSize the length of the stored Base64
+     * @param decodedSize the size of the JSON of the table once decompressed, 0 when it has not been decoded yet
+     * @param rows the number of rows, 0 when the table has not been decoded yet
+     */
+    public InlineTableInfo(String hash, int payloadSize, long decodedSize, int rows)
+    {
+        this.hash = hash;
+        this.payloadSize = payloadSize;
+        this.decodedSize = decodedSize;
+        this.rows = rows;
+    }
+
+    /**
+     * @return the hash of the table
+     */
+    public String getHash()
+    {
+        return this.hash;
+    }
+
+    /**
+     * @return the length of the stored Base64
+     */
+    public int getPayloadSize()
+    {
+        return this.payloadSize;
+    }
+
+    /**
+     * @return the size of the JSON of the table once decompressed, in bytes, 0 when it has not been decoded yet
+     */
+    public long getDecodedSize()
+    {
+        return this.decodedSize;
+    }
+
+    /**
+     * @return the number of rows, 0 when the table has not been decoded yet
+     */
+    public int getRows()
+    {
+        return this.rows;
+    }
+}
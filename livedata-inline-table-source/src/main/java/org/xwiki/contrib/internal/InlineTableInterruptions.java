@@ -0,0 +1,59 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of the loops going through inline tables. Queries running longer than their time budget
+ * are interrupted by the {@link InlineTableQueryExecutor} and stop at the next check.
+ * 
+ * @version $Id$
+ */
+public final class InlineTableInterruptions
+{
+    private InlineTableInterruptions()
+    {
+    }
+
+    /**
+     * Stops the current computation when the current thread has been interrupted.
+     * 
+     * @throws CancellationException when the current thread has been interrupted
+     */
+    public static void check()
+    {
+        check(Thread.currentThread());
+    }
+
+    /**
+     * Stops the current computation when the thread it is done for has been interrupted. Used by the parts of a
+     * computation running in other threads than the one of the query.
+     * 
+     * @param owner the thread the computation is done for
+     * @throws CancellationException when the thread has been interrupted
+     */
+    public static void check(Thread owner)
+    {
+        if (owner.isInterrupted()) {
+            throw new CancellationException("The inline table computation was interrupted.");
+        }
+    }
+}
@@ -47,7 +47,7 @@ public class InlineTableLiveDataConfigurationProvider implements Provider<LiveDa
         LiveDataConfiguration input = new LiveDataConfiguration();
         LiveDataMeta meta = new LiveDataMeta();
         LiveDataPaginationConfiguration pagination = new LiveDataPaginationConfiguration();
-        // We do not support pagination and display the whole table directly.
+        // Entries are paginated by the entry store, but the page size is the one chosen by the macro.
         pagination.setShowPageSizeDropdown(false);
         meta.setPagination(pagination);
         // LiveData expects one of the fields to be a unique id. We introduce one ourselves that is not displayed.
@@ -56,7 +56,7 @@ public class InlineTableLiveDataConfigurationProvider implements Provider<LiveDa
         input.setMeta(meta);
         meta.setEntryDescriptor(entryDescriptor);
 
-        // We do not set any property descriptor. They are to be defined using the advanced LiveData configuration JSON.
+        // Property descriptors depend on the table, they are added by InlineTableLiveDataConfigurationResolver.
         return input;
     }
 }
@@ -28,6 +28,8 @@ import org.xwiki.component.annotation.Component;
 import org.xwiki.livedata.LiveDataConfiguration;
 import org.xwiki.livedata.LiveDataConfigurationResolver;
 import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataMeta;
+import org.xwiki.livedata.LiveDataPropertyDescriptorStore;
 import org.xwiki.livedata.internal.JSONMerge;
 
 /**
@@ -45,9 +47,32 @@ public class InlineTableLiveDataConfigurationResolver implements LiveDataConfigu
     @Named(InlineTableLiveDataSource.ID)
     private Provider<LiveDataConfiguration> notificationFiltersLiveDataConfigurationProvider;
 
+    @Inject
+    @Named(InlineTableLiveDataSource.ID)
+    private LiveDataPropertyDescriptorStore propertyDescriptorStore;
+
+    @Inject
+    private InlineTableStore tableStore;
+
     @Override
     public LiveDataConfiguration resolve(LiveDataConfiguration input) throws LiveDataException
     {
-        return new JSONMerge().merge(input, this.notificationFiltersLiveDataConfigurationProvider.get());
+        LiveDataConfiguration config =
+            new JSONMerge().merge(input, this.notificationFiltersLiveDataConfigurationProvider.get());
+
+        // The inline table macro passes the property descriptors along with the reference to the table. A liveData
+        // macro written with the reference only gets them from the schema of the stored table, which is read without
+        // decoding its rows.
+        LiveDataMeta meta = config.getMeta();
+        if (meta != null && (meta.getPropertyDescriptors() == null || meta.getPropertyDescriptors().isEmpty())
+            && config.getQuery() != null && config.getQuery().getSource() != null) {
+            Object entries = config.getQuery().getSource().getParameters().get("entries");
+            if (entries != null) {
+                meta.setPropertyDescriptors(((InlineTableLiveDataPropertyDescriptorStore) this.propertyDescriptorStore)
+                    .get(this.tableStore.getSchema(entries.toString())));
+            }
+        }
+
+        return config;
     }
 }
@@ -19,64 +19,70 @@
  */
 package org.xwiki.contrib.internal;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.time.format.DateTimeFormatter;
-import java.util.Base64;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.zip.GZIPInputStream;
+import java.util.StringJoiner;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.inject.Singleton;
 
 import org.slf4j.Logger;
-import org.xwiki.cache.CacheException;
 import org.xwiki.component.annotation.Component;
-import org.xwiki.component.manager.ComponentLookupException;
-import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.livedata.LiveData;
 import org.xwiki.livedata.LiveDataEntryStore;
 import org.xwiki.livedata.LiveDataException;
 import org.xwiki.livedata.LiveDataQuery;
-import org.xwiki.livedata.LiveDataQuery.Constraint;
-import org.xwiki.livedata.LiveDataQuery.Filter;
-import org.xwiki.livedata.LiveDataQuery.SortEntry;
-import org.xwiki.livedata.LiveDataSource;
-import org.xwiki.text.StringUtils;
-
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.xwiki.livedata.WithParameters;
 
 /**
  * Dedicated {@link LiveDataEntryStore} for the {@link InlineTableLiveDataSource}. This component reads the JSON sent by
- * the LiveData user and sends its contents back through LiveData.
+ * the LiveData user and sends its contents back through LiveData. A new store is created for each LiveData source,
+ * which sets the parameters of its request on the store.
  * 
  * @version $Id$
  * @since 0.0.1
  */
 @Component
-@Singleton
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 @Named(InlineTableLiveDataSource.ID)
-public class InlineTableLiveDataEntryStore implements LiveDataEntryStore
+public class InlineTableLiveDataEntryStore extends WithParameters implements LiveDataEntryStore
 {
 
-    private static final String TEXT_ID = "text.";
+    /**
+     * The id property of the entries, declared by {@link InlineTableLiveDataConfigurationProvider}.
+     */
+    static final String INLINE_ID = "_inline_id";
 
-    private static final String DATE_ID = "date.";
+    /**
+     * The pseudo property used to search all the columns at once, declared by
+     * {@link InlineTableLiveDataPropertyDescriptorStore}.
+     */
+    static final String INLINE_SEARCH = "_inline_search";
+
+    /**
+     * The source parameter containing the encoded table or its hash.
+     */
+    static final String ENTRIES = "entries";
+
+    private static final String SEPARATOR = ", ";
+
+    private static final char HELPER_SEPARATOR = '.';
 
     @Inject
-    private ComponentManager componentManager;
+    private InlineTableStore tableStore;
 
     @Inject
-    private InlineTableCache inlineTableCache;
+    private InlineTableQueryRunner queryRunner;
+
+    @Inject
+    private InlineTableEntryRenderer entryRenderer;
+
+    @Inject
+    private InlineTableQueryExecutor queryExecutor;
 
     @Inject
     private Logger logger;
@@ -84,319 +90,149 @@ public class InlineTableLiveDataEntryStore implements LiveDataEntryStore
     @Override
     public Optional<Map<String, Object>> get(Object entryId) throws LiveDataException
     {
-        return Optional.empty();
+        int id;
+        try {
+            id = entryId instanceof Number ? ((Number) entryId).intValue() : Integer.parseInt(String.valueOf(entryId));
+        } catch (NumberFormatException e) {
+            logger.debug("Invalid entry id: " + entryId);
+            return Optional.empty();
+        }
+
+        String entriesParameter = getEntriesParameter(null);
+        InlineTable table = this.queryExecutor.execute(() -> this.tableStore.get(entriesParameter));
+        if (id < 0 || id >= table.size()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(project(this.entryRenderer.getEntry(table, id), null));
     }
 
     @Override
     public LiveData get(LiveDataQuery query) throws LiveDataException
     {
+        InlineTableQueryEvent event = new InlineTableQueryEvent();
+        event.begin();
         LiveData liveData = new LiveData();
         List<Map<String, Object>> liveDataEntries = liveData.getEntries();
 
-        LiveDataSource liveDataSource;
-        try {
-            liveDataSource = componentManager.getInstance(LiveDataSource.class, InlineTableLiveDataSource.ID);
-        } catch (ComponentLookupException e) {
-            throw new LiveDataException("Could not find InlineTableLiveDataSource component.");
+        // Only the entries of the requested page are rendered, in the request thread since rendering needs its
+        // execution context.
+        String entriesParameter = getEntriesParameter(query);
+        boolean recorded = event.isEnabled();
+        if (recorded) {
+            event.setCacheTier(this.tableStore.isDecoded(entriesParameter) ? InlineTableQueryEvent.TABLE_TIER
+                : InlineTableQueryEvent.PAYLOAD_TIER);
         }
-
-        // Decode the received entries.
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode entriesNode = null;
-        String entriesParameter =
-            ((InlineTableLiveDataSource) liveDataSource).getParameters().get("entries").toString();
-        logger.debug("Received entries parameter: " + entriesParameter);
-        String entriesB64 = getEntriesB64(entriesParameter);
-        logger.debug("Attemtping to decode and decompress the entries.");
-        try {
-            String decodedJson = decompressString(Base64.getUrlDecoder().decode(entriesB64));
-            logger.debug("Decoded entries json: " + decodedJson);
-            entriesNode = objectMapper.readTree(decodedJson);
-        } catch (IOException e) {
-            if (entriesParameter.equals(entriesB64)) {
-                throw new LiveDataException(
-                    "Failed to retrieve entries. Received entries parameter is not in cache or is not valid.", e);
-            }
-            throw new LiveDataException("Failed to retrieve entries. The data was found in cache but is not valid.", e);
+        InlineTableQueryResult result = this.queryRunner.run(entriesParameter, query, recorded ? event : null);
+        InlineTable table = result.getTable();
+        int[] rowIds = result.getRowIds();
+
+        // Only build the entries of the requested page.
+        int offset = query.getOffset() == null ? 0 : (int) Math.min(Math.max(query.getOffset(), 0), rowIds.length);
+        int end = rowIds.length;
+        if (query.getLimit() != null && query.getLimit() >= 0) {
+            end = (int) Math.min((long) offset + query.getLimit(), rowIds.length);
         }
-
-        // Organize the filter so we can access them by field.
-        Map<String, Filter> filters = new HashMap<>();
-        for (Filter filter : query.getFilters()) {
-            filters.put(filter.getProperty(), filter);
+        logger.debug("Returning rows " + offset + " to " + end + " out of " + rowIds.length + ".");
+        for (int j = offset; j < end; j++) {
+            liveDataEntries.add(project(this.entryRenderer.getEntry(table, rowIds[j]), query.getProperties()));
         }
 
-        // Parse the decoded JSON.
-        logger.debug("Parsing entries JSON.");
-        int i = 0;
-        for (JsonNode entry : entriesNode) {
-            Map<String, Object> ldEntry = new HashMap<>();
-
-            logger.debug("[" + i + "] Parsing entry.");
-            // Add our generated ID. Filtering or sorting should not change this.
-            ldEntry.put("_inline_id", i);
-
-            // Keep track of whether we should reject this entry due to filtering.
-            boolean filtered = false;
-
-            // Iterate through the fields of this entry.
-            for (Iterator<String> it = entry.fieldNames(); it.hasNext();) {
-                String field = it.next();
-
-                String textValue = entry.get(field).asText();
-                // Check the filters for this field.
-
-                logger.debug("[" + i + "] Processing field " + field + " of value: " + textValue);
-
-                if (field.contains(DATE_ID)) {
-                    logger.debug(
-                        "[" + i + " - " + field + "] Date marker found, trying to parse value as unix timestamp.");
-                    Filter filter = filters.get(StringUtils.substringAfter(field, DATE_ID));
-                    Long numericValue = null;
-
-                    try {
-                        numericValue = Long.parseLong(textValue);
-                        logger.debug("[" + i + " - " + field + "] Parsed timestamp: " + numericValue);
-                    } catch (NumberFormatException e) {
-                        logger.debug("[" + i + " - " + field + "] Failed to parse timestamp.");
-                    }
-
-                    if (filter != null && numericValue != null && field.startsWith(DATE_ID)) {
-                        logger.debug("[" + i + " - " + field + "] Checking for filtering.");
-                        for (Constraint constraint : filter.getConstraints()) {
-                            switch (constraint.getOperator()) {
-                                // We consider "between" to be the default operator.
-                                case "between":
-                                    logger.debug(
-                                        "[" + i + " - " + field + "] Found a 'between' filter constraint with value: "
-                                            + constraint.getValue().toString());
-                                    logger
-                                        .debug("[" + i + " - " + field + "] Splitting value with '/' as a delimiter.");
-                                    String[] dates = StringUtils.split(constraint.getValue().toString(), "/");
-
-                                    logger.debug("[" + i + " - " + field + "] Found " + dates.length + " parts.");
-                                    if (dates.length == 2) {
-                                        String beginDateString = dates[0];
-                                        String endDateString = dates[1];
-
-                                        logger.debug("[" + i + " - " + field + "] Parsing " + beginDateString + " and "
-                                            + endDateString + " as ISO8601 dates.");
-
-                                        Long beginDate =
-                                            Instant.from(DateTimeFormatter.ISO_INSTANT.parse(beginDateString))
-                                                .getEpochSecond();
-                                        Long endDate = Instant.from(DateTimeFormatter.ISO_INSTANT.parse(endDateString))
-                                            .getEpochSecond();
-
-                                        logger
-                                            .debug("[" + i + " - " + field + "] Parsed date range as unix timestamps: "
-                                                + beginDate + " - " + endDate + ".");
-
-                                        if (beginDate != null && endDate != null) {
-
-                                            logger.debug("[" + i + " - " + field
-                                                + "] Checking if field value is contained in range.");
-                                            if (beginDate > numericValue || numericValue > endDate) {
-                                                logger.debug("[" + i + " - " + field
-                                                    + "] Field value is not contained in range, filtering this entry.");
-                                                filtered = true;
-                                            }
-                                        }
-                                    }
-                                    break;
-                                default:
-                                    break;
-                            }
-                        }
-                    }
-                } else if (field.contains(TEXT_ID)) {
-                    logger.debug("[" + i + " - " + field + "] Text marker found, checking for text filters.");
-                    Filter filter = filters.get(StringUtils.substringAfter(field, TEXT_ID));
-                    if (filter != null && field.startsWith(TEXT_ID)) {
-                        for (Constraint constraint : filter.getConstraints()) {
-                            switch (constraint.getOperator()) {
-                                case "startsWith":
-                                    logger.debug("[" + i + " - " + field
-                                        + "] Found a 'startsWith' filter constraint with value: "
-                                        + constraint.getValue().toString());
-                                    if (!StringUtils.startsWithIgnoreCase(textValue,
-                                        constraint.getValue().toString())) {
-                                        logger.debug("[" + i + " - " + field
-                                            + "] Entry's field value does not start with given filter value. Filtering entry.");
-                                        filtered = true;
-                                    }
-                                    break;
-                                case "equals":
-                                    logger.debug(
-                                        "[" + i + " - " + field + "] Found a 'equals' filter constraint with value: "
-                                            + constraint.getValue().toString());
-                                    if (!textValue.equals(constraint.getValue().toString())) {
-                                        logger.debug("[" + i + " - " + field
-                                            + "] Entry's field is not the same as the given filter value. Filtering entry.");
-                                        filtered = true;
-                                    }
-                                    break;
-                                case "contains":
-                                    logger.debug(
-                                        "[" + i + " - " + field + "] Found a 'contains' filter constraint with value: "
-                                            + constraint.getValue().toString());
-                                    if (!StringUtils.containsIgnoreCase(textValue, constraint.getValue().toString())) {
-                                        logger.debug("[" + i + " - " + field
-                                            + "] Entry's field value does contain the given filter value. Filtering entry.");
-                                        filtered = true;
-                                    }
-                                    break;
-                                default:
-                                    break;
-                            }
-                        }
-                    }
-                }
-
-                Number numericValue = entry.get(field).numberValue();
-
-                Object value = textValue;
-                if (numericValue != null) {
-                    logger.debug("[" + i + " - " + field + "] Numeric value found, returning as a number.");
-                    value = numericValue;
-                }
+        liveData.setCount(rowIds.length);
+        event.end();
+        if (event.shouldCommit()) {
+            event.setHash(table.getHash());
+            event.setFilters(describeFilters(query));
+            event.setSort(describeSort(query));
+            event.setRowsIn(table.size());
+            event.setRowsOut(rowIds.length);
+            event.commit();
+        }
+        return liveData;
+    }
 
-                // Add the field to the entry.
-                ldEntry.put(field, value);
-            }
+    /**
+     * Keeps the fields of an entry that are sent to LiveData. The helper fields used to filter and sort, such as the
+     * text and the date of the cells, stay on the server since the displayers only use the rendered cells.
+     * 
+     * @param entry the entry, modified in place when no property is requested
+     * @param properties the requested properties, {@code null} or empty for all the columns
+     * @return the fields to send
+     */
+    private Map<String, Object> project(Map<String, Object> entry, List<String> properties)
+    {
+        if (properties == null || properties.isEmpty()) {
+            // Columns are named after their index, while helper fields are prefixed with their kind.
+            entry.keySet().removeIf(field -> field.indexOf(HELPER_SEPARATOR) >= 0);
+            return entry;
+        }
 
-            // Add the entry to the response.
-            if (!filtered) {
-                liveDataEntries.add(ldEntry);
+        Map<String, Object> projected = new HashMap<>();
+        projected.put(INLINE_ID, entry.get(INLINE_ID));
+        for (String property : properties) {
+            Object value = entry.get(property);
+            if (value != null) {
+                projected.put(property, value);
             }
-
-            i += 1;
         }
+        return projected;
+    }
 
-        // Sorting support.
-        logger.debug("Sorting entries.");
-        Collections.sort(liveData.getEntries(), (Map<String, Object> arg0, Map<String, Object> arg1) -> {
-            logger.debug("Comparing entries " + arg0.get("_inline_id") + " and " + arg1.get("_inline_id") + ".");
-            for (SortEntry sort : query.getSort()) {
-                logger.debug("Comparing along field: " + sort.getProperty());
-
-                if (!(arg0.containsKey(sort.getProperty()) && arg1.containsKey(sort.getProperty()))) {
-
-                    int c = 0;
-                    if (!arg0.containsKey(sort.getProperty()) && !arg1.containsKey(sort.getProperty())) {
-                        logger.debug("Field absent on both objects, skipping.");
-                        continue;
-                    }
-
-                    if (arg0.containsKey(sort.getProperty())) {
-                        logger.debug("Field is present on first object but absent on second.");
-                        c = 1;
-                        logger.debug("Comparison result: " + c);
-                    }
-
-                    if (arg1.containsKey(sort.getProperty())) {
-                        logger.debug("Field is present on second object but absent on first.");
-                        c = -1;
-                        logger.debug("Comparison result: " + c);
-                    }
-
-                    if (sort.isDescending()) {
-                        c = -c;
-                    }
-
-                    return c;
-                }
-
-                int c = 0;
-
-                if (arg0.containsKey(DATE_ID + sort.getProperty()) && arg1.containsKey(DATE_ID + sort.getProperty())) {
-                    logger.debug("Field is a date, comparing numeric values of date field.");
-                    Object o0 = arg0.get(DATE_ID + sort.getProperty());
-                    Object o1 = arg1.get(DATE_ID + sort.getProperty());
-
-                    Long t0;
-                    Long t1;
-
-                    try {
-                        t0 = Long.parseLong(o0.toString());
-                        t1 = Long.parseLong(o1.toString());
-                    } catch (NumberFormatException e) {
-                        continue;
-                    }
-
-                    c = t0.compareTo(t1);
-                } else {
-                    logger.debug("Field is not a date, comparing text values.");
-                    Object o0 = arg0.get(TEXT_ID + sort.getProperty());
-                    Object o1 = arg1.get(TEXT_ID + sort.getProperty());
-
-                    c = o0.toString().compareTo(o1.toString());
-                }
-
-                if (sort.isDescending()) {
-                    c = -c;
-                }
-
-                if (c != 0) {
-                    logger.debug("Comparison result: " + c);
-                    return c;
-                }
-
-                logger.debug("Objects are equivalent along this field.");
+    /**
+     * Describes the filters of a query for the flight recorder.
+     * 
+     * @param query the query
+     * @return the constraints of the filters, separated by commas
+     */
+    private String describeFilters(LiveDataQuery query)
+    {
+        StringJoiner filters = new StringJoiner(SEPARATOR);
+        for (LiveDataQuery.Filter filter : query.getFilters()) {
+            for (LiveDataQuery.Constraint constraint : filter.getConstraints()) {
+                filters.add(filter.getProperty() + ' ' + constraint.getOperator() + ' ' + constraint.getValue());
             }
-            logger.debug("Failed to compare objects. Comparison result: 0");
-            return 0;
-        });
-
-        liveData.setCount(liveDataEntries.size());
-        return liveData;
+        }
+        return filters.toString();
     }
 
     /**
-     * Compress a string using GZIP.
+     * Describes the sort of a query for the flight recorder.
      * 
-     * @param str the string to compress
-     * @return the compressed string as bytes.
-     * @throws LiveDataException
+     * @param query the query
+     * @return the sorted properties and their direction, separated by commas
      */
-    private static String decompressString(byte[] bytes) throws LiveDataException
+    private String describeSort(LiveDataQuery query)
     {
-        try {
-            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-            GZIPInputStream gzip = new GZIPInputStream(in);
-            byte[] out = gzip.readAllBytes();
-            gzip.close();
-            return new String(out, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            throw new LiveDataException("Failed to decompress the entries parameter.", e);
+        StringJoiner sort = new StringJoiner(SEPARATOR);
+        for (LiveDataQuery.SortEntry entry : query.getSort()) {
+            sort.add(entry.getProperty() + (entry.isDescending() ? " desc" : " asc"));
         }
+        return sort.toString();
     }
 
     /**
-     * Find the cached entries and get its base64 representation.
+     * Gets the entries parameter received by the LiveData source.
      * 
-     * @param entries the received entries query parameter
-     * @return the entries base64 representation
+     * @param query the query, {@code null} when the entries are not queried
+     * @return the entries parameter
+     * @throws LiveDataException when the LiveData source has no entries parameter
      */
-    private String getEntriesB64(String entries) throws LiveDataException
+    private String getEntriesParameter(LiveDataQuery query) throws LiveDataException
     {
-        String result;
-
-        logger.debug("Trying to retrieve entry from cache.");
-        try {
-            result = this.inlineTableCache.getCache().get(entries);
-        } catch (CacheException e) {
-            throw new LiveDataException("Failed to retrieve cache.", e);
+        // The query carries the parameters of its source, the ones set on the store are used for single entries.
+        Object entries = null;
+        if (query != null && query.getSource() != null) {
+            entries = query.getSource().getParameters().get(ENTRIES);
         }
-
-        if (result == null) {
-            logger.debug("Entries could not be found in cache. Assuming " + entries
-                + " is not a hash but the entries Base64 itself.");
-            return entries;
+        if (entries == null) {
+            entries = getParameters().get(ENTRIES);
+        }
+        if (entries == null) {
+            throw new LiveDataException("The LiveData source has no entries parameter.");
         }
 
-        logger.debug("Found entries Base64 in cache: " + result);
-        return result;
+        String entriesParameter = entries.toString();
+        logger.debug("Received entries parameter: " + entriesParameter);
+        return entriesParameter;
     }
-
 }
@@ -0,0 +1,136 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataPropertyDescriptor;
+import org.xwiki.livedata.LiveDataPropertyDescriptor.DisplayerDescriptor;
+import org.xwiki.livedata.LiveDataPropertyDescriptor.FilterDescriptor;
+import org.xwiki.livedata.LiveDataPropertyDescriptorStore;
+import org.xwiki.livedata.WithParameters;
+
+/**
+ * Dedicated {@link LiveDataPropertyDescriptorStore} for the {@link InlineTableLiveDataSource}. The property descriptors
+ * are generated from the fields stored along with the table entries, for the LiveData sources that only reference a
+ * stored table. A new store is created for each LiveData source, which sets the parameters of its request on the
+ * store.
+ * 
+ * @version $Id$
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(InlineTableLiveDataSource.ID)
+public class InlineTableLiveDataPropertyDescriptorStore extends WithParameters
+    implements LiveDataPropertyDescriptorStore
+{
+    private static final String DATE = "date";
+
+    private static final String STRING = "String";
+
+    private static final String HTML = "html";
+
+    private static final String FIELD = "Field ";
+
+    @Inject
+    private InlineTableStore tableStore;
+
+    @Inject
+    private Logger logger;
+
+    @Override
+    public Collection<LiveDataPropertyDescriptor> get() throws LiveDataException
+    {
+        Object entries = getParameters().get(InlineTableLiveDataEntryStore.ENTRIES);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+
+        return get(this.tableStore.getSchema(entries.toString()));
+    }
+
+    /**
+     * Generate the list of property descriptors for the fields of a table.
+     * 
+     * @param schema the schema of the table, {@code null} when the table was stored without it
+     * @return the list of property descriptors of the table, empty when the table was stored without its schema
+     */
+    public List<LiveDataPropertyDescriptor> get(InlineTableSchema schema)
+    {
+        List<LiveDataPropertyDescriptor> result = new ArrayList<>();
+        if (schema == null || schema.getFields() == null || schema.getFieldsTypes() == null) {
+            return result;
+        }
+        List<String> fields = schema.getFields();
+        List<String> fieldsTypes = schema.getFieldsTypes();
+
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            LiveDataPropertyDescriptor descriptor = new LiveDataPropertyDescriptor();
+
+            logger.debug("Setting property descriptor for field " + i + ": " + field);
+
+            descriptor.setId("" + i);
+            descriptor.setName(field);
+            descriptor.setSortable(true);
+            descriptor.setFilterable(true);
+
+            if (!fieldsTypes.get(i).equals(STRING)) {
+                logger.debug(
+                    FIELD + field + " has a special field type, using associated displayer: " + fieldsTypes.get(i));
+                descriptor.setDisplayer(new DisplayerDescriptor(fieldsTypes.get(i)));
+
+                if (fieldsTypes.get(i).equals(DATE)) {
+                    logger.debug(
+                        FIELD + field + " is of type date, using html displayer and custom filter specification.");
+                    descriptor.setDisplayer(new DisplayerDescriptor(HTML));
+                    FilterDescriptor filter = new FilterDescriptor(DATE);
+                    filter.setParameter("dateFormat", schema.getDateFormat());
+                    descriptor.setFilter(filter);
+                }
+            }
+            result.add(descriptor);
+        }
+
+        // Hidden property used to search all the columns at once.
+        LiveDataPropertyDescriptor search = new LiveDataPropertyDescriptor();
+        search.setId(InlineTableLiveDataEntryStore.INLINE_SEARCH);
+        search.setName("Search");
+        search.setVisible(false);
+        search.setSortable(false);
+        search.setFilterable(true);
+        FilterDescriptor searchFilter = new FilterDescriptor("text");
+        searchFilter.setDefaultOperator("contains");
+        search.setFilter(searchFilter);
+        result.add(search);
+
+        return result;
+    }
+}
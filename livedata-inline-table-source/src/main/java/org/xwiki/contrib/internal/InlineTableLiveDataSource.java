@@ -21,22 +21,24 @@ package org.xwiki.contrib.internal;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.livedata.LiveDataEntryStore;
 import org.xwiki.livedata.LiveDataPropertyDescriptorStore;
 import org.xwiki.livedata.LiveDataSource;
 import org.xwiki.livedata.WithParameters;
 
 /**
- * LiveData source for the Inline Table for LiveData macro.
+ * LiveData source for the Inline Table for LiveData macro. A new source is created for each LiveData request, and it
+ * passes its parameters, i.e. the table of the request, to its stores.
  * 
  * @version $Id$
  * @since 0.0.1
  */
 @Component
-@Singleton
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 @Named(InlineTableLiveDataSource.ID)
 public class InlineTableLiveDataSource extends WithParameters implements LiveDataSource
 {
@@ -50,17 +52,28 @@ public class InlineTableLiveDataSource extends WithParameters implements LiveDat
     @Named(ID)
     private LiveDataEntryStore liveDataEntryStore;
 
+    @Inject
+    @Named(ID)
+    private LiveDataPropertyDescriptorStore propertyDescriptorStore;
+
     @Override
     public LiveDataEntryStore getEntries()
     {
-        return liveDataEntryStore;
+        setParameters((WithParameters) this.liveDataEntryStore);
+        return this.liveDataEntryStore;
     }
 
     @Override
     public LiveDataPropertyDescriptorStore getProperties()
     {
-        // We do not set any property descriptor. They are to be defined using the advanced LiveData configuration JSON.
-        return null;
+        setParameters((WithParameters) this.propertyDescriptorStore);
+        return this.propertyDescriptorStore;
+    }
+
+    private void setParameters(WithParameters store)
+    {
+        store.getParameters().clear();
+        store.getParameters().putAll(getParameters());
     }
 
 }
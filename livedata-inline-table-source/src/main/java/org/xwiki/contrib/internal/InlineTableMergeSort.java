@@ -0,0 +1,172 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Stable merge sort of row ids, either in the current thread or split between the threads of a fork-join pool.
+ * 
+ * @version $Id$
+ */
+public final class InlineTableMergeSort
+{
+    /**
+     * Compares two rows.
+     */
+    @FunctionalInterface
+    public interface RowComparator
+    {
+        /**
+         * Compares two rows.
+         * 
+         * @param row0 the first row
+         * @param row1 the second row
+         * @return a negative integer, zero, or a positive integer as the first row is before, equivalent to, or after
+         *         the second row
+         */
+        int compare(int row0, int row1);
+    }
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Sorts a range of rows and merges it, splitting it between the threads of the pool while it is large enough.
+     */
+    private static final class SortTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient int[] rows;
+
+        private final transient int[] buffer;
+
+        private final int from;
+
+        private final int to;
+
+        private final transient RowComparator comparator;
+
+        private final int grain;
+
+        private final transient Thread owner;
+
+        SortTask(int[] rows, int[] buffer, int from, int to, RowComparator comparator, int grain, Thread owner)
+        {
+            this.rows = rows;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+            this.grain = grain;
+            this.owner = owner;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (this.to - this.from <= this.grain) {
+                mergeSort(this.rows, this.buffer, this.from, this.to, this.comparator, this.owner);
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(new SortTask(this.rows, this.buffer, this.from, middle, this.comparator, this.grain, this.owner),
+                new SortTask(this.rows, this.buffer, middle, this.to, this.comparator, this.grain, this.owner));
+            merge(this.rows, this.buffer, this.from, middle, this.to, this.comparator, this.owner);
+        }
+    }
+
+    private InlineTableMergeSort()
+    {
+    }
+
+    /**
+     * Sorts rows in the current thread.
+     * 
+     * @param rows the rows to sort
+     * @param comparator the comparator of the rows
+     */
+    public static void sort(int[] rows, RowComparator comparator)
+    {
+        mergeSort(rows, new int[rows.length], 0, rows.length, comparator, Thread.currentThread());
+    }
+
+    /**
+     * Sorts rows using the threads of a pool. The calling thread waits for the sort to be done.
+     * 
+     * @param rows the rows to sort
+     * @param comparator the comparator of the rows, called concurrently
+     * @param pool the pool
+     * @param grain the number of rows below which a range is sorted by a single thread
+     */
+    public static void sort(int[] rows, RowComparator comparator, ForkJoinPool pool, int grain)
+    {
+        pool.invoke(new SortTask(rows, new int[rows.length], 0, rows.length, comparator,
+            Math.max(INSERTION_SORT_THRESHOLD, grain), Thread.currentThread()));
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator, Thread owner)
+    {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(rows, from, to, comparator);
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator, owner);
+        mergeSort(rows, buffer, middle, to, comparator, owner);
+        merge(rows, buffer, from, middle, to, comparator, owner);
+    }
+
+    private static void insertionSort(int[] rows, int from, int to, RowComparator comparator)
+    {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(rows[j], row) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void merge(int[] rows, int[] buffer, int from, int middle, int to, RowComparator comparator,
+        Thread owner)
+    {
+        InlineTableInterruptions.check(owner);
+        // Nothing to do when the two halves are already in order.
+        if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(rows, from, buffer, from, middle - from);
+        int i = from;
+        int j = middle;
+        int k = from;
+        while (i < middle && j < to) {
+            // Take the row of the first half on equality, for the sort to be stable.
+            rows[k++] = comparator.compare(buffer[i], rows[j]) <= 0 ? buffer[i++] : rows[j++];
+        }
+        System.arraycopy(buffer, i, rows, k, middle - i);
+    }
+}
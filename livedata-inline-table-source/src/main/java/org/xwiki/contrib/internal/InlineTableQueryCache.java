@@ -0,0 +1,57 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Cache of the ordered row ids matching a query on an inline table, so that paginating through a filtered and sorted
+ * table does not filter and sort the whole table again.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableQueryCache
+{
+    /**
+     * Gets the ordered row ids matching the filters and sort of a query.
+     * 
+     * @param tableHash the hash of the queried table
+     * @param queryKey the key of the filters and sort of the query, see {@link InlineTableQueryKey}
+     * @return the ordered row ids, or {@code null} when the query result is not cached
+     */
+    int[] get(String tableHash, String queryKey);
+
+    /**
+     * Stores the ordered row ids matching the filters and sort of a query.
+     * 
+     * @param tableHash the hash of the queried table
+     * @param queryKey the key of the filters and sort of the query, see {@link InlineTableQueryKey}
+     * @param rowIds the ordered row ids matching the query
+     */
+    void set(String tableHash, String queryKey, int[] rowIds);
+
+    /**
+     * Drops all the cached query results of a table.
+     * 
+     * @param tableHash the hash of the table
+     */
+    void invalidate(String tableHash);
+}
@@ -0,0 +1,60 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+
+/**
+ * Evaluates the filters and sort of LiveData queries on decoded inline tables.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableQueryEvaluator
+{
+    /**
+     * Finds the rows of a table matching all the given conditions. Text fields support the {@code startsWith},
+     * {@code contains} and {@code equals} operators. Date fields support {@code between}, with an optional bound on
+     * each side, {@code before}, {@code after} and, on date columns, {@code equals} to select a whole day. Rows without
+     * date are not filtered by date terms, and rows without value are not filtered by text terms. The
+     * {@code _inline_search} pseudo property matches the rows containing all the searched words in any column, the
+     * last word being matched as a prefix. A condition requires all its terms when it matches all, any of them
+     * otherwise.
+     * 
+     * @param table the decoded table
+     * @param conditions the conditions to apply, see {@link InlineTableCondition#of(InlineTableSchema, List)}
+     * @return the bitmap of the matching row ids
+     */
+    BitSet filter(InlineTable table, List<InlineTableCondition> conditions);
+
+    /**
+     * Sorts rows of a table.
+     * 
+     * @param table the decoded table
+     * @param rows the bitmap of the row ids to sort
+     * @param sort the sort entries to apply, in order of precedence
+     * @return the sorted row ids
+     */
+    int[] sort(InlineTable table, BitSet rows, List<SortEntry> sort);
+}
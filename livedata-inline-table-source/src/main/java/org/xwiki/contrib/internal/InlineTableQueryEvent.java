@@ -0,0 +1,161 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event of a LiveData query on an inline table. The event spans the whole query, including the
+ * rendering of the returned entries.
+ * 
+ * @version $Id$
+ */
+@Name("InlineTable.Query")
+@Label("Inline Table Query")
+@Category({ "XWiki", "LiveData Inline Table" })
+@Description("A LiveData query on an inline table.")
+public final class InlineTableQueryEvent extends Event
+{
+    /**
+     * The row ids were found in the query cache.
+     */
+    public static final String QUERY_TIER = "query";
+
+    /**
+     * The decoded table was found in cache, the rows were filtered and sorted.
+     */
+    public static final String TABLE_TIER = "table";
+
+    /**
+     * The table was decoded from its payload, then filtered and sorted.
+     */
+    public static final String PAYLOAD_TIER = "payload";
+
+    @Label("Table Hash")
+    private String hash;
+
+    @Label("Filters")
+    private String filters;
+
+    @Label("Sort")
+    private String sort;
+
+    @Label("Rows In")
+    @Description("The number of rows of the table.")
+    private int rowsIn;
+
+    @Label("Rows Out")
+    @Description("The number of rows matching the filters.")
+    private int rowsOut;
+
+    @Label("Decode Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    private long decodeDuration;
+
+    @Label("Filter Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    private long filterDuration;
+
+    @Label("Sort Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    private long sortDuration;
+
+    @Label("Cache Tier")
+    @Description("The deepest cache the query was answered from: query, table or payload.")
+    private String cacheTier;
+
+    /**
+     * @param hash the hash of the queried table
+     */
+    public void setHash(String hash)
+    {
+        this.hash = hash;
+    }
+
+    /**
+     * @param filters the filters of the query
+     */
+    public void setFilters(String filters)
+    {
+        this.filters = filters;
+    }
+
+    /**
+     * @param sort the sort of the query
+     */
+    public void setSort(String sort)
+    {
+        this.sort = sort;
+    }
+
+    /**
+     * @param rowsIn the number of rows of the table
+     */
+    public void setRowsIn(int rowsIn)
+    {
+        this.rowsIn = rowsIn;
+    }
+
+    /**
+     * @param rowsOut the number of rows matching the filters
+     */
+    public void setRowsOut(int rowsOut)
+    {
+        this.rowsOut = rowsOut;
+    }
+
+    /**
+     * @param decodeDuration the time spent getting the decoded table, in nanoseconds
+     */
+    public void setDecodeDuration(long decodeDuration)
+    {
+        this.decodeDuration = decodeDuration;
+    }
+
+    /**
+     * @param filterDuration the time spent filtering the rows, in nanoseconds
+     */
+    public void setFilterDuration(long filterDuration)
+    {
+        this.filterDuration = filterDuration;
+    }
+
+    /**
+     * @param sortDuration the time spent sorting the rows, in nanoseconds
+     */
+    public void setSortDuration(long sortDuration)
+    {
+        this.sortDuration = sortDuration;
+    }
+
+    /**
+     * @param cacheTier the deepest cache the query was answered from, one of {@link #QUERY_TIER},
+     *            {@link #TABLE_TIER} or {@link #PAYLOAD_TIER}
+     */
+    public void setCacheTier(String cacheTier)
+    {
+        this.cacheTier = cacheTier;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.concurrent.Callable;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataException;
+
+/**
+ * Runs the evaluation of LiveData queries on inline tables outside of the request threads, within a time budget and a
+ * limit of concurrent evaluations.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableQueryExecutor
+{
+    /**
+     * Runs a query evaluation and waits for its result. The evaluation is interrupted when it exceeds the configured
+     * time budget. It must not depend on the execution context of the calling thread.
+     * 
+     * @param <T> the type of the result
+     * @param evaluation the query evaluation
+     * @return the result of the evaluation
+     * @throws LiveDataException when the evaluation fails, exceeds its time budget or cannot be started because too
+     *             many queries are being evaluated
+     */
+    <T> T execute(Callable<T> evaluation) throws LiveDataException;
+}
@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Builds the keys under which query results on inline tables are cached.
+ * 
+ * @version $Id$
+ */
+public final class InlineTableQueryKey
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private InlineTableQueryKey()
+    {
+    }
+
+    /**
+     * Build a key identifying what is evaluated for a query. The terms of each condition are ordered, and so are the
+     * conditions, so that equivalent queries share the same key. Pagination is not part of the key.
+     * 
+     * @param conditions the conditions evaluated for the filters of the query
+     * @param sortEntries the sort entries of the query
+     * @return the key of the query
+     */
+    public static String of(List<InlineTableCondition> conditions, List<SortEntry> sortEntries)
+    {
+        List<String> filters = new ArrayList<>();
+        for (InlineTableCondition condition : conditions) {
+            List<String> terms = new ArrayList<>();
+            for (InlineTableCondition.Term term : condition.getTerms()) {
+                terms.add(term.toKey());
+            }
+            terms.sort(Comparator.naturalOrder());
+            filters.add(serialize(List.of(condition.getProperty(), condition.isMatchAll(), terms)));
+        }
+        filters.sort(Comparator.naturalOrder());
+
+        List<String> sort = new ArrayList<>();
+        for (SortEntry sortEntry : sortEntries) {
+            sort.add(sortEntry.getProperty() + (sortEntry.isDescending() ? ":desc" : ":asc"));
+        }
+
+        return serialize(List.of(filters, sort));
+    }
+
+    private static String serialize(List<Object> value)
+    {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize the query key.", e);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+/**
+ * The rows of an inline table matching a LiveData query.
+ * 
+ * @version $Id$
+ */
+public class InlineTableQueryResult
+{
+    private final InlineTable table;
+
+    private final int[] rowIds;
+
+    /**
+     * Constructor.
+     * 
+     * @param table the queried table
+     * @param rowIds the ids of the matching rows, sorted
+     */
+    public InlineTableQueryResult(InlineTable table, int[] rowIds)
+    {
+        this.table = table;
+        this.rowIds = rowIds;
+    }
+
+    /**
+     * @return the queried table
+     */
+    public InlineTable getTable()
+    {
+        return this.table;
+    }
+
+    /**
+     * @return the ids of the matching rows, sorted, shared with the cache of the query results and not to be modified
+     */
+    public int[] getRowIds()
+    {
+        return this.rowIds;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+
+/**
+ * Gets the rows of inline tables matching LiveData queries, shared by the LiveData entry store and the exports.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableQueryRunner
+{
+    /**
+     * Decodes a table, then filters and sorts its rows or gets them from the cache of the query results. All of it runs
+     * in the {@link InlineTableQueryExecutor}, within the time budget of a single query. Pagination is ignored.
+     * 
+     * @param entries the entries parameter of the LiveData source, either the hash of a cached table or the encoded
+     *            table itself
+     * @param query the query, whose filters and sort are used
+     * @param event the event recording the query, {@code null} when it is not recorded
+     * @return the table and the ids of its matching rows, sorted
+     * @throws LiveDataException when the table cannot be decoded or the query cannot be evaluated within its budget
+     */
+    InlineTableQueryResult run(String entries, LiveDataQuery query, InlineTableQueryEvent event)
+        throws LiveDataException;
+}
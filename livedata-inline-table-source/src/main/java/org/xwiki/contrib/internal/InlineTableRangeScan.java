@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.BitSet;
+
+/**
+ * Range scan of a primitive column. The rows are compared 64 at a time, each comparison setting the bit of its row in
+ * a word of the result. See {@code InlineTableRangeScanBenchmarkTest} for how it compares to the
+ * {@link InlineTableDateIndex}.
+ * 
+ * @version $Id$
+ */
+public final class InlineTableRangeScan
+{
+    // Number of words between two checks of the interruption of the query.
+    private static final int WORDS_PER_CHECK = 1024;
+
+    private InlineTableRangeScan()
+    {
+    }
+
+    /**
+     * Selects the rows whose value is in a range, and the rows without value, which range filters do not apply to.
+     * 
+     * @param values the value of each row
+     * @param missing the value of the rows without value, never in the range
+     * @param begin the beginning of the range, inclusive
+     * @param end the end of the range, inclusive
+     * @param owner the thread of the query, which may not be the current one when segments are filtered in parallel
+     * @return the selected rows
+     */
+    public static BitSet select(long[] values, long missing, long begin, long end, Thread owner)
+    {
+        // A value is in the range when its distance to the beginning, seen as unsigned, is at most the span. Flipping
+        // the sign bit turns the unsigned comparison into a signed one.
+        boolean empty = begin > end;
+        long span = (end - begin) ^ Long.MIN_VALUE;
+        long[] words = new long[(values.length + Long.SIZE - 1) / Long.SIZE];
+        for (int w = 0; w < words.length; w++) {
+            if (w % WORDS_PER_CHECK == 0) {
+                InlineTableInterruptions.check(owner);
+            }
+            int base = w * Long.SIZE;
+            int lanes = Math.min(Long.SIZE, values.length - base);
+            long word = 0;
+            for (int lane = 0; lane < lanes; lane++) {
+                long value = values[base + lane];
+                boolean selected = value == missing || !empty && ((value - begin) ^ Long.MIN_VALUE) <= span;
+                word |= (selected ? 1L : 0L) << lane;
+            }
+            words[w] = word;
+        }
+        return BitSet.valueOf(words);
+    }
+}
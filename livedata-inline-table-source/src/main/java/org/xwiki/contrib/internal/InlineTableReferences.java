@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Set;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Keeps track of the documents referencing each stored table. Identical tables share a single stored payload, so a
+ * payload is still needed as long as one of the documents displaying it references it.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableReferences
+{
+    /**
+     * Records that a document references a stored table.
+     * 
+     * @param hash the hash of the stored table
+     * @param document the serialized reference of the document
+     */
+    void add(String hash, String document);
+
+    /**
+     * Gets the documents referencing a stored table.
+     * 
+     * @param hash the hash of the stored table
+     * @return the serialized references of the documents
+     */
+    Set<String> getDocuments(String hash);
+
+    /**
+     * Gets the stored tables referenced by a document.
+     * 
+     * @param document the serialized reference of the document
+     * @return the hashes of the stored tables
+     */
+    Set<String> getTables(String document);
+
+    /**
+     * Forgets all the references of a document, e.g. because it was modified or deleted.
+     * 
+     * @param document the serialized reference of the document
+     * @return the hashes of the stored tables that are not referenced by any document anymore
+     */
+    Set<String> removeDocument(String document);
+
+    /**
+     * Forgets all the references to a stored table, e.g. because it is not stored anymore.
+     * 
+     * @param hash the hash of the stored table
+     */
+    void removeTable(String hash);
+}
@@ -0,0 +1,277 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only entry of a decoded table, whose values are stored as codes of an {@link InlineTableDictionary}. String
+ * values are only created when they are accessed.
+ * 
+ * @version $Id$
+ */
+public class InlineTableRow extends AbstractMap<String, Object>
+{
+    /**
+     * The value code of the fields whose value is a number, which is not stored in the dictionary.
+     */
+    public static final int NUMBER = -2;
+
+    private final InlineTableDictionary dictionary;
+
+    private final int id;
+
+    private final int[] names;
+
+    // Code of each value in the dictionary, or -(i + 1) for the i-th numeric value.
+    private final int[] values;
+
+    private final Number[] numbers;
+
+    /**
+     * Builds the entries of a table, sharing the dictionary of the table.
+     */
+    public static class Builder
+    {
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final InlineTableDictionary dictionary;
+
+        private int id;
+
+        private int[] names = new int[INITIAL_CAPACITY];
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        private Number[] numbers = new Number[0];
+
+        private int size;
+
+        private int numberCount;
+
+        /**
+         * Constructor.
+         * 
+         * @param dictionary the dictionary of the table
+         */
+        public Builder(InlineTableDictionary dictionary)
+        {
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Starts a new entry.
+         * 
+         * @param entryId the id of the entry, i.e. its position in the table
+         * @return this builder
+         */
+        public Builder start(int entryId)
+        {
+            this.id = entryId;
+            this.size = 0;
+            this.numberCount = 0;
+            return this;
+        }
+
+        /**
+         * Sets a value of the entry.
+         * 
+         * @param name the name of the field
+         * @param value the value, either a string or a number
+         * @return this builder
+         */
+        public Builder put(String name, Object value)
+        {
+            int nameCode = this.dictionary.addName(name);
+            int index = indexOf(nameCode);
+            if (index < 0) {
+                if (this.size == this.names.length) {
+                    this.names = Arrays.copyOf(this.names, this.size * 2);
+                    this.values = Arrays.copyOf(this.values, this.size * 2);
+                }
+                index = this.size++;
+                this.names[index] = nameCode;
+            }
+
+            if (value instanceof Number) {
+                if (this.numberCount == this.numbers.length) {
+                    this.numbers = Arrays.copyOf(this.numbers, Math.max(1, this.numberCount * 2));
+                }
+                this.numbers[this.numberCount] = (Number) value;
+                this.values[index] = -(++this.numberCount);
+            } else {
+                this.values[index] = this.dictionary.add(String.valueOf(value));
+            }
+            return this;
+        }
+
+        /**
+         * @return the number of fields of the entry
+         */
+        public int size()
+        {
+            return this.size;
+        }
+
+        /**
+         * @return the entry
+         */
+        public InlineTableRow build()
+        {
+            return new InlineTableRow(this.dictionary, this.id, Arrays.copyOf(this.names, this.size),
+                Arrays.copyOf(this.values, this.size),
+                this.numberCount == 0 ? null : Arrays.copyOf(this.numbers, this.numberCount));
+        }
+
+        private int indexOf(int nameCode)
+        {
+            for (int i = 0; i < this.size; i++) {
+                if (this.names[i] == nameCode) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private InlineTableRow(InlineTableDictionary dictionary, int id, int[] names, int[] values, Number[] numbers)
+    {
+        this.dictionary = dictionary;
+        this.id = id;
+        this.names = names;
+        this.values = values;
+        this.numbers = numbers;
+    }
+
+    @Override
+    public Object get(Object key)
+    {
+        if (InlineTableLiveDataEntryStore.INLINE_ID.equals(key)) {
+            return this.id;
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : getValue(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return InlineTableLiveDataEntryStore.INLINE_ID.equals(key) || indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size()
+    {
+        // The generated id is not stored with the other fields.
+        return this.names.length + 1;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<String, Object>>()
+        {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator()
+            {
+                return new Iterator<Map.Entry<String, Object>>()
+                {
+                    private int index = -1;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return this.index < names.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next()
+                    {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = this.index++;
+                        if (i < 0) {
+                            return new SimpleImmutableEntry<>(InlineTableLiveDataEntryStore.INLINE_ID, id);
+                        }
+                        return new SimpleImmutableEntry<>(dictionary.getName(names[i]), getValue(i));
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return InlineTableRow.this.size();
+            }
+        };
+    }
+
+    /**
+     * @return the dictionary holding the values of the entry, shared by the entries of the same table or chunk
+     */
+    public InlineTableDictionary getDictionary()
+    {
+        return this.dictionary;
+    }
+
+    /**
+     * Gets the code of the value of a field in the {@link #getDictionary() dictionary}, without creating the string
+     * value.
+     * 
+     * @param field the name of the field
+     * @return the code of the value, {@link InlineTableColumn#NO_VALUE} when the entry has no such field, or
+     *         {@link #NUMBER} when the value is a number
+     */
+    public int getValueCode(String field)
+    {
+        int index = indexOf(field);
+        if (index < 0) {
+            return InlineTableColumn.NO_VALUE;
+        }
+        return this.values[index] < 0 ? NUMBER : this.values[index];
+    }
+
+    private int indexOf(Object key)
+    {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int nameCode = this.dictionary.getNameCode((String) key);
+        for (int i = 0; i < this.names.length; i++) {
+            if (this.names[i] == nameCode) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Object getValue(int index)
+    {
+        int value = this.values[index];
+        return value < 0 ? this.numbers[-value - 1] : this.dictionary.get(value);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.List;
+
+/**
+ * The fields of an inline table and the information needed to display them, as stored along with its entries.
+ * 
+ * @version $Id$
+ */
+public class InlineTableSchema
+{
+    private static final String DATE_TYPE = "date";
+
+    private final List<String> fields;
+
+    private final List<String> fieldsTypes;
+
+    private final String dateFormat;
+
+    private final String syntax;
+
+    private final String base;
+
+    /**
+     * Constructor.
+     * 
+     * @param fields the names of the fields of the table
+     * @param fieldsTypes the types of the fields of the table
+     * @param dateFormat the date format used to display and filter dates
+     * @param syntax the syntax of the cells stored as source, {@code null} when all cells are stored rendered
+     * @param base the reference of the document containing the table, used to resolve relative references of the
+     *            cells stored as source
+     */
+    public InlineTableSchema(List<String> fields, List<String> fieldsTypes, String dateFormat, String syntax,
+        String base)
+    {
+        this.fields = fields;
+        this.fieldsTypes = fieldsTypes;
+        this.dateFormat = dateFormat;
+        this.syntax = syntax;
+        this.base = base;
+    }
+
+    /**
+     * Gets the names of the fields of the table.
+     * 
+     * @return the names of the fields
+     */
+    public List<String> getFields()
+    {
+        return this.fields;
+    }
+
+    /**
+     * Gets the types of the fields of the table.
+     * 
+     * @return the types of the fields
+     */
+    public List<String> getFieldsTypes()
+    {
+        return this.fieldsTypes;
+    }
+
+    /**
+     * Checks if a property is a date column.
+     * 
+     * @param property the property, i.e. the column index
+     * @return whether the type of the column is date
+     */
+    public boolean isDate(String property)
+    {
+        if (this.fieldsTypes == null) {
+            return false;
+        }
+
+        try {
+            int index = Integer.parseInt(property);
+            return index >= 0 && index < this.fieldsTypes.size() && DATE_TYPE.equals(this.fieldsTypes.get(index));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the date format used to display and filter the dates of the table.
+     * 
+     * @return the date format
+     */
+    public String getDateFormat()
+    {
+        return this.dateFormat;
+    }
+
+    /**
+     * Gets the syntax of the cells stored as source rather than rendered.
+     * 
+     * @return the syntax id, {@code null} when all cells are stored rendered
+     */
+    public String getSyntax()
+    {
+        return this.syntax;
+    }
+
+    /**
+     * Gets the reference of the document containing the table.
+     * 
+     * @return the serialized document reference, {@code null} when unknown
+     */
+    public String getBase()
+    {
+        return this.base;
+    }
+}
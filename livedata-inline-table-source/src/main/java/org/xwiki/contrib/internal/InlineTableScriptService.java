@@ -0,0 +1,295 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.EnumUtils;
+import org.slf4j.Logger;
+import org.xwiki.cache.CacheException;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.script.service.ScriptService;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.text.StringUtils;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.XWikiResponse;
+
+/**
+ * Script service giving access to the inline tables displayed by LiveData.
+ * 
+ * @version $Id$
+ */
+@Component
+@Named("inlineTable")
+@Singleton
+public class InlineTableScriptService implements ScriptService
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Inject
+    private InlineTableExporter exporter;
+
+    @Inject
+    private InlineTableFacets facets;
+
+    @Inject
+    private InlineTableAggregator aggregator;
+
+    @Inject
+    private InlineTableStore tableStore;
+
+    @Inject
+    private InlineTableQueryExecutor queryExecutor;
+
+    @Inject
+    private InlineTableCache inlineTableCache;
+
+    @Inject
+    private InlineTableStatistics statistics;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private Provider<XWikiContext> contextProvider;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Exports the rows of a table matching a LiveData query to the response, as a file to download.
+     * 
+     * @param entries the entries parameter of the LiveData source, either the hash of a cached table or the encoded
+     *            table itself
+     * @param query the LiveData query, as JSON, whose properties, filters and sort are used; {@code null} to export all
+     *            the rows and columns in table order
+     * @param format the export format, {@code csv} or {@code ndjson}
+     * @return {@code true} when the table was exported, {@code false} otherwise
+     */
+    public boolean export(String entries, String query, String format)
+    {
+        InlineTableExportFormat exportFormat = EnumUtils.getEnumIgnoreCase(InlineTableExportFormat.class, format);
+        if (exportFormat == null) {
+            logger.warn("Unsupported export format: " + format);
+            return false;
+        }
+
+        XWikiContext xcontext = this.contextProvider.get();
+        try {
+            LiveDataQuery liveDataQuery = parseQuery(query);
+            XWikiResponse response = xcontext.getResponse();
+            response.setContentType(exportFormat.getMimeType());
+            response.setCharacterEncoding("UTF-8");
+            response.setHeader("Content-Disposition",
+                "attachment; filename=\"table." + exportFormat.getExtension() + "\"");
+            this.exporter.export(entries, liveDataQuery, exportFormat, response.getOutputStream());
+            response.flushBuffer();
+            xcontext.setFinished(true);
+            return true;
+        } catch (LiveDataException | IOException e) {
+            logger.warn("Failed to export the inline table: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Gets the distinct values of a column of a table with their number of occurrences, among the rows matching the
+     * filters of a LiveData query on the other columns.
+     * 
+     * @param entries the entries parameter of the LiveData source, either the hash of a cached table or the encoded
+     *            table itself
+     * @param property the faceted property, i.e. the column index
+     * @param query the LiveData query, as JSON, whose filters are used; {@code null} to count all the rows
+     * @return the distinct values and their counts, by decreasing count, {@code null} when they could not be computed
+     */
+    public Map<String, Integer> getFacets(String entries, String property, String query)
+    {
+        try {
+            List<LiveDataQuery.Filter> filters = parseQuery(query).getFilters();
+            return this.queryExecutor
+                .execute(() -> this.facets.getFacets(this.tableStore.get(entries), property, filters));
+        } catch (LiveDataException | IOException e) {
+            logger.warn("Failed to compute the facets of the inline table: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Aggregates the values of a column of a table over the rows matching the filters of a LiveData query.
+     * 
+     * @param entries the entries parameter of the LiveData source, either the hash of a cached table or the encoded
+     *            table itself
+     * @param property the aggregated property, i.e. the column index
+     * @param query the LiveData query, as JSON, whose filters are used; {@code null} to aggregate all the rows
+     * @param interval the bucket size of the date histogram, {@code day}, {@code week} or {@code month}; {@code null}
+     *            to skip the histogram
+     * @param zone the id of the time zone in which the histogram buckets start, {@code null} for UTC
+     * @return the aggregated values, {@code null} when they could not be computed
+     */
+    public InlineTableAggregation aggregate(String entries, String property, String query, String interval,
+        String zone)
+    {
+        InlineTableDateInterval dateInterval = EnumUtils.getEnumIgnoreCase(InlineTableDateInterval.class, interval);
+        if (dateInterval == null && StringUtils.isNotBlank(interval)) {
+            logger.warn("Unsupported histogram interval: " + interval);
+            return null;
+        }
+
+        try {
+            ZoneId zoneId = StringUtils.isBlank(zone) ? ZoneOffset.UTC : ZoneId.of(zone);
+            List<LiveDataQuery.Filter> filters = parseQuery(query).getFilters();
+            return this.queryExecutor.execute(() -> this.aggregator.aggregate(this.tableStore.get(entries), property,
+                filters, dateInterval, zoneId));
+        } catch (LiveDataException | IOException | DateTimeException e) {
+            logger.warn("Failed to aggregate the inline table: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Gets the statistics of the cache of the current node. Requires administration rights on the main wiki.
+     * 
+     * @return the number of stored tables ({@code tables}), the total length of their Base64 ({@code size}), the hits
+     *         and misses of the stored Base64 ({@code payloadHits}, {@code payloadMisses}) and of the decoded tables
+     *         ({@code decodedHits}, {@code decodedMisses}), and the number of removed tables ({@code removals});
+     *         {@code null} when the current user is not allowed to see them
+     */
+    public Map<String, Object> getCacheStatistics()
+    {
+        if (!isAdmin()) {
+            return null;
+        }
+
+        Map<String, Object> cacheStatistics = new LinkedHashMap<>();
+        cacheStatistics.put("tables", this.statistics.getTables().size());
+        cacheStatistics.put("size", this.statistics.getPayloadSize());
+        cacheStatistics.put("payloadHits", this.statistics.getPayloadHits());
+        cacheStatistics.put("payloadMisses", this.statistics.getPayloadMisses());
+        cacheStatistics.put("decodedHits", this.statistics.getDecodedHits());
+        cacheStatistics.put("decodedMisses", this.statistics.getDecodedMisses());
+        cacheStatistics.put("removals", this.statistics.getRemovals());
+        return cacheStatistics;
+    }
+
+    /**
+     * Gets the largest stored tables, by decoded size. Requires administration rights on the main wiki.
+     * 
+     * @param count the maximum number of tables to return
+     * @return the largest tables, {@code null} when the current user is not allowed to see them
+     */
+    public List<InlineTableInfo> getLargestTables(int count)
+    {
+        if (!isAdmin()) {
+            return null;
+        }
+
+        List<InlineTableInfo> tables = this.statistics.getTables();
+        return tables.subList(0, Math.max(0, Math.min(count, tables.size())));
+    }
+
+    /**
+     * Gets the most recent slow queries. Requires administration rights on the main wiki.
+     * 
+     * @return the slow queries, the latest first, {@code null} when the current user is not allowed to see them
+     */
+    public List<InlineTableSlowQuery> getSlowQueries()
+    {
+        return isAdmin() ? this.statistics.getSlowQueries() : null;
+    }
+
+    /**
+     * Removes a stored table, along with its decoded version and cached query results. Requires administration rights
+     * on the main wiki.
+     * 
+     * @param hash the hash of the table
+     * @return {@code true} when the table was removed, {@code false} otherwise
+     */
+    public boolean evict(String hash)
+    {
+        if (!isAdmin()) {
+            return false;
+        }
+
+        try {
+            this.inlineTableCache.remove(hash);
+            return true;
+        } catch (CacheException e) {
+            logger.warn("Failed to remove the inline table " + hash + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Removes all the tables stored by the current node. Requires administration rights on the main wiki.
+     * 
+     * @return {@code true} when the tables were removed, {@code false} otherwise
+     */
+    public boolean flush()
+    {
+        if (!isAdmin()) {
+            return false;
+        }
+
+        try {
+            this.inlineTableCache.flush();
+            return true;
+        } catch (CacheException e) {
+            logger.warn("Failed to remove the inline tables: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private LiveDataQuery parseQuery(String query) throws IOException
+    {
+        LiveDataQuery liveDataQuery =
+            StringUtils.isBlank(query) ? new LiveDataQuery() : OBJECT_MAPPER.readValue(query, LiveDataQuery.class);
+        liveDataQuery.initialize();
+        return liveDataQuery;
+    }
+
+    /**
+     * The cache is shared by all the wikis, so managing it requires administration rights on the main wiki.
+     */
+    private boolean isAdmin()
+    {
+        return this.authorization.hasAccess(Right.ADMIN, new WikiReference(this.wikiDescriptorManager.getMainWikiId()));
+    }
+}
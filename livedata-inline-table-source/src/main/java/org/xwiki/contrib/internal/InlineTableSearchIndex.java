@@ -0,0 +1,188 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Inverted index of the tokens of the plain text values of a decoded table, used to search all the columns at once.
+ * Tokens are kept sorted so that the rows of all the tokens starting with a prefix can be found with a binary search.
+ * 
+ * @version $Id$
+ */
+public class InlineTableSearchIndex
+{
+    private final int size;
+
+    private final String[] tokens;
+
+    // Sorted ids of the rows containing each token.
+    private final int[][] postings;
+
+    /**
+     * Growable list of row ids.
+     */
+    private static final class Rows
+    {
+        private int[] ids = new int[4];
+
+        private int count;
+
+        void add(int row)
+        {
+            // Rows are added in order, a row containing a token twice is only added once.
+            if (this.count > 0 && this.ids[this.count - 1] == row) {
+                return;
+            }
+            if (this.count == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.count * 2);
+            }
+            this.ids[this.count++] = row;
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(this.ids, this.count);
+        }
+    }
+
+    /**
+     * Builds the index of the given columns.
+     * 
+     * @param size the number of rows of the table
+     * @param columns the plain text columns of the table
+     * @param owner the thread of the query building the index, which may not be the current one when segments are
+     *            filtered in parallel
+     */
+    public InlineTableSearchIndex(int size, List<InlineTableColumn> columns, Thread owner)
+    {
+        this.size = size;
+
+        Map<String, Rows> index = new HashMap<>();
+        // Each distinct value of a column is tokenized only once.
+        Rows[][][] valueTokens = new Rows[columns.size()][][];
+        for (int c = 0; c < columns.size(); c++) {
+            InlineTableColumn column = columns.get(c);
+            valueTokens[c] = new Rows[column.getDictionarySize()][];
+            for (int code = 0; code < column.getDictionarySize(); code++) {
+                List<String> valueTokenList = tokenize(column.getValue(code));
+                valueTokens[c][code] = new Rows[valueTokenList.size()];
+                for (int i = 0; i < valueTokenList.size(); i++) {
+                    valueTokens[c][code][i] = index.computeIfAbsent(valueTokenList.get(i), token -> new Rows());
+                }
+            }
+        }
+
+        // Rows are visited in order so that the row ids of each token are sorted.
+        for (int row = 0; row < size; row++) {
+            InlineTableInterruptions.check(owner);
+            for (int c = 0; c < columns.size(); c++) {
+                int code = columns.get(c).getCode(row);
+                if (code != InlineTableColumn.NO_VALUE) {
+                    for (Rows rows : valueTokens[c][code]) {
+                        rows.add(row);
+                    }
+                }
+            }
+        }
+
+        this.tokens = index.keySet().toArray(new String[0]);
+        Arrays.sort(this.tokens);
+        this.postings = new int[this.tokens.length][];
+        for (int i = 0; i < this.tokens.length; i++) {
+            this.postings[i] = index.get(this.tokens[i]).toArray();
+        }
+    }
+
+    /**
+     * Finds the rows containing all the tokens of a search. The last token is matched as a prefix, since it may not be
+     * fully typed yet.
+     * 
+     * @param search the searched text
+     * @return the matching rows, all the rows when the search has no token
+     */
+    public BitSet search(String search)
+    {
+        BitSet rows = new BitSet(this.size);
+        rows.set(0, this.size);
+
+        List<String> searchTokens = tokenize(search);
+        for (int i = 0; i < searchTokens.size() && !rows.isEmpty(); i++) {
+            String token = searchTokens.get(i);
+            BitSet tokenRows = new BitSet(this.size);
+            int index = Arrays.binarySearch(this.tokens, token);
+            if (i == searchTokens.size() - 1) {
+                // All the tokens starting with the prefix follow it in the sorted tokens.
+                for (int j = index < 0 ? -index - 1 : index; j < this.tokens.length && this.tokens[j].startsWith(token);
+                    j++) {
+                    set(tokenRows, this.postings[j]);
+                }
+            } else if (index >= 0) {
+                set(tokenRows, this.postings[index]);
+            }
+            rows.and(tokenRows);
+        }
+
+        return rows;
+    }
+
+    /**
+     * @return the number of distinct tokens of the table
+     */
+    public int getTokenCount()
+    {
+        return this.tokens.length;
+    }
+
+    private static void set(BitSet bitSet, int[] rows)
+    {
+        for (int row : rows) {
+            bitSet.set(row);
+        }
+    }
+
+    /**
+     * Splits a text into lower case tokens made of letters and digits.
+     * 
+     * @param text the text
+     * @return the tokens, in order
+     */
+    private static List<String> tokenize(String text)
+    {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean tokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
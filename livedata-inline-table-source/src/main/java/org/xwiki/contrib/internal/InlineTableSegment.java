@@ -0,0 +1,391 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A range of consecutive rows of a decoded table, along with the per-column structures used to evaluate queries on
+ * these rows. A table split into chunks has one segment per chunk, so that the structures of a chunk are built only
+ * when a query needs its rows, and are dropped along with the decoded chunk. The rows of a segment are identified by
+ * their position in the segment, starting at 0.
+ * 
+ * @version $Id$
+ */
+public class InlineTableSegment
+{
+    /**
+     * The sort key of the rows without a cell for a property.
+     */
+    public static final long NO_CELL = Long.MIN_VALUE;
+
+    /**
+     * The sort key of the rows whose cell has no value.
+     */
+    public static final long NO_SORT_VALUE = Long.MIN_VALUE + 1;
+
+    private static final String TEXT_ID = "text.";
+
+    private static final String DATE_ID = "date.";
+
+    private static final int INITIAL_VALUES = 16;
+
+    private final int offset;
+
+    private final List<Map<String, Object>> entries;
+
+    private final Map<String, InlineTableColumn> columns = new ConcurrentHashMap<>();
+
+    private final Map<String, double[]> numberColumns = new ConcurrentHashMap<>();
+
+    private final Map<String, long[]> dateColumns = new ConcurrentHashMap<>();
+
+    private final Map<String, InlineTableDateIndex> dateIndexes = new ConcurrentHashMap<>();
+
+    private final Map<String, long[]> sortKeys = new ConcurrentHashMap<>();
+
+    private final Map<String, int[]> sortedCodes = new ConcurrentHashMap<>();
+
+    private volatile InlineTableSearchIndex searchIndex;
+
+    /**
+     * Constructor.
+     * 
+     * @param offset the position of the first row of the segment in the table
+     * @param entries the decoded entries of the segment, in table order
+     */
+    public InlineTableSegment(int offset, List<Map<String, Object>> entries)
+    {
+        this.offset = offset;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the position of the first row of the segment in the table
+     */
+    public int getOffset()
+    {
+        return this.offset;
+    }
+
+    /**
+     * @return the number of rows of the segment
+     */
+    public int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * Gets the entries of the segment. The returned entries are shared and must not be modified.
+     * 
+     * @return the entries, in table order
+     */
+    public List<Map<String, Object>> getEntries()
+    {
+        return this.entries;
+    }
+
+    /**
+     * Gets the dictionary-encoded plain text column of a property. The column is built on first access.
+     * 
+     * @param property the property, i.e. the column index
+     * @return the column, whose codes are local to the segment
+     */
+    public InlineTableColumn getColumn(String property)
+    {
+        return this.columns.computeIfAbsent(property, this::buildColumn);
+    }
+
+    /**
+     * Gets the numeric values of a property. The column is built on first access.
+     * 
+     * @param property the property, i.e. the column index
+     * @return the numeric value of each row, {@link Double#NaN} when the plain text value of the row is not a number
+     */
+    public double[] getNumbers(String property)
+    {
+        return this.numberColumns.computeIfAbsent(property, this::buildNumberColumn);
+    }
+
+    /**
+     * Gets the dates of a property. The column is built on first access.
+     * 
+     * @param property the property, i.e. the column index
+     * @return the date of each row as a unix timestamp, {@link InlineTable#NO_DATE} when the row has no date
+     */
+    public long[] getDates(String property)
+    {
+        return this.dateColumns.computeIfAbsent(property, this::buildDateColumn);
+    }
+
+    /**
+     * Gets the sorted dates of a property, used to select the rows of a date range. The index is built on first
+     * access.
+     * 
+     * @param property the property, i.e. the column index
+     * @return the date index
+     */
+    public InlineTableDateIndex getDateIndex(String property)
+    {
+        return this.dateIndexes.computeIfAbsent(property, p -> new InlineTableDateIndex(getDates(p)));
+    }
+
+    /**
+     * Gets the inverted index of the plain text values of the segment. The index is built on first access.
+     * 
+     * @param properties the text properties of the table
+     * @param owner the thread of the query accessing the index, which stops building it when interrupted
+     * @return the search index
+     */
+    public InlineTableSearchIndex getSearchIndex(List<String> properties, Thread owner)
+    {
+        InlineTableSearchIndex index = this.searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = this.searchIndex;
+                if (index == null) {
+                    List<InlineTableColumn> textColumns = new ArrayList<>();
+                    for (String property : properties) {
+                        textColumns.add(getColumn(property));
+                    }
+                    index = new InlineTableSearchIndex(size(), textColumns, owner);
+                    this.searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Gets the sort keys of a property, so that rows can be sorted by comparing primitive values. Rows without a cell
+     * for the property come first, then the rows whose cell has no value, then the others by date for date columns, or
+     * by the rank of their plain text value among the {@link #getSortedValues(String) sorted values} of the segment.
+     * The keys are built on first access.
+     * 
+     * @param property the property, i.e. the column index
+     * @param dateColumn whether the property is sorted by date, which must not change between calls
+     * @return the sort key of each row
+     */
+    public long[] getSortKeys(String property, boolean dateColumn)
+    {
+        return this.sortKeys.computeIfAbsent(property, p -> buildSortKeys(p, dateColumn));
+    }
+
+    /**
+     * Gets the distinct plain text values of a property, sorted. The rank of a value is its index in the array. Only
+     * the order of the values is kept, the strings are created on each call.
+     * 
+     * @param property the property, i.e. the column index
+     * @return the sorted values
+     */
+    public String[] getSortedValues(String property)
+    {
+        InlineTableColumn column = getColumn(property);
+        int[] codes = getSortedCodes(property);
+        String[] values = new String[codes.length];
+        for (int rank = 0; rank < codes.length; rank++) {
+            values[rank] = column.getValue(codes[rank]);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the codes of the distinct plain text values of a property, sorted by value. The codes are sorted on first
+     * access.
+     * 
+     * @param property the property, i.e. the column index
+     * @return the codes of the {@link #getColumn(String) column} values, by rank
+     */
+    private int[] getSortedCodes(String property)
+    {
+        return this.sortedCodes.computeIfAbsent(property, p -> {
+            InlineTableColumn column = getColumn(p);
+            String[] values = new String[column.getDictionarySize()];
+            Arrays.setAll(values, column::getValue);
+            String[] sorted = values.clone();
+            Arrays.sort(sorted);
+            // The values are distinct, each one has its own rank.
+            int[] codes = new int[values.length];
+            for (int code = 0; code < values.length; code++) {
+                codes[Arrays.binarySearch(sorted, values[code])] = code;
+            }
+            return codes;
+        });
+    }
+
+    /**
+     * Checks if some rows of the segment have a date for a property.
+     * 
+     * @param property the property, i.e. the column index
+     * @return whether at least one row has a date
+     */
+    public boolean hasDates(String property)
+    {
+        return Arrays.stream(getDates(property)).anyMatch(date -> date != InlineTable.NO_DATE);
+    }
+
+    private long[] buildSortKeys(String property, boolean dateColumn)
+    {
+        long[] dates = dateColumn ? getDates(property) : null;
+        InlineTableColumn column = null;
+        long[] textRanks = null;
+        if (!dateColumn) {
+            // Rank the distinct values once, rows are then compared by the rank of their value.
+            column = getColumn(property);
+            int[] codes = getSortedCodes(property);
+            textRanks = new long[codes.length];
+            for (int rank = 0; rank < codes.length; rank++) {
+                textRanks[codes[rank]] = rank;
+            }
+        }
+
+        String sourceField = DefaultInlineTableEntryRenderer.SOURCE_ID + property;
+        long[] keys = new long[this.entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            Map<String, Object> entry = this.entries.get(i);
+            if (!entry.containsKey(property) && !entry.containsKey(sourceField)) {
+                keys[i] = NO_CELL;
+            } else if (dateColumn) {
+                keys[i] = dates[i] == InlineTable.NO_DATE ? NO_SORT_VALUE : dates[i];
+            } else {
+                int code = column.getCode(i);
+                keys[i] = code == InlineTableColumn.NO_VALUE ? NO_SORT_VALUE : textRanks[code];
+            }
+        }
+
+        return keys;
+    }
+
+    private InlineTableColumn buildColumn(String property)
+    {
+        String field = TEXT_ID + property;
+        InlineTableColumn column = buildColumnFromRows(field);
+        return column != null ? column : buildColumnFromValues(field);
+    }
+
+    /**
+     * Builds a column from the codes of the decoded rows, sharing their dictionary, so that no string is created.
+     * 
+     * @param field the plain text field of the column
+     * @return the column, {@code null} when the rows do not share a dictionary or when some values are numbers
+     */
+    private InlineTableColumn buildColumnFromRows(String field)
+    {
+        InlineTableDictionary dictionary = null;
+        if (!this.entries.isEmpty() && this.entries.get(0) instanceof InlineTableRow) {
+            dictionary = ((InlineTableRow) this.entries.get(0)).getDictionary();
+        }
+        if (dictionary == null) {
+            return null;
+        }
+
+        // Code of each value of the dictionary in the column.
+        int[] columnCodes = new int[dictionary.size()];
+        Arrays.fill(columnCodes, InlineTableColumn.NO_VALUE);
+        int[] valueCodes = new int[INITIAL_VALUES];
+        int valueCount = 0;
+        int[] codes = new int[this.entries.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Map<String, Object> entry = this.entries.get(i);
+            if (!(entry instanceof InlineTableRow) || ((InlineTableRow) entry).getDictionary() != dictionary) {
+                return null;
+            }
+            int valueCode = ((InlineTableRow) entry).getValueCode(field);
+            if (valueCode == InlineTableRow.NUMBER) {
+                return null;
+            } else if (valueCode == InlineTableColumn.NO_VALUE) {
+                codes[i] = InlineTableColumn.NO_VALUE;
+            } else {
+                if (columnCodes[valueCode] == InlineTableColumn.NO_VALUE) {
+                    if (valueCount == valueCodes.length) {
+                        valueCodes = Arrays.copyOf(valueCodes, valueCount * 2);
+                    }
+                    valueCodes[valueCount] = valueCode;
+                    columnCodes[valueCode] = valueCount++;
+                }
+                codes[i] = columnCodes[valueCode];
+            }
+        }
+
+        return new InlineTableColumn(dictionary, Arrays.copyOf(valueCodes, valueCount), codes);
+    }
+
+    /**
+     * Builds a column from the values of rows that do not share a dictionary, such as the rows of the tables stored by
+     * older versions, by storing the values in a dictionary of the column.
+     * 
+     * @param field the plain text field of the column
+     * @return the column
+     */
+    private InlineTableColumn buildColumnFromValues(String field)
+    {
+        InlineTableDictionary dictionary = new InlineTableDictionary();
+        int[] codes = new int[this.entries.size()];
+        for (int i = 0; i < codes.length; i++) {
+            Object value = this.entries.get(i).get(field);
+            codes[i] = value == null ? InlineTableColumn.NO_VALUE : dictionary.add(value.toString());
+        }
+        dictionary.trim();
+
+        // The codes of the dictionary are the codes of the column.
+        int[] valueCodes = new int[dictionary.size()];
+        Arrays.setAll(valueCodes, code -> code);
+        return new InlineTableColumn(dictionary, valueCodes, codes);
+    }
+
+    private double[] buildNumberColumn(String property)
+    {
+        InlineTableColumn column = getColumn(property);
+        // Parse each distinct value only once.
+        double[] dictionary = new double[column.getDictionarySize()];
+        for (int code = 0; code < dictionary.length; code++) {
+            try {
+                dictionary[code] = Double.parseDouble(column.getValue(code).trim());
+            } catch (NumberFormatException e) {
+                dictionary[code] = Double.NaN;
+            }
+        }
+
+        double[] numbers = new double[this.entries.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            int code = column.getCode(i);
+            numbers[i] = code == InlineTableColumn.NO_VALUE ? Double.NaN : dictionary[code];
+        }
+
+        return numbers;
+    }
+
+    private long[] buildDateColumn(String property)
+    {
+        String field = DATE_ID + property;
+        long[] dates = new long[this.entries.size()];
+        for (int i = 0; i < dates.length; i++) {
+            Object value = this.entries.get(i).get(field);
+            dates[i] = value instanceof Number ? ((Number) value).longValue() : InlineTable.NO_DATE;
+        }
+
+        return dates;
+    }
+}
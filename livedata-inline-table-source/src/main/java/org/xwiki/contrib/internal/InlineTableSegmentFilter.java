@@ -0,0 +1,131 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.xwiki.contrib.internal.InlineTableCondition.Term;
+
+/**
+ * Evaluates the conditions of a query on the segments of a table. Each segment is evaluated on its own, through its
+ * per-column structures, so the segments can be evaluated in parallel.
+ * 
+ * @version $Id$
+ */
+public class InlineTableSegmentFilter
+{
+    private final List<InlineTableCondition> conditions;
+
+    private final List<String> textProperties;
+
+    private final boolean useDateIndex;
+
+    private final Thread owner;
+
+    /**
+     * Constructor.
+     * 
+     * @param conditions the conditions to evaluate, all required
+     * @param textProperties the text properties of the table, searched by the search terms
+     * @param useDateIndex whether the date terms are evaluated through the date index, or by scanning the dates
+     * @param owner the thread of the query
+     */
+    public InlineTableSegmentFilter(List<InlineTableCondition> conditions, List<String> textProperties,
+        boolean useDateIndex, Thread owner)
+    {
+        this.conditions = conditions;
+        this.textProperties = textProperties;
+        this.useDateIndex = useDateIndex;
+        this.owner = owner;
+    }
+
+    /**
+     * Finds the rows of a segment matching the conditions.
+     * 
+     * @param segment the segment
+     * @return the matching rows, identified by their position in the segment
+     */
+    public BitSet filter(InlineTableSegment segment)
+    {
+        BitSet rows = new BitSet(segment.size());
+        rows.set(0, segment.size());
+        for (int c = 0; c < this.conditions.size() && !rows.isEmpty(); c++) {
+            InlineTableCondition condition = this.conditions.get(c);
+            BitSet selected = null;
+            for (Term term : condition.getTerms()) {
+                InlineTableInterruptions.check(this.owner);
+                BitSet termRows = select(segment, condition.getProperty(), term);
+                if (selected == null) {
+                    selected = termRows;
+                } else if (condition.isMatchAll()) {
+                    selected.and(termRows);
+                } else {
+                    selected.or(termRows);
+                }
+            }
+            rows.and(selected);
+        }
+
+        return rows;
+    }
+
+    private BitSet select(InlineTableSegment segment, String property, Term term)
+    {
+        switch (term.getKind()) {
+            case SEARCH:
+                return segment.getSearchIndex(this.textProperties, this.owner).search(term.getValue());
+            case DATE:
+                if (this.useDateIndex) {
+                    return segment.getDateIndex(property).select(term.getBegin(), term.getEnd());
+                }
+                return InlineTableRangeScan.select(segment.getDates(property), InlineTable.NO_DATE, term.getBegin(),
+                    term.getEnd(), this.owner);
+            default:
+                return selectText(segment.getColumn(property), segment.size(), term);
+        }
+    }
+
+    /**
+     * Selects the rows matching a text term, and the rows without value, which text terms do not apply to. Each
+     * distinct value of the column is matched once, the rows are then selected by the code of their value.
+     * 
+     * @param column the column of the constrained property
+     * @param size the number of rows of the segment
+     * @param term the text term
+     * @return the selected rows
+     */
+    private static BitSet selectText(InlineTableColumn column, int size, Term term)
+    {
+        boolean[] matching = new boolean[column.getDictionarySize()];
+        for (int code = 0; code < matching.length; code++) {
+            matching[code] = term.matches(column.getValue(code));
+        }
+
+        BitSet rows = new BitSet(size);
+        for (int row = 0; row < size; row++) {
+            int code = column.getCode(row);
+            if (code == InlineTableColumn.NO_VALUE || matching[code]) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Date;
+
+/**
+ * A LiveData query on an inline table that took longer than the configured threshold.
+ * 
+ * @version $Id$
+ */
+public class InlineTableSlowQuery
+{
+    private final Date date;
+
+    private final String hash;
+
+    private final int rows;
+
+    private final long decodeTime;
+
+    private final long filterTime;
+
+    private final long sortTime;
+
+    /**
+     * Constructor.
+     * 
+     * @param date the date of the query
+     * @param hash the hash of the queried table
+     * @param rows the number of rows of the table
+     * @param decodeTime the time spent getting the decoded table, in milliseconds
+     * @param filterTime the time spent filtering the rows, in milliseconds
+     * @param sortTime the time spent sorting the rows, in milliseconds
+     */
+    public InlineTableSlowQuery(Date date, String hash, int rows, long decodeTime, long filterTime, long sortTime)
+    {
+        this.date = date;
+        this.hash = hash;
+        this.rows = rows;
+        this.decodeTime = decodeTime;
+        this.filterTime = filterTime;
+        this.sortTime = sortTime;
+    }
+
+    /**
+     * @return the date of the query
+     */
+    public Date getDate()
+    {
+        return this.date;
+    }
+
+    /**
+     * @return the hash of the queried table
+     */
+    public String getHash()
+    {
+        return this.hash;
+    }
+
+    /**
+     * @return the number of rows of the table
+     */
+    public int getRows()
+    {
+        return this.rows;
+    }
+
+    /**
+     * @return the time spent getting the decoded table, in milliseconds
+     */
+    public long getDecodeTime()
+    {
+        return this.decodeTime;
+    }
+
+    /**
+     * @return the time spent filtering the rows, in milliseconds
+     */
+    public long getFilterTime()
+    {
+        return this.filterTime;
+    }
+
+    /**
+     * @return the time spent sorting the rows, in milliseconds
+     */
+    public long getSortTime()
+    {
+        return this.sortTime;
+    }
+
+    /**
+     * @return the total time of the query, in milliseconds
+     */
+    public long getTotalTime()
+    {
+        return this.decodeTime + this.filterTime + this.sortTime;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the keys used to sort rows of a table by a property. The keys are built for the sorted rows only, from the
+ * keys of the segments containing them, so the segments without any sorted row are not loaded. Text values are ranked
+ * within each segment, and the ranks of the segments are merged when the sorted rows belong to several segments.
+ * 
+ * @version $Id$
+ */
+public final class InlineTableSortKeys
+{
+    private InlineTableSortKeys()
+    {
+    }
+
+    /**
+     * Builds the sort keys of rows. Rows without a cell for the property come first, then the rows whose cell has no
+     * value, then the others by date for date columns, or by plain text value.
+     * 
+     * @param table the table
+     * @param rowIds the sorted rows, in table order
+     * @param property the sorted property, i.e. the column index
+     * @return the sort key of each row, by position in the given rows
+     */
+    public static long[] of(InlineTable table, int[] rowIds, String property)
+    {
+        boolean dateColumn = table.isDateColumn(property);
+
+        // The rows of a segment follow each other since the rows are in table order.
+        List<InlineTableSegment> segments = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < rowIds.length;) {
+            InlineTableSegment segment = table.getSegment(table.getSegmentIndex(rowIds[i]));
+            segments.add(segment);
+            starts.add(i);
+            int end = segment.getOffset() + segment.size();
+            while (i < rowIds.length && rowIds[i] < end) {
+                i++;
+            }
+        }
+        starts.add(rowIds.length);
+
+        long[][] globalRanks = dateColumn || segments.size() < 2 ? null : mergeRanks(segments, property);
+        long[] keys = new long[rowIds.length];
+        for (int s = 0; s < segments.size(); s++) {
+            InlineTableInterruptions.check();
+            InlineTableSegment segment = segments.get(s);
+            long[] segmentKeys = segment.getSortKeys(property, dateColumn);
+            for (int i = starts.get(s); i < starts.get(s + 1); i++) {
+                long key = segmentKeys[rowIds[i] - segment.getOffset()];
+                // Ranks are the only positive text keys.
+                keys[i] = globalRanks != null && key >= 0 ? globalRanks[s][(int) key] : key;
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Ranks the text values of several segments together.
+     * 
+     * @param segments the segments
+     * @param property the sorted property
+     * @return the rank among the values of all the segments of each value of each segment, by rank in the segment
+     */
+    private static long[][] mergeRanks(List<InlineTableSegment> segments, String property)
+    {
+        List<String[]> segmentValues = new ArrayList<>(segments.size());
+        int count = 0;
+        for (InlineTableSegment segment : segments) {
+            String[] values = segment.getSortedValues(property);
+            segmentValues.add(values);
+            count += values.length;
+        }
+
+        // The values of each segment are already sorted, which the sort takes advantage of.
+        String[] allValues = new String[count];
+        int length = 0;
+        for (String[] values : segmentValues) {
+            System.arraycopy(values, 0, allValues, length, values.length);
+            length += values.length;
+        }
+        Arrays.sort(allValues);
+        int distinct = 0;
+        for (int i = 0; i < allValues.length; i++) {
+            if (i == 0 || !allValues[i].equals(allValues[distinct - 1])) {
+                allValues[distinct++] = allValues[i];
+            }
+        }
+
+        long[][] ranks = new long[segmentValues.size()][];
+        for (int s = 0; s < ranks.length; s++) {
+            String[] values = segmentValues.get(s);
+            ranks[s] = new long[values.length];
+            for (int rank = 0; rank < values.length; rank++) {
+                ranks[s][rank] = Arrays.binarySearch(allValues, 0, distinct, values[rank]);
+            }
+        }
+        return ranks;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.List;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Collects statistics about the stored inline tables and the LiveData queries on them, to diagnose memory and latency
+ * problems.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableStatistics
+{
+    /**
+     * Called when a table is stored in the {@link InlineTableCache}.
+     * 
+     * @param hash the hash of the table
+     * @param payloadSize the length of the stored Base64
+     */
+    void onTableStored(String hash, int payloadSize);
+
+    /**
+     * Called when a table is removed from the {@link InlineTableCache}, either evicted or explicitly removed.
+     * 
+     * @param hash the hash of the table
+     */
+    void onTableRemoved(String hash);
+
+    /**
+     * Called when a table is decoded.
+     * 
+     * @param hash the hash of the table
+     * @param decodedSize the size of the JSON of the table once decompressed, in bytes
+     * @param rows the number of rows of the table
+     */
+    void onTableDecoded(String hash, long decodedSize, int rows);
+
+    /**
+     * Called when the stored Base64 of a table is looked up in the {@link InlineTableCache}.
+     * 
+     * @param hit {@code true} when it was found
+     */
+    void onPayloadLookup(boolean hit);
+
+    /**
+     * Called when a decoded table is looked up.
+     * 
+     * @param hit {@code true} when it was found
+     */
+    void onDecodedLookup(boolean hit);
+
+    /**
+     * Called when a LiveData query has been evaluated. Queries slower than the configured threshold are kept.
+     * 
+     * @param hash the hash of the queried table
+     * @param rows the number of rows of the table
+     * @param decodeTime the time spent getting the decoded table, in nanoseconds
+     * @param filterTime the time spent filtering the rows, in nanoseconds
+     * @param sortTime the time spent sorting the rows, in nanoseconds
+     */
+    void onQuery(String hash, int rows, long decodeTime, long filterTime, long sortTime);
+
+    /**
+     * @return the stored tables, the largest decoded ones first
+     */
+    List<InlineTableInfo> getTables();
+
+    /**
+     * @return the total length of the stored Base64
+     */
+    long getPayloadSize();
+
+    /**
+     * @return the number of stored Base64 found in the cache
+     */
+    long getPayloadHits();
+
+    /**
+     * @return the number of stored Base64 not found in the cache, including the inline tables
+     */
+    long getPayloadMisses();
+
+    /**
+     * @return the number of decoded tables found in memory
+     */
+    long getDecodedHits();
+
+    /**
+     * @return the number of tables that had to be decoded
+     */
+    long getDecodedMisses();
+
+    /**
+     * @return the number of tables removed from the cache
+     */
+    long getRemovals();
+
+    /**
+     * @return the most recent slow queries, the latest first
+     */
+    List<InlineTableSlowQuery> getSlowQueries();
+}
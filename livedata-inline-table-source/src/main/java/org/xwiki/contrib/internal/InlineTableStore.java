@@ -0,0 +1,69 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.livedata.LiveDataException;
+
+/**
+ * Store of the decoded inline tables.
+ * 
+ * @version $Id$
+ */
+@Role
+public interface InlineTableStore
+{
+    /**
+     * Gets the decoded table for the entries parameter received by the LiveData source.
+     * 
+     * @param entries the entries parameter, either the hash of a cached table or the encoded table itself
+     * @return the decoded table
+     * @throws LiveDataException when the table cannot be found or decoded
+     */
+    InlineTable get(String entries) throws LiveDataException;
+
+    /**
+     * Gets the schema of the table for the entries parameter received by the LiveData source, without decoding its
+     * rows when the table is not decoded yet.
+     * 
+     * @param entries the entries parameter, either the hash of a cached table or the encoded table itself
+     * @return the schema of the table, {@code null} when the table was stored without its schema
+     * @throws LiveDataException when the table cannot be found or decoded
+     */
+    InlineTableSchema getSchema(String entries) throws LiveDataException;
+
+    /**
+     * Indicates if the table of an entries parameter is already decoded, without decoding it.
+     * 
+     * @param entries the entries parameter, either the hash of a cached table or the encoded table itself
+     * @return {@code true} when the decoded table is in cache
+     */
+    boolean isDecoded(String entries);
+
+    /**
+     * Decodes a stored table and builds its per-column structures in the background, so that they are ready when the
+     * first LiveData query arrives. Queries arriving while the table is being prepared wait for it instead of decoding
+     * it again. Nothing is done when the table is already decoded or being decoded, or when too many tables are
+     * waiting to be prepared.
+     * 
+     * @param hash the hash of the stored table
+     */
+    void prepare(String hash);
+}
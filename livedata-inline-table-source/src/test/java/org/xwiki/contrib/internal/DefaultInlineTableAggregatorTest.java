@@ -0,0 +1,219 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for {@link DefaultInlineTableAggregator}, on the same table stored whole and split into chunks.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({DefaultInlineTableConfiguration.class, DefaultInlineTableCache.class,
+    DefaultInlineTableReferences.class, DefaultInlineTableStatistics.class, DefaultInlineTableStore.class,
+    DefaultInlineTableEncoder.class, DefaultInlineTableQueryEvaluator.class, DefaultInlineTableAggregator.class})
+class DefaultInlineTableAggregatorTest
+{
+    private static final String PREFIX = "livedata.inlineTable.";
+
+    private static final String NAME = "0";
+
+    private static final String DATE = "1";
+
+    private static final String AMOUNT = "2";
+
+    private static final String ALICE = "Alice";
+
+    private static final String BOB = "Bob";
+
+    private static final String FIRST_DATE = "2023-12-31T23:30:00Z";
+
+    private static final String LAST_DATE = "2024-02-29T23:00:00Z";
+
+    private static final String JANUARY = "2024-01-01";
+
+    private static final InlineTableSchema SCHEMA = new InlineTableSchema(List.of("Name", "Date", "Amount"),
+        List.of("String", "date", "String"), "yyyy-MM-dd", null, null);
+
+    private final MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private InlineTableAggregator aggregator;
+
+    private final List<InlineTable> tables = new ArrayList<>();
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        componentManager.registerComponent(CacheManager.class, new InlineTableTestCacheManager());
+        // Store all the tables.
+        this.configuration.setProperty(PREFIX + "inlineThreshold", 0);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", this.configuration);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.aggregator = this.componentManager.getInstance(InlineTableAggregator.class);
+        InlineTableEncoder encoder = this.componentManager.getInstance(InlineTableEncoder.class);
+        InlineTableStore tableStore = this.componentManager.getInstance(InlineTableStore.class);
+
+        // The same table, whole and split into chunks of 2 rows.
+        for (int chunkSize : new int[] {1024, 2}) {
+            this.configuration.setProperty(PREFIX + "chunkSize", chunkSize);
+            this.tables.add(tableStore.get(encoder.encode(SCHEMA, createRows().iterator(), null)));
+        }
+    }
+
+    @Test
+    void aggregateNumbers()
+    {
+        for (InlineTable table : this.tables) {
+            InlineTableAggregation aggregation = this.aggregator.aggregate(table, AMOUNT, List.of(), null, null);
+            assertEquals(7, aggregation.getCount());
+            assertEquals(5, aggregation.getNumberCount());
+            assertEquals(72.5, aggregation.getSum());
+            assertEquals(14.5, aggregation.getAverage());
+            assertEquals(5, aggregation.getMin());
+            assertEquals(30, aggregation.getMax());
+            assertEquals(0, aggregation.getDateCount());
+            assertNull(aggregation.getMinDate());
+            assertNull(aggregation.getDateHistogram());
+        }
+    }
+
+    @Test
+    void aggregateFilteredRows()
+    {
+        for (InlineTable table : this.tables) {
+            InlineTableAggregation aggregation =
+                this.aggregator.aggregate(table, AMOUNT, List.of(new Filter(NAME, "equals", ALICE)), null, null);
+            assertEquals(4, aggregation.getCount());
+            assertEquals(3, aggregation.getNumberCount());
+            assertEquals(47.5, aggregation.getSum());
+            assertEquals(7.5, aggregation.getMin());
+            assertEquals(30, aggregation.getMax());
+
+            aggregation = this.aggregator.aggregate(table, AMOUNT, List.of(new Filter(NAME, "equals", "Carol")), null,
+                null);
+            assertEquals(0, aggregation.getCount());
+            assertNull(aggregation.getAverage());
+            assertNull(aggregation.getMin());
+        }
+    }
+
+    @Test
+    void aggregateDates()
+    {
+        for (InlineTable table : this.tables) {
+            InlineTableAggregation aggregation = this.aggregator.aggregate(table, DATE, List.of(), null, null);
+            assertEquals(6, aggregation.getDateCount());
+            assertEquals(Instant.parse(FIRST_DATE).getEpochSecond(), aggregation.getMinDate());
+            assertEquals(Instant.parse(LAST_DATE).getEpochSecond(), aggregation.getMaxDate());
+            assertEquals(0, aggregation.getNumberCount());
+        }
+    }
+
+    @Test
+    void histogram()
+    {
+        assertHistogram(InlineTableDateInterval.DAY, ZoneOffset.UTC, "2023-12-31", 1L, JANUARY, 2L, "2024-01-03", 1L,
+            "2024-02-10", 1L, "2024-02-29", 1L);
+        assertHistogram(InlineTableDateInterval.WEEK, ZoneOffset.UTC, "2023-12-25", 1L, JANUARY, 3L, "2024-02-05", 1L,
+            "2024-02-26", 1L);
+        assertHistogram(InlineTableDateInterval.MONTH, ZoneOffset.UTC, "2023-12-01", 1L, JANUARY, 3L, "2024-02-01",
+            2L);
+        // The first and last dates are in the next month in Paris.
+        assertHistogram(InlineTableDateInterval.MONTH, ZoneId.of("Europe/Paris"), JANUARY, 4L, "2024-02-01", 1L,
+            "2024-03-01", 1L);
+    }
+
+    private void assertHistogram(InlineTableDateInterval interval, ZoneId zone, Object... expected)
+    {
+        Map<String, Long> expectedHistogram = new LinkedHashMap<>();
+        for (int i = 0; i < expected.length; i += 2) {
+            expectedHistogram.put((String) expected[i], (Long) expected[i + 1]);
+        }
+        for (InlineTable table : this.tables) {
+            Map<String, Long> histogram = this.aggregator.aggregate(table, DATE, List.of(), interval, zone)
+                .getDateHistogram();
+            // The buckets are in chronological order.
+            assertEquals(new ArrayList<>(expectedHistogram.entrySet()), new ArrayList<>(histogram.entrySet()));
+        }
+    }
+
+    private static List<Map<String, Object>> createRows()
+    {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(createRow(ALICE, "2024-01-01T10:00:00Z", "10"));
+        rows.add(createRow(BOB, "2024-01-01T23:30:00Z", "20"));
+        rows.add(createRow(ALICE, "2024-01-03T00:00:00Z", "n/a"));
+        rows.add(createRow(BOB, null, "5"));
+        rows.add(createRow(ALICE, "2024-02-10T12:00:00Z", "7.5"));
+        rows.add(createRow(BOB, LAST_DATE, null));
+        rows.add(createRow(ALICE, FIRST_DATE, "30"));
+        return rows;
+    }
+
+    private static Map<String, Object> createRow(String name, String date, String amount)
+    {
+        Map<String, Object> row = new HashMap<>();
+        putCell(row, NAME, name);
+        if (date != null) {
+            putCell(row, DATE, date.substring(0, 10));
+            row.put("date." + DATE, Instant.parse(date).getEpochSecond());
+        }
+        putCell(row, AMOUNT, amount);
+        return row;
+    }
+
+    private static void putCell(Map<String, Object> row, String property, String value)
+    {
+        if (value != null) {
+            row.put(property, value);
+            row.put("text." + property, value);
+        }
+    }
+}
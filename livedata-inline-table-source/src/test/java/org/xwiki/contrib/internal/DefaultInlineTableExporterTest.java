@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultInlineTableExporter}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class DefaultInlineTableExporterTest
+{
+    private static final String HASH = "table";
+
+    private static final String NAME = "Name";
+
+    @InjectMockComponents
+    private DefaultInlineTableExporter exporter;
+
+    @MockComponent
+    private InlineTableQueryRunner queryRunner;
+
+    @MockComponent
+    private InlineTableConfiguration configuration;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        when(this.configuration.getMaxExportRows()).thenReturn(3);
+
+        // Two columns have the same name.
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(createRow("=1+2", "-5", "a,b"));
+        rows.add(createRow("+cmd", "-1.5e3", "\tx"));
+        rows.add(createRow("@x", "-abc", "\ry"));
+        String type = "String";
+        InlineTableSchema schema =
+            new InlineTableSchema(List.of(NAME, "Amount", NAME), List.of(type, type, type), null, null, null);
+        InlineTable table = new InlineTable(HASH, schema, rows);
+        when(this.queryRunner.run(eq(HASH), any(), isNull()))
+            .thenReturn(new InlineTableQueryResult(table, new int[] {0, 1, 2}));
+    }
+
+    @Test
+    void exportCSV() throws Exception
+    {
+        // The cells starting like a formula are escaped, except the numbers.
+        assertEquals("Name,Amount,Name (2)\r\n"
+            + "'=1+2,-5,\"a,b\"\r\n"
+            + "'+cmd,-1.5e3,'\tx\r\n"
+            + "'@x,'-abc,\"'\ry\"\r\n", export(new LiveDataQuery(), InlineTableExportFormat.CSV));
+    }
+
+    @Test
+    void exportNDJSON() throws Exception
+    {
+        // The keys are unique, and the values are exported as is.
+        assertEquals("{\"Name\":\"=1+2\",\"Amount\":\"-5\",\"Name (2)\":\"a,b\"}\n"
+            + "{\"Name\":\"+cmd\",\"Amount\":\"-1.5e3\",\"Name (2)\":\"\\tx\"}\n"
+            + "{\"Name\":\"@x\",\"Amount\":\"-abc\",\"Name (2)\":\"\\ry\"}\n",
+            export(new LiveDataQuery(), InlineTableExportFormat.NDJSON));
+    }
+
+    @Test
+    void exportPropertiesThatAreNotColumns() throws Exception
+    {
+        LiveDataQuery query = new LiveDataQuery();
+        query.setProperties(List.of("1", "99999999999", "x"));
+
+        assertEquals("Amount,99999999999,x\r\n-5,,\r\n-1.5e3,,\r\n'-abc,,\r\n",
+            export(query, InlineTableExportFormat.CSV));
+    }
+
+    @Test
+    void exportTooManyRows() throws Exception
+    {
+        when(this.configuration.getMaxExportRows()).thenReturn(2);
+
+        assertThrows(LiveDataException.class, () -> export(new LiveDataQuery(), InlineTableExportFormat.CSV));
+    }
+
+    @Test
+    void exportRowsThatCannotBeRead() throws Exception
+    {
+        InlineTable table = mock(InlineTable.class);
+        when(table.getEntries()).thenReturn(new AbstractList<>()
+        {
+            @Override
+            public Map<String, Object> get(int index)
+            {
+                throw new IllegalStateException("The chunk of the table starting at row 0 was not found.");
+            }
+
+            @Override
+            public int size()
+            {
+                return 1;
+            }
+        });
+        when(this.queryRunner.run(eq(HASH), any(), isNull()))
+            .thenReturn(new InlineTableQueryResult(table, new int[] {0}));
+
+        LiveDataQuery query = new LiveDataQuery();
+        query.setProperties(List.of("0"));
+        assertThrows(LiveDataException.class, () -> export(query, InlineTableExportFormat.NDJSON));
+    }
+
+    private String export(LiveDataQuery query, InlineTableExportFormat format) throws Exception
+    {
+        query.initialize();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.exporter.export(HASH, query, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, Object> createRow(String... values)
+    {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            row.put(String.valueOf(i), values[i]);
+            row.put("text." + i, values[i]);
+        }
+        return row;
+    }
+}
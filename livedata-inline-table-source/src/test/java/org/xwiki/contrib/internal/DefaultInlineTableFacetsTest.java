@@ -0,0 +1,168 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Unit tests for {@link DefaultInlineTableFacets}, on the same table stored whole and split into chunks.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({DefaultInlineTableConfiguration.class, DefaultInlineTableCache.class,
+    DefaultInlineTableReferences.class, DefaultInlineTableStatistics.class, DefaultInlineTableStore.class,
+    DefaultInlineTableEncoder.class, DefaultInlineTableQueryEvaluator.class, DefaultInlineTableFacets.class})
+class DefaultInlineTableFacetsTest
+{
+    private static final String PREFIX = "livedata.inlineTable.";
+
+    private static final String NAME = "0";
+
+    private static final String DATE = "1";
+
+    private static final String ALICE = "Alice";
+
+    private static final String BOB = "Bob";
+
+    private static final String CAROL = "Carol";
+
+    private static final InlineTableSchema SCHEMA = new InlineTableSchema(List.of("Name", "Date"),
+        List.of("String", "date"), "yyyy-MM-dd", null, null);
+
+    private final MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private InlineTableFacets facets;
+
+    private final List<InlineTable> tables = new ArrayList<>();
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        componentManager.registerComponent(CacheManager.class, new InlineTableTestCacheManager());
+        // Store all the tables.
+        this.configuration.setProperty(PREFIX + "inlineThreshold", 0);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", this.configuration);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.facets = this.componentManager.getInstance(InlineTableFacets.class);
+        InlineTableEncoder encoder = this.componentManager.getInstance(InlineTableEncoder.class);
+        InlineTableStore tableStore = this.componentManager.getInstance(InlineTableStore.class);
+
+        // The same table, whole and split into chunks of 2 rows.
+        for (int chunkSize : new int[] {1024, 2}) {
+            this.configuration.setProperty(PREFIX + "chunkSize", chunkSize);
+            this.tables.add(tableStore.get(encoder.encode(SCHEMA, createRows().iterator(), null)));
+        }
+    }
+
+    @Test
+    void countAllRows()
+    {
+        assertFacets(NAME, List.of(), ALICE, 3, BOB, 2, CAROL, 1, "alice", 1);
+    }
+
+    @Test
+    void ignoreTheFilterOfTheFacetedColumn()
+    {
+        assertFacets(NAME, List.of(new Filter(NAME, "equals", BOB)), ALICE, 3, BOB, 2, CAROL, 1, "alice", 1);
+    }
+
+    @Test
+    void countFilteredRows()
+    {
+        // Undated rows match the date filters.
+        assertFacets(NAME, List.of(new Filter(DATE, "after", "2021-01-01T00:00:00Z")), ALICE, 2, CAROL, 1, BOB, 1);
+        assertFacets(DATE, List.of(new Filter(NAME, "startsWith", "b")), "2020-01-01", 1, "2022-01-01", 1);
+    }
+
+    @Test
+    void cacheFacets()
+    {
+        for (InlineTable table : this.tables) {
+            assertSame(this.facets.getFacets(table, NAME, List.of()), this.facets.getFacets(table, NAME, List.of()));
+        }
+    }
+
+    private void assertFacets(String property, List<Filter> filters, Object... expected)
+    {
+        Map<String, Integer> expectedFacets = new LinkedHashMap<>();
+        for (int i = 0; i < expected.length; i += 2) {
+            expectedFacets.put((String) expected[i], (Integer) expected[i + 1]);
+        }
+        for (InlineTable table : this.tables) {
+            Map<String, Integer> actualFacets = this.facets.getFacets(table, property, filters);
+            // The order of the facets matters: by decreasing count, then in table order.
+            assertEquals(new ArrayList<>(expectedFacets.entrySet()), new ArrayList<>(actualFacets.entrySet()));
+        }
+    }
+
+    private static List<Map<String, Object>> createRows()
+    {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(createRow(ALICE, "2020-01-01"));
+        rows.add(createRow(BOB, "2020-01-01"));
+        rows.add(createRow(ALICE, "2021-06-01"));
+        rows.add(createRow(CAROL, null));
+        rows.add(createRow("alice", "2020-06-01"));
+        rows.add(createRow(ALICE, null));
+        rows.add(createRow(BOB, "2022-01-01"));
+        return rows;
+    }
+
+    private static Map<String, Object> createRow(String name, String date)
+    {
+        Map<String, Object> row = new HashMap<>();
+        row.put(NAME, name);
+        row.put("text." + NAME, name);
+        if (date != null) {
+            row.put(DATE, date);
+            row.put("text." + DATE, date);
+            row.put("date." + DATE, Instant.parse(date + "T00:00:00Z").getEpochSecond());
+        }
+        return row;
+    }
+}
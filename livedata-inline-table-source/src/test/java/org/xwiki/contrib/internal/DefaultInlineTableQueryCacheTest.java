@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Unit tests for {@link DefaultInlineTableQueryCache}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({DefaultInlineTableConfiguration.class, DefaultInlineTableCache.class,
+    DefaultInlineTableReferences.class, DefaultInlineTableStatistics.class, DefaultInlineTableQueryCache.class})
+class DefaultInlineTableQueryCacheTest
+{
+    // The number of query results kept per table.
+    private static final int QUERIES = 16;
+
+    private static final String HASH = "hash";
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private InlineTableQueryCache queryCache;
+
+    private InlineTableCache inlineTableCache;
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        componentManager.registerComponent(CacheManager.class, new InlineTableTestCacheManager());
+        MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+        // Room for 4 results of 10 rows.
+        configuration.setProperty("livedata.inlineTable.query.cacheSize", 40);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", configuration);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.inlineTableCache = this.componentManager.getInstance(InlineTableCache.class);
+        this.queryCache = this.componentManager.getInstance(InlineTableQueryCache.class);
+    }
+
+    @Test
+    void setConcurrently() throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(QUERIES);
+        try {
+            for (int round = 0; round < 100; round++) {
+                String hash = HASH + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> sets = new ArrayList<>();
+                for (int i = 0; i < QUERIES; i++) {
+                    int query = i;
+                    sets.add(executor.submit(() -> {
+                        start.await();
+                        this.queryCache.set(hash, String.valueOf(query), new int[] {query});
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> set : sets) {
+                    set.get();
+                }
+
+                // The first results of a table are not replaced by the results created at the same time.
+                for (int i = 0; i < QUERIES; i++) {
+                    assertArrayEquals(new int[] {i}, this.queryCache.get(hash, String.valueOf(i)));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void dropOldestResultsOverBudget()
+    {
+        for (int i = 0; i < 4; i++) {
+            this.queryCache.set(HASH + (i % 2), String.valueOf(i), new int[10]);
+        }
+        // The first result of the first table is used again, the oldest result is now the second one.
+        assertArrayEquals(new int[10], this.queryCache.get(HASH + 0, "0"));
+
+        this.queryCache.set(HASH + 0, "4", new int[10]);
+
+        assertNull(this.queryCache.get(HASH + 1, "1"));
+        for (int i : new int[] {0, 2, 3, 4}) {
+            assertArrayEquals(new int[10], this.queryCache.get(HASH + (i % 2), String.valueOf(i)));
+        }
+
+        // The results larger than a quarter of the budget are not cached, and do not evict the others.
+        this.queryCache.set(HASH + 0, "5", new int[11]);
+        assertNull(this.queryCache.get(HASH + 0, "5"));
+        assertArrayEquals(new int[10], this.queryCache.get(HASH + 1, "3"));
+    }
+
+    @Test
+    void invalidateWhenPayloadIsRemoved() throws Exception
+    {
+        this.inlineTableCache.getCache().set(HASH, "payload");
+        this.queryCache.set(HASH, "query", new int[] {1, 0});
+        assertArrayEquals(new int[] {1, 0}, this.queryCache.get(HASH, "query"));
+
+        this.inlineTableCache.remove(HASH);
+
+        assertNull(this.queryCache.get(HASH, "query"));
+    }
+}
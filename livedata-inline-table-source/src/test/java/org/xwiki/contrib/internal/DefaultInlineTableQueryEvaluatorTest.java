@@ -0,0 +1,293 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Unit tests for {@link DefaultInlineTableQueryEvaluator}. Each query is evaluated on the same table stored whole and
+ * split into chunks, sequentially and in parallel, with and without the date index, and must give the same result.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({DefaultInlineTableConfiguration.class, DefaultInlineTableCache.class,
+    DefaultInlineTableReferences.class, DefaultInlineTableStatistics.class, DefaultInlineTableStore.class,
+    DefaultInlineTableEncoder.class, DefaultInlineTableQueryEvaluator.class})
+class DefaultInlineTableQueryEvaluatorTest
+{
+    private static final String PREFIX = "livedata.inlineTable.";
+
+    private static final String CHUNK_SIZE = PREFIX + "chunkSize";
+
+    private static final String PARALLEL_THRESHOLD = PREFIX + "query.parallelThreshold";
+
+    private static final String DATE_INDEX = PREFIX + "query.dateIndex";
+
+    private static final String NAME = "0";
+
+    private static final String DATE = "1";
+
+    private static final String AMOUNT = "2";
+
+    private static final String CONTAINS = "contains";
+
+    private static final String STARTS_WITH = "startsWith";
+
+    private static final String EQUALS = "equals";
+
+    private static final String BETWEEN = "between";
+
+    private static final String AFTER = "after";
+
+    private static final String ALICE = "Alice";
+
+    private static final InlineTableSchema SCHEMA = new InlineTableSchema(List.of("Name", "Date", "Amount"),
+        List.of("String", "date", "String"), "yyyy-MM-dd", null, null);
+
+    private final MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private InlineTableQueryEvaluator evaluator;
+
+    private final List<InlineTable> tables = new ArrayList<>();
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        componentManager.registerComponent(CacheManager.class, new InlineTableTestCacheManager());
+        // Store all the tables.
+        this.configuration.setProperty(PREFIX + "inlineThreshold", 0);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", this.configuration);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.evaluator = this.componentManager.getInstance(InlineTableQueryEvaluator.class);
+        InlineTableEncoder encoder = this.componentManager.getInstance(InlineTableEncoder.class);
+        InlineTableStore tableStore = this.componentManager.getInstance(InlineTableStore.class);
+
+        // The same table, whole and split into chunks of 3 rows.
+        for (int chunkSize : new int[] {1024, 3}) {
+            this.configuration.setProperty(CHUNK_SIZE, chunkSize);
+            this.tables.add(tableStore.get(encoder.encode(SCHEMA, createRows().iterator(), null)));
+        }
+    }
+
+    @Test
+    void filterText()
+    {
+        assertRows(List.of(new Filter(NAME, CONTAINS, "ali")), 0, 2, 4, 7);
+        assertRows(List.of(new Filter(NAME, STARTS_WITH, "bo")), 1, 4, 5);
+        assertRows(List.of(new Filter(NAME, EQUALS, ALICE)), 0, 4, 7);
+        assertRows(List.of(new Filter(AMOUNT, EQUALS, "10")), 0, 6, 7);
+    }
+
+    @Test
+    void filterDates()
+    {
+        assertRows(List.of(new Filter(DATE, BETWEEN, "2020-01-01T00:00:00Z/2020-12-31T23:59:59Z")), 0, 1, 2, 4, 7);
+        assertRows(List.of(new Filter(DATE, BETWEEN, "/2020-01-31T00:00:00Z")), 0, 2, 4, 5);
+        assertRows(List.of(new Filter(DATE, "before", "2020-01-01T00:00:00Z")), 2, 5);
+        assertRows(List.of(new Filter(DATE, AFTER, "2021-01-01T00:00:00Z")), 2, 3, 6);
+        assertRows(List.of(new Filter(DATE, EQUALS, "2020-01-10")), 0, 2, 4);
+    }
+
+    @Test
+    void filterWithIgnoredConstraints()
+    {
+        assertRows(List.of(new Filter(DATE, BETWEEN, "yesterday/today")), 0, 1, 2, 3, 4, 5, 6, 7);
+        assertRows(List.of(new Filter(NAME, "unknown", ALICE)), 0, 1, 2, 3, 4, 5, 6, 7);
+        assertRows(List.of(new Filter(NAME, EQUALS, null)), 0, 1, 2, 3, 4, 5, 6, 7);
+    }
+
+    @Test
+    void search()
+    {
+        assertRows(List.of(new Filter(InlineTableLiveDataEntryStore.INLINE_SEARCH, CONTAINS, "ali")), 0, 2, 7);
+    }
+
+    @Test
+    void filterAllConstraints()
+    {
+        assertRows(List.of(filter(NAME, true, CONTAINS, "a", STARTS_WITH, "al")), 0, 2, 4, 7);
+        assertRows(List.of(new Filter(NAME, CONTAINS, "a"), new Filter(DATE, AFTER, "2020-02-01T00:00:00Z")), 2,
+            3, 6, 7);
+    }
+
+    @Test
+    void filterAnyConstraint()
+    {
+        assertRows(List.of(filter(NAME, false, EQUALS, "Bob", EQUALS, "Carol")), 1, 3, 4);
+        assertRows(List.of(filter(DATE, false, BETWEEN, "2019-01-01T00:00:00Z/2019-12-31T23:59:59Z", AFTER,
+            "2021-12-31T00:00:00Z")), 2, 5, 6);
+        // A row matching the date term of the filter does not need to match its text term.
+        assertRows(List.of(filter(DATE, false, BETWEEN, "2021-01-01T00:00:00Z/", STARTS_WITH, "2019")), 2, 3, 5, 6);
+        // The terms that cannot be evaluated are dropped.
+        assertRows(List.of(filter(NAME, false, EQUALS, "Bob", BETWEEN, "invalid")), 1, 4);
+    }
+
+    @Test
+    void filterSamePropertyTwice()
+    {
+        assertRows(List.of(new Filter(NAME, CONTAINS, "a"), new Filter(NAME, STARTS_WITH, "c")), 3, 4);
+    }
+
+    @Test
+    void sort()
+    {
+        List<Filter> noFilter = List.of();
+        assertRows(noFilter, List.of(new SortEntry(NAME)), 4, 0, 7, 1, 3, 6, 2, 5);
+        assertRows(noFilter, List.of(new SortEntry(NAME, true)), 5, 2, 6, 3, 1, 0, 7, 4);
+        assertRows(noFilter, List.of(new SortEntry(DATE)), 2, 5, 4, 0, 1, 7, 3, 6);
+        assertRows(noFilter, List.of(new SortEntry(AMOUNT)), 6, 0, 7, 5, 1, 2, 3, 4);
+        assertRows(noFilter, List.of(new SortEntry(NAME), new SortEntry(DATE, true)), 4, 7, 0, 1, 3, 6, 2, 5);
+        assertRows(List.of(new Filter(NAME, CONTAINS, "ali")), List.of(new SortEntry(NAME)), 4, 0, 7, 2);
+    }
+
+    @Test
+    void onlyLoadChunksThatMayMatch()
+    {
+        // A table split into chunks of 3 rows, whose loaded chunks are recorded.
+        List<Map<String, Object>> rows = createRows();
+        List<InlineTableChunk> chunks = new ArrayList<>();
+        for (int offset = 0; offset < rows.size(); offset += 3) {
+            chunks.add(InlineTableChunk.of(String.valueOf(offset), offset,
+                rows.subList(offset, Math.min(offset + 3, rows.size())), 3, 0));
+        }
+        Set<Integer> loaded = new TreeSet<>();
+        InlineTable table = new InlineTable("chunked", SCHEMA, chunks, chunk -> {
+            loaded.add(chunk.getOffset());
+            return new InlineTableSegment(chunk.getOffset(),
+                rows.subList(chunk.getOffset(), chunk.getOffset() + chunk.getSize()));
+        });
+
+        BitSet all = this.evaluator.filter(table, List.of());
+        assertEquals(8, all.cardinality());
+        assertEquals(Set.of(), loaded);
+
+        // The dates of the second chunk are all before the range.
+        BitSet matching = this.evaluator.filter(table,
+            InlineTableCondition.of(SCHEMA, List.of(new Filter(DATE, AFTER, "2021-06-01T00:00:00Z"))));
+        assertArrayEquals(new int[] {6, 2}, this.evaluator.sort(table, matching, List.of(new SortEntry(NAME))));
+        assertEquals(Set.of(0, 6), loaded);
+    }
+
+    private void assertRows(List<Filter> filters, int... expected)
+    {
+        assertRows(filters, List.of(), expected);
+    }
+
+    private void assertRows(List<Filter> filters, List<SortEntry> sort, int... expected)
+    {
+        for (InlineTable table : this.tables) {
+            for (int parallelThreshold : new int[] {Integer.MAX_VALUE, 0}) {
+                for (boolean dateIndex : new boolean[] {true, false}) {
+                    this.configuration.setProperty(PARALLEL_THRESHOLD, parallelThreshold);
+                    this.configuration.setProperty(DATE_INDEX, dateIndex);
+                    BitSet rows =
+                        this.evaluator.filter(table, InlineTableCondition.of(table.getSchema(), filters));
+                    int[] rowIds = this.evaluator.sort(table, rows, sort);
+                    if (sort.isEmpty()) {
+                        Arrays.sort(rowIds);
+                    }
+                    assertArrayEquals(expected, rowIds, String.format("chunks: %s, parallel: %s, date index: %s",
+                        table.getChunks() != null, parallelThreshold == 0, dateIndex));
+                }
+            }
+        }
+    }
+
+    private static Filter filter(String property, boolean matchAll, String... constraints)
+    {
+        Filter filter = new Filter();
+        filter.setProperty(property);
+        filter.setMatchAll(matchAll);
+        for (int i = 0; i < constraints.length; i += 2) {
+            filter.getConstraints().add(new Constraint(constraints[i + 1], constraints[i]));
+        }
+        return filter;
+    }
+
+    private static List<Map<String, Object>> createRows()
+    {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(createRow(ALICE, "2020-01-10T12:00:00Z", "10"));
+        rows.add(createRow("Bob", "2020-02-15T00:00:00Z", "20"));
+        rows.add(createRow("alicia", null, "30"));
+        rows.add(createRow("Carol", "2021-05-01T00:00:00Z", "5"));
+        rows.add(createRow(null, "2020-01-10T08:00:00Z", "7"));
+        rows.add(createRow("bob", "2019-12-31T23:00:00Z", "100"));
+        rows.add(createRow("Dave", "2022-01-01T00:00:00Z", null));
+        rows.add(createRow(ALICE, "2020-03-01T00:00:00Z", "10"));
+        return rows;
+    }
+
+    private static Map<String, Object> createRow(String name, String date, String amount)
+    {
+        Map<String, Object> row = new HashMap<>();
+        putCell(row, NAME, name);
+        if (date != null) {
+            String day = date.substring(0, 10);
+            putCell(row, DATE, day);
+            row.put("date." + DATE, Instant.parse(date).getEpochSecond());
+        } else {
+            putCell(row, DATE, "");
+        }
+        putCell(row, AMOUNT, amount);
+        return row;
+    }
+
+    private static void putCell(Map<String, Object> row, String property, String value)
+    {
+        if (value != null) {
+            row.put(property, value);
+            row.put("text." + property, value);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link DefaultInlineTableStore}, with the cache of the stored tables.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({DefaultInlineTableConfiguration.class, DefaultInlineTableCache.class,
+    DefaultInlineTableReferences.class, DefaultInlineTableStatistics.class, DefaultInlineTableStore.class,
+    DefaultInlineTableEncoder.class})
+class DefaultInlineTableStoreTest
+{
+    // The maximum idle time of the stored tables, in seconds.
+    private static final int MAX_IDLE = 3600;
+
+    private static final InlineTableSchema SCHEMA =
+        new InlineTableSchema(List.of("Name"), List.of("String"), null, null, null);
+
+    private final InlineTableTestCacheManager cacheManager = new InlineTableTestCacheManager();
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private InlineTableStore tableStore;
+
+    private InlineTableEncoder encoder;
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        componentManager.registerComponent(CacheManager.class, this.cacheManager);
+
+        MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+        // Store all the tables, split into chunks of 10 rows.
+        configuration.setProperty("livedata.inlineTable.inlineThreshold", 0);
+        configuration.setProperty("livedata.inlineTable.chunkSize", 10);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", configuration);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.tableStore = this.componentManager.getInstance(InlineTableStore.class);
+        this.encoder = this.componentManager.getInstance(InlineTableEncoder.class);
+    }
+
+    @Test
+    void queryTablePastMaxIdle() throws Exception
+    {
+        String hash = this.encoder.encode(SCHEMA, createRows(100).iterator(), null);
+        InlineTable table = this.tableStore.get(hash);
+        assertEquals(100, table.getChunks().size() * 10);
+        readAllRows(table);
+
+        // Each query is served from the decoded table, and keeps its payloads in use.
+        for (int i = 0; i < 3; i++) {
+            this.cacheManager.advance(MAX_IDLE - 1);
+            assertSame(table, this.tableStore.get(hash));
+        }
+        readAllRows(this.tableStore.get(hash));
+    }
+
+    @Test
+    void queryChunkedTableAfterChunksWereEvicted() throws Exception
+    {
+        String hash = this.encoder.encode(SCHEMA, createRows(100).iterator(), null);
+        InlineTable table = this.tableStore.get(hash);
+        readAllRows(table);
+
+        // Only the first chunk is read by the queries, the other chunks are only needed much later.
+        for (int i = 0; i < 3; i++) {
+            this.cacheManager.advance(MAX_IDLE - 1);
+            this.tableStore.get(hash).getEntries().get(0);
+        }
+        readAllRows(this.tableStore.get(hash));
+    }
+
+    @Test
+    void queryIdleTable() throws Exception
+    {
+        String hash = this.encoder.encode(SCHEMA, createRows(100).iterator(), null);
+        readAllRows(this.tableStore.get(hash));
+
+        this.cacheManager.advance(MAX_IDLE + 1);
+
+        assertThrows(LiveDataException.class, () -> this.tableStore.get(hash));
+    }
+
+    @Test
+    void getChunkedTableNotStored() throws Exception
+    {
+        String hash = this.encoder.encode(SCHEMA, createRows(100).iterator(), null);
+        String storedB64 = this.componentManager.<InlineTableCache>getInstance(InlineTableCache.class).getCache()
+            .get(hash);
+        String json;
+        byte[] stored = Base64.getUrlDecoder().decode(storedB64);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+            json = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        // A table received inline could reference any chunk, only the stored tables are split into chunks.
+        String entriesB64 = compress(json + ' ');
+        assertThrows(LiveDataException.class, () -> this.tableStore.get(entriesB64));
+        assertEquals(100, this.tableStore.get(hash).size());
+    }
+
+    @Test
+    void getSchemaWithoutDecodingRows() throws Exception
+    {
+        // A stored table whose rows are truncated.
+        String hash = "truncated";
+        this.componentManager.<InlineTableCache>getInstance(InlineTableCache.class).getCache().set(hash,
+            compress("{\"fields\":[\"Name\"],\"types\":[\"String\"],\"entries\":[{\"0\":"));
+
+        assertEquals(SCHEMA.getFields(), this.tableStore.getSchema(hash).getFields());
+        assertThrows(LiveDataException.class, () -> this.tableStore.get(hash));
+    }
+
+    @Test
+    void getSchemaOfDecodedTable() throws Exception
+    {
+        String hash = this.encoder.encode(SCHEMA, createRows(100).iterator(), null);
+        InlineTable table = this.tableStore.get(hash);
+
+        assertSame(table.getSchema(), this.tableStore.getSchema(hash));
+    }
+
+    private static String compress(String json) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return Base64.getUrlEncoder().encodeToString(compressed.toByteArray());
+    }
+
+    private static List<Map<String, Object>> createRows(int count)
+    {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("0", "Row " + i);
+            row.put("text.0", "Row " + i);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static void readAllRows(InlineTable table)
+    {
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals("Row " + i, table.getEntries().get(i).get("text.0"));
+        }
+    }
+}
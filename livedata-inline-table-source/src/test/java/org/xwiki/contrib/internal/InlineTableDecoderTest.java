@@ -0,0 +1,300 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link InlineTableDecoder}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList(DefaultInlineTableConfiguration.class)
+class InlineTableDecoderTest
+{
+    private static final String HASH = "hash";
+
+    private static final String LIMITS = "livedata.inlineTable.limits.";
+
+    // The segments are not loaded by these tests.
+    private static final Function<InlineTableChunk, InlineTableSegment> SEGMENT_LOADER = chunk -> null;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private InlineTableDecoder decoder;
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+        configuration.setProperty(LIMITS + "rows", 10);
+        configuration.setProperty(LIMITS + "columns", 2);
+        configuration.setProperty(LIMITS + "cellLength", 10);
+        configuration.setProperty(LIMITS + "decompressedSize", 1000);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", configuration);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        this.decoder = new InlineTableDecoder(this.componentManager.getInstance(InlineTableConfiguration.class));
+    }
+
+    @Test
+    void decodeChunks() throws Exception
+    {
+        InlineTable table =
+            this.decoder.decode(HASH, compress(chunks(chunk(0, 3), chunk(3, 3), chunk(6, 2))), SEGMENT_LOADER);
+
+        assertEquals(8, table.size());
+        assertEquals(3, table.getSegmentCount());
+        assertEquals(2, table.getSegmentIndex(7));
+        // The size of the chunks counts towards the size of the table.
+        assertEquals(30, this.decoder.getDecompressedSize() - chunks(chunk(0, 3), chunk(3, 3), chunk(6, 2)).length());
+    }
+
+    @Test
+    void decodeChunksOfTableNotStored()
+    {
+        // Only the stored tables can be split into chunks.
+        assertThrows(IOException.class,
+            () -> this.decoder.decode(HASH, compress(chunks(chunk(0, 3), chunk(3, 3), chunk(6, 2))), null));
+    }
+
+    @Test
+    void decodeChunksNotStored()
+    {
+        // The entries of a chunk are the hash of its stored payload, never the payload itself.
+        assertInvalid(chunks("{\"entries\":\"H4sIAAAAAAAAAItWqlWKBQAS7I_pAgAAAA\",\"offset\":0,\"rows\":1,"
+            + "\"bytes\":10,\"columns\":{}}"));
+        assertInvalid(chunks("{\"offset\":0,\"rows\":1,\"bytes\":10,\"columns\":{}}"));
+    }
+
+    @Test
+    void decodeChunksWithoutSize()
+    {
+        assertInvalid(chunks(chunk(0, 3, 0)));
+    }
+
+    @Test
+    void decodeChunksLargerThanTable()
+    {
+        // The chunks are within the row limit, but not within the size limit of the table.
+        assertLimitExceeded(chunks(chunk(0, 5, 500), chunk(5, 5, 500)));
+    }
+
+    @Test
+    void decodeChunk() throws Exception
+    {
+        InlineTableChunk chunk = chunk(3, 2, "[{\"0\":\"a\"},{\"0\":\"b\"}]");
+        List<Map<String, Object>> entries =
+            this.decoder.decodeChunk(compress("[{\"0\":\"a\"},{\"0\":\"b\"}]"), chunk);
+
+        assertEquals(2, entries.size());
+        assertEquals(4, entries.get(1).get(InlineTableLiveDataEntryStore.INLINE_ID));
+        assertEquals("b", entries.get(1).get("0"));
+    }
+
+    @Test
+    void decodeChunkLargerThanDeclared()
+    {
+        // Chunks are decoded within the rows and the size declared by their table.
+        String json = "[{\"0\":\"a\"},{\"0\":\"b\"}]";
+        assertThrows(InlineTableDecoder.LimitExceededException.class,
+            () -> this.decoder.decodeChunk(compress(json), chunk(0, 1, json)));
+        assertThrows(InlineTableDecoder.LimitExceededException.class,
+            () -> this.decoder.decodeChunk(compress("[{\"0\":\"a\"},{\"0\":\"bcdefghij\"}]"), chunk(0, 2, json)));
+    }
+
+    @Test
+    void decodeEmptyChunk()
+    {
+        assertInvalid(chunks(chunk(0, 3), chunk(3, 0)));
+        assertInvalid(chunks(chunk(0, 0)));
+    }
+
+    @Test
+    void decodeChunksNotFollowingEachOther()
+    {
+        assertInvalid(chunks(chunk(0, 3), chunk(4, 3)));
+        assertInvalid(chunks(chunk(1, 3)));
+    }
+
+    @Test
+    void decodeChunksOfDifferentSizes()
+    {
+        // Only the last chunk may be smaller than the others.
+        assertInvalid(chunks(chunk(0, 3), chunk(3, 2), chunk(5, 2)));
+        assertInvalid(chunks(chunk(0, 3), chunk(3, 4)));
+    }
+
+    @Test
+    void decodeSchemaWithoutReadingRows() throws Exception
+    {
+        // The rows are truncated, the schema can be read anyway since it comes first.
+        byte[] table = compress("{\"fields\":[\"Name\",\"Date\"],\"types\":[\"String\",\"date\"],"
+            + "\"dateFormat\":\"yyyy-MM-dd\",\"entries\":[{\"0\":\"Alice\"},{\"0\":");
+
+        InlineTableSchema schema = this.decoder.decodeSchema(table);
+        assertEquals(List.of("Name", "Date"), schema.getFields());
+        assertEquals(List.of("String", "date"), schema.getFieldsTypes());
+        assertEquals("yyyy-MM-dd", schema.getDateFormat());
+        assertThrows(IOException.class, () -> this.decoder.decode(HASH, table, null));
+    }
+
+    @Test
+    void decodeSchemaOfTableWithoutSchema() throws Exception
+    {
+        assertNull(this.decoder.decodeSchema(compress("[{\"0\":\"Alice\"}]")));
+    }
+
+    @Test
+    void decodeColumns() throws Exception
+    {
+        // The columns are built from the codes of the decoded values, numbers included.
+        InlineTableSegment segment = this.decoder.decode(HASH, compress("{\"fields\":[\"Name\",\"Id\"],\"entries\":["
+            + "{\"0\":\"b\",\"text.0\":\"b\",\"text.1\":1},{\"0\":\"a\",\"text.0\":\"a\",\"text.1\":2},"
+            + "{\"text.1\":3},{\"0\":\"b\",\"text.0\":\"b\",\"text.1\":\"a\"}]}"), null).getSegment(0);
+
+        InlineTableColumn names = segment.getColumn("0");
+        assertEquals(2, names.getDictionarySize());
+        assertEquals("b", names.getValue(names.getCode(0)));
+        assertEquals("a", names.getValue(names.getCode(1)));
+        assertEquals(InlineTableColumn.NO_VALUE, names.getCode(2));
+        assertEquals(names.getCode(0), names.getCode(3));
+        assertArrayEquals(new String[] {"a", "b"}, segment.getSortedValues("0"));
+        assertArrayEquals(new long[] {1, 0, InlineTableSegment.NO_CELL, 1}, segment.getSortKeys("0", false));
+
+        InlineTableColumn ids = segment.getColumn("1");
+        assertEquals(4, ids.getDictionarySize());
+        assertEquals("2", ids.getValue(ids.getCode(1)));
+        assertArrayEquals(new String[] {"1", "2", "3", "a"}, segment.getSortedValues("1"));
+    }
+
+    @Test
+    void decodeTooManyRows() throws Exception
+    {
+        assertEquals(10, this.decoder.decode(HASH, compress(entries(10, "{}")), null).size());
+        assertLimitExceeded(entries(11, "{}"));
+        assertLimitExceeded(chunks(chunk(0, 6), chunk(6, 6)));
+        assertLimitExceeded(chunks(chunk(0, 11)));
+    }
+
+    @Test
+    void decodeTooManyColumns() throws Exception
+    {
+        // Each column has up to 4 fields.
+        String entry = "{\"0\":\"a\",\"text.0\":\"a\",\"date.0\":1,\"source.0\":\"a\",\"1\":\"b\","
+            + "\"text.1\":\"b\",\"date.1\":2,\"source.1\":\"b\"";
+        assertEquals(1, this.decoder.decode(HASH, compress(entries(1, entry + "}")), null).size());
+        assertLimitExceeded(entries(1, entry + ",\"2\":\"c\"}"));
+        assertLimitExceeded("{\"fields\":[\"A\",\"B\",\"C\"],\"entries\":[]}");
+    }
+
+    @Test
+    void decodeTooLongCell() throws Exception
+    {
+        assertEquals(1, this.decoder.decode(HASH, compress(entries(1, "{\"0\":\"abcdefghij\"}")), null).size());
+        assertLimitExceeded(entries(1, "{\"0\":\"abcdefghijk\"}"));
+    }
+
+    @Test
+    void decodeTooLarge()
+    {
+        // The ignored fields count as well.
+        String json = "{\"padding\":\"" + "a".repeat(1000) + "\",\"entries\":[]}";
+        assertLimitExceeded(json);
+        assertThrows(InlineTableDecoder.LimitExceededException.class,
+            () -> this.decoder.decodeSchema(compress(json)));
+    }
+
+    private void assertLimitExceeded(String json)
+    {
+        assertThrows(InlineTableDecoder.LimitExceededException.class,
+            () -> this.decoder.decode(HASH, compress(json), SEGMENT_LOADER));
+    }
+
+    private static String entries(int count, String entry)
+    {
+        return "{\"fields\":[\"Name\"],\"entries\":[" + String.join(",", Collections.nCopies(count, entry)) + "]}";
+    }
+
+    private void assertInvalid(String json)
+    {
+        assertThrows(IOException.class, () -> this.decoder.decode(HASH, compress(json), SEGMENT_LOADER));
+    }
+
+    private static String chunks(String... chunks)
+    {
+        return "{\"fields\":[\"Name\"],\"types\":[\"String\"],\"chunks\":[" + String.join(",", chunks) + "]}";
+    }
+
+    private static String chunk(int offset, int rows)
+    {
+        return chunk(offset, rows, 10);
+    }
+
+    private static String chunk(int offset, int rows, long bytes)
+    {
+        return "{\"entries\":\"" + DigestUtils.sha256Hex("chunk" + offset) + "\",\"offset\":" + offset + ",\"rows\":"
+            + rows + ",\"bytes\":" + bytes + ",\"columns\":{}}";
+    }
+
+    private static InlineTableChunk chunk(int offset, int rows, String json)
+    {
+        return new InlineTableChunk.Builder().entries(DigestUtils.sha256Hex(json)).offset(offset).size(rows)
+            .bytes(json.length()).build();
+    }
+
+    private static byte[] compress(String json) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        return compressed.toByteArray();
+    }
+}
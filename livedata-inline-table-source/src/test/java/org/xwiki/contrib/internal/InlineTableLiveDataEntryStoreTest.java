@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link InlineTableLiveDataEntryStore}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+class InlineTableLiveDataEntryStoreTest
+{
+    @InjectMockComponents
+    private InlineTableLiveDataEntryStore entryStore;
+
+    @MockComponent
+    private InlineTableStore tableStore;
+
+    @MockComponent
+    private InlineTableQueryExecutor queryExecutor;
+
+    @MockComponent
+    private InlineTableEntryRenderer entryRenderer;
+
+    @MockComponent
+    private InlineTableQueryRunner queryRunner;
+
+    @BeforeEach
+    void setUp() throws Exception
+    {
+        when(this.queryExecutor.execute(any()))
+            .thenAnswer(invocation -> ((Callable<?>) invocation.getArgument(0)).call());
+        when(this.entryRenderer.getEntry(any(), anyInt())).thenAnswer(invocation -> {
+            InlineTable table = invocation.getArgument(0);
+            Map<String, Object> entry = new HashMap<>();
+            entry.put(InlineTableLiveDataEntryStore.INLINE_ID, invocation.getArgument(1));
+            entry.put("0", table.getHash());
+            return entry;
+        });
+    }
+
+    @Test
+    void getEntryReadsTheParametersOfItsSource() throws Exception
+    {
+        mockTable("first");
+        this.entryStore.getParameters().put(InlineTableLiveDataEntryStore.ENTRIES, "first");
+
+        Optional<Map<String, Object>> entry = this.entryStore.get("0");
+
+        assertEquals("first", entry.get().get("0"));
+    }
+
+    @Test
+    void getQueryPrefersTheParametersOfTheQuery() throws Exception
+    {
+        mockTable("first");
+        mockTable("second");
+        this.entryStore.getParameters().put(InlineTableLiveDataEntryStore.ENTRIES, "first");
+
+        LiveDataQuery query = new LiveDataQuery();
+        query.initialize();
+        query.getSource().getParameters().put(InlineTableLiveDataEntryStore.ENTRIES, "second");
+        when(this.queryRunner.run(eq("second"), eq(query), any()))
+            .thenAnswer(invocation -> new InlineTableQueryResult(this.tableStore.get("second"), new int[] {0}));
+
+        assertEquals("second", this.entryStore.get(query).getEntries().get(0).get("0"));
+    }
+
+    @Test
+    void getEntryWithoutEntriesParameter()
+    {
+        assertThrows(LiveDataException.class, () -> this.entryStore.get("0"));
+    }
+
+    private void mockTable(String hash) throws LiveDataException
+    {
+        InlineTable table = mock(InlineTable.class);
+        when(table.getHash()).thenReturn(hash);
+        when(table.size()).thenReturn(1);
+        when(this.tableStore.get(hash)).thenReturn(table);
+    }
+}
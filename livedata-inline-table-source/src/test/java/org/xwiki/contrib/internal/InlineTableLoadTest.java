@@ -0,0 +1,346 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
+import org.xwiki.livedata.LiveDataEntryStore;
+import org.xwiki.livedata.LiveDataException;
+import org.xwiki.livedata.LiveDataQuery;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load test of the LiveData entry store of the inline tables. Simulated users query synthetic tables of different
+ * sizes concurrently, the way people use LiveData: each user opens a table, types a filter one letter at a time, flips
+ * a few pages and sorts by date. The number of users doubles at each step, up to the given maximum.
+ * <p>
+ * The test only runs with {@code -DinlineTable.loadTest=true}. The table sizes, the maximum number of users and the
+ * duration of each step can be set with {@code -DinlineTable.loadTest.tableSizes=1000,100000},
+ * {@code -DinlineTable.loadTest.maxUsers=64} and {@code -DinlineTable.loadTest.stepDuration=10000} (in milliseconds).
+ * <p>
+ * Queries are evaluated on the thread of their user, without the time budget of the executor and without parallel
+ * filtering, so that the bytes allocated by a query are the ones allocated by its thread.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({DefaultInlineTableConfiguration.class, DefaultInlineTableCache.class,
+    DefaultInlineTableReferences.class, DefaultInlineTableStatistics.class, DefaultInlineTableQueryCache.class,
+    DefaultInlineTableStore.class, DefaultInlineTableEncoder.class, DefaultInlineTableQueryEvaluator.class,
+    DefaultInlineTableQueryRunner.class, DefaultInlineTableEntryRenderer.class, InlineTableLiveDataEntryStore.class})
+@EnabledIfSystemProperty(named = "inlineTable.loadTest", matches = "true")
+class InlineTableLoadTest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(InlineTableLoadTest.class);
+
+    private static final String PROPERTY_PREFIX = "inlineTable.loadTest.";
+
+    private static final String TEXT_PROPERTY = "0";
+
+    private static final String DATE_PROPERTY = "1";
+
+    private static final String AMOUNT_PROPERTY = "2";
+
+    private static final String TEXT_ID = "text.";
+
+    private static final List<String> PROPERTIES = List.of(TEXT_PROPERTY, DATE_PROPERTY, AMOUNT_PROPERTY);
+
+    private static final InlineTableSchema SCHEMA = new InlineTableSchema(List.of("Name", "Date", "Amount"),
+        List.of("String", "date", "String"), "yyyy/MM/dd HH:mm", null, null);
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "nu", "re", "sa", "ti", "vo", "xe", "zu"};
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final int PAGE_FLIPS = 3;
+
+    // The synthetic dates cover ten years, starting in 2017.
+    private static final long FIRST_DATE = 1500000000L;
+
+    private static final long DATE_RANGE = 10L * 365 * 24 * 3600;
+
+    private static final int MAX_AMOUNT = 100000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @MockComponent
+    @Named("html/5.0")
+    private BlockRenderer htmlRenderer;
+
+    /**
+     * The latencies, allocations and errors of a simulated user.
+     */
+    private static final class Measures
+    {
+        private long[] latencies = new long[1024];
+
+        private int count;
+
+        private long allocated;
+
+        private long errors;
+
+        void add(long latency, long allocatedBytes)
+        {
+            if (this.count == this.latencies.length) {
+                this.latencies = Arrays.copyOf(this.latencies, this.count * 2);
+            }
+            this.latencies[this.count++] = latency;
+            // Allocations are unknown when the JVM does not measure them.
+            this.allocated = this.allocated < 0 || allocatedBytes < 0 ? -1 : this.allocated + allocatedBytes;
+        }
+    }
+
+    @BeforeComponent
+    void configure(MockitoComponentManager componentManager) throws Exception
+    {
+        componentManager.registerComponent(CacheManager.class, new InlineTableTestCacheManager());
+
+        MemoryConfigurationSource configuration = new MemoryConfigurationSource();
+        configuration.setProperty("livedata.inlineTable.query.parallelThreshold", Integer.MAX_VALUE);
+        componentManager.registerComponent(ConfigurationSource.class, "xwikiproperties", configuration);
+
+        // Evaluate the queries on the thread of their user.
+        componentManager.registerComponent(InlineTableQueryExecutor.class, new InlineTableQueryExecutor()
+        {
+            @Override
+            public <T> T execute(Callable<T> evaluation) throws LiveDataException
+            {
+                try {
+                    return evaluation.call();
+                } catch (LiveDataException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new LiveDataException("Failed to evaluate the query.", e);
+                }
+            }
+        });
+    }
+
+    @Test
+    void run(MockitoComponentManager componentManager) throws Exception
+    {
+        InlineTableEncoder encoder = componentManager.getInstance(InlineTableEncoder.class);
+        List<String> tables = new ArrayList<>();
+        for (String size : System.getProperty(PROPERTY_PREFIX + "tableSizes", "1000,100000").split(",")) {
+            tables.add(createTable(encoder, Integer.parseInt(size.trim())));
+        }
+        int maxUsers = Integer.getInteger(PROPERTY_PREFIX + "maxUsers", 64);
+        long stepDuration = Long.getLong(PROPERTY_PREFIX + "stepDuration", 10000L);
+
+        LOGGER.info("users | queries | errors | queries/s | p50 ms | p95 ms | p99 ms | bytes/query");
+        long errors = 0;
+        for (int users = 1;; users = Math.min(maxUsers, users * 2)) {
+            errors += runStep(componentManager, tables, users, stepDuration);
+            if (users == maxUsers) {
+                break;
+            }
+        }
+
+        assertEquals(0, errors);
+    }
+
+    /**
+     * Creates a synthetic table with a text column, a date column and a number column, and stores it.
+     * 
+     * @param encoder the encoder storing the table
+     * @param size the number of rows
+     * @return the entries parameter of the table
+     */
+    private String createTable(InlineTableEncoder encoder, int size) throws LiveDataException
+    {
+        Random random = new Random(size);
+        Iterator<Map<String, Object>> rows = IntStream.range(0, size).mapToObj(i -> {
+            Map<String, Object> row = new HashMap<>();
+            String name = createWord(random) + ' ' + createWord(random);
+            long date = FIRST_DATE + (long) (random.nextDouble() * DATE_RANGE);
+            String amount = String.valueOf(random.nextInt(MAX_AMOUNT));
+            row.put(TEXT_PROPERTY, name);
+            row.put(TEXT_ID + TEXT_PROPERTY, name);
+            row.put(DATE_PROPERTY, Instant.ofEpochSecond(date).toString());
+            row.put(TEXT_ID + DATE_PROPERTY, Instant.ofEpochSecond(date).toString());
+            row.put("date." + DATE_PROPERTY, date);
+            row.put(AMOUNT_PROPERTY, amount);
+            row.put(TEXT_ID + AMOUNT_PROPERTY, amount);
+            return row;
+        }).iterator();
+
+        return encoder.encode(SCHEMA, rows, null);
+    }
+
+    private static String createWord(Random random)
+    {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    /**
+     * Runs a number of concurrent users for a given time and logs the measures of the step.
+     * 
+     * @param componentManager the component manager providing the entry stores
+     * @param tables the entries parameters of the tables
+     * @param users the number of users
+     * @param duration how long to run, in milliseconds
+     * @return the number of failed queries
+     */
+    private long runStep(MockitoComponentManager componentManager, List<String> tables, int users, long duration)
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        try {
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(duration);
+            List<Callable<Measures>> simulatedUsers = new ArrayList<>();
+            for (int user = 0; user < users; user++) {
+                Random random = new Random((long) users * 1000 + user);
+                // Each LiveData request looks up its own source, and thus its own entry store.
+                LiveDataEntryStore entryStore =
+                    componentManager.getInstance(LiveDataEntryStore.class, InlineTableLiveDataSource.ID);
+                simulatedUsers.add(() -> simulateUser(entryStore, tables, random, deadline));
+            }
+            List<Future<Measures>> futures = executor.invokeAll(simulatedUsers);
+            long elapsed = System.nanoTime() - start;
+
+            long[] latencies = new long[0];
+            long allocated = 0;
+            long errors = 0;
+            for (Future<Measures> future : futures) {
+                Measures measures = future.get();
+                int count = latencies.length;
+                latencies = Arrays.copyOf(latencies, count + measures.count);
+                System.arraycopy(measures.latencies, 0, latencies, count, measures.count);
+                allocated = allocated < 0 || measures.allocated < 0 ? -1 : allocated + measures.allocated;
+                errors += measures.errors;
+            }
+            Arrays.sort(latencies);
+            int queries = latencies.length;
+            LOGGER.info(String.format("%5d | %7d | %6d | %9.1f | %6.2f | %6.2f | %6.2f | %s", users, queries, errors,
+                queries * 1e9 / elapsed, percentile(latencies, 50), percentile(latencies, 95),
+                percentile(latencies, 99), allocated < 0 || queries == 0 ? "n/a" : allocated / queries));
+            return errors;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static double percentile(long[] latencies, int percent)
+    {
+        if (latencies.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(latencies.length * percent / 100.0) - 1;
+        return latencies[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Repeats sessions on random tables until the deadline.
+     * 
+     * @param entryStore the entry store of the user
+     * @param tables the entries parameters of the tables
+     * @param random the random generator of the user
+     * @param deadline the end of the step, as given by {@link System#nanoTime()}
+     * @return the measures of the user
+     */
+    private Measures simulateUser(LiveDataEntryStore entryStore, List<String> tables, Random random, long deadline)
+    {
+        Measures measures = new Measures();
+        while (System.nanoTime() < deadline) {
+            String table = tables.get(random.nextInt(tables.size()));
+            String word = createWord(random);
+
+            query(entryStore, measures, table, null, null, 0);
+            for (int length = 1; length <= word.length(); length++) {
+                query(entryStore, measures, table, word.substring(0, length), null, 0);
+            }
+            for (int page = 1; page <= PAGE_FLIPS; page++) {
+                query(entryStore, measures, table, word, null, page * PAGE_SIZE);
+            }
+            query(entryStore, measures, table, word, new SortEntry(DATE_PROPERTY, true), 0);
+        }
+        return measures;
+    }
+
+    private void query(LiveDataEntryStore entryStore, Measures measures, String table, String filter,
+        SortEntry sort, long offset)
+    {
+        LiveDataQuery query = new LiveDataQuery();
+        query.setSource(new LiveDataQuery.Source(InlineTableLiveDataSource.ID));
+        query.getSource().getParameters().put(InlineTableLiveDataEntryStore.ENTRIES, table);
+        query.setProperties(PROPERTIES);
+        List<Filter> filters = new ArrayList<>();
+        if (filter != null) {
+            filters.add(new Filter(TEXT_PROPERTY, "contains", filter));
+        }
+        query.setFilters(filters);
+        query.setSort(sort == null ? new ArrayList<>() : new ArrayList<>(List.of(sort)));
+        query.setOffset(offset);
+        query.setLimit(PAGE_SIZE);
+
+        // The queries are evaluated on this thread, see the class documentation.
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        try {
+            entryStore.get(query);
+            long latency = System.nanoTime() - start;
+            long allocatedAfter = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+            measures.add(latency, allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore);
+        } catch (LiveDataException e) {
+            LOGGER.debug("Load test query failed: {}", e.getMessage());
+            measures.errors++;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.livedata.LiveDataQuery.Constraint;
+import org.xwiki.livedata.LiveDataQuery.Filter;
+import org.xwiki.livedata.LiveDataQuery.SortEntry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Unit tests for {@link InlineTableQueryKey}.
+ * 
+ * @version $Id$
+ */
+class InlineTableQueryKeyTest
+{
+    private static final String NAME = "0";
+
+    private static final String DATE = "1";
+
+    private static final String CONTAINS = "contains";
+
+    private static final String EQUALS = "equals";
+
+    private static final InlineTableSchema SCHEMA =
+        new InlineTableSchema(List.of("Name", "Date"), List.of("String", "date"), null, null, null);
+
+    private static final List<SortEntry> SORT = List.of(new SortEntry(NAME));
+
+    @Test
+    void orderOfFiltersAndConstraints()
+    {
+        assertSameKey(
+            List.of(filter(NAME, false, CONTAINS, "a", EQUALS, "b"), filter(DATE, true, "after",
+                "2020-01-01T00:00:00Z")),
+            List.of(filter(DATE, true, "after", "2020-01-01T00:00:00Z"), filter(NAME, false, EQUALS, "b", CONTAINS,
+                "a")));
+        // Filters on the same property are all kept, whatever their order.
+        assertSameKey(List.of(filter(NAME, true, CONTAINS, "a"), filter(NAME, true, CONTAINS, "b")),
+            List.of(filter(NAME, true, CONTAINS, "b"), filter(NAME, true, CONTAINS, "a")));
+        assertDifferentKey(List.of(filter(NAME, true, CONTAINS, "a"), filter(NAME, true, CONTAINS, "b")),
+            List.of(filter(NAME, true, CONTAINS, "b")));
+    }
+
+    @Test
+    void matchAll()
+    {
+        // A single constraint is evaluated the same way whatever the filter says.
+        assertSameKey(List.of(filter(NAME, false, CONTAINS, "a")), List.of(filter(NAME, true, CONTAINS, "a")));
+        assertDifferentKey(List.of(filter(NAME, false, CONTAINS, "a", CONTAINS, "b")),
+            List.of(filter(NAME, true, CONTAINS, "a", CONTAINS, "b")));
+    }
+
+    @Test
+    void ignoredConstraints()
+    {
+        assertSameKey(List.of(filter(NAME, false, CONTAINS, "a", "unknown", "b")),
+            List.of(filter(NAME, true, CONTAINS, "a")));
+        assertSameKey(List.of(filter(DATE, true, "between", "invalid")), List.of());
+        assertSameKey(List.of(filter(NAME, true, CONTAINS, null)), List.of());
+    }
+
+    @Test
+    void equivalentDates()
+    {
+        assertSameKey(List.of(filter(DATE, true, "before", "2020-01-01T00:00:00Z")),
+            List.of(filter(DATE, true, "between", "/2020-01-01T00:00:00.000Z")));
+        assertSameKey(List.of(filter(DATE, true, EQUALS, "2020-01-01")),
+            List.of(filter(DATE, true, "between", "2020-01-01T00:00:00Z/2020-01-01T23:59:59Z")));
+    }
+
+    private static void assertSameKey(List<Filter> filters0, List<Filter> filters1)
+    {
+        assertEquals(key(filters0), key(filters1));
+    }
+
+    private static void assertDifferentKey(List<Filter> filters0, List<Filter> filters1)
+    {
+        assertNotEquals(key(filters0), key(filters1));
+    }
+
+    private static String key(List<Filter> filters)
+    {
+        return InlineTableQueryKey.of(InlineTableCondition.of(SCHEMA, filters), SORT);
+    }
+
+    private static Filter filter(String property, boolean matchAll, String... constraints)
+    {
+        Filter filter = new Filter();
+        filter.setProperty(property);
+        filter.setMatchAll(matchAll);
+        for (int i = 0; i < constraints.length; i += 2) {
+            filter.getConstraints().add(new Constraint(constraints[i + 1], constraints[i]));
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark of the two ways date filters select their rows: the {@link InlineTableRangeScan} of the date column, and
+ * the {@link InlineTableDateIndex}, whose build is paid by the first query on the column. Each range is selected
+ * repeatedly and the median duration is logged, for ranges matching from a thousandth to half of the rows.
+ * <p>
+ * The benchmark only runs with {@code -DinlineTable.benchmark=true}. The number of rows and of measured iterations can
+ * be set with {@code -DinlineTable.benchmark.rows=5000000} and {@code -DinlineTable.benchmark.iterations=20}.
+ * 
+ * @version $Id$
+ */
+@EnabledIfSystemProperty(named = "inlineTable.benchmark", matches = "true")
+class InlineTableRangeScanBenchmarkTest
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(InlineTableRangeScanBenchmarkTest.class);
+
+    private static final String PROPERTY_PREFIX = "inlineTable.benchmark.";
+
+    // The synthetic dates cover ten years, starting in 2017, like the ones of the load test.
+    private static final long FIRST_DATE = 1500000000L;
+
+    private static final long DATE_RANGE = 10L * 365 * 24 * 3600;
+
+    private static final double[] SELECTIVITIES = {0.001, 0.01, 0.1, 0.5};
+
+    private static final int WARM_UP_ITERATIONS = 5;
+
+    @Test
+    void run()
+    {
+        int size = Integer.getInteger(PROPERTY_PREFIX + "rows", 5000000);
+        int iterations = Integer.getInteger(PROPERTY_PREFIX + "iterations", 20);
+        Random random = new Random(size);
+        long[] dates = new long[size];
+        for (int row = 0; row < size; row++) {
+            // A tenth of the rows have no date.
+            dates[row] = random.nextInt(10) > 0 ? FIRST_DATE + (long) (random.nextDouble() * DATE_RANGE)
+                : InlineTable.NO_DATE;
+        }
+        Thread owner = Thread.currentThread();
+
+        long[] builds = new long[WARM_UP_ITERATIONS];
+        InlineTableDateIndex index = null;
+        for (int i = 0; i < builds.length; i++) {
+            long start = System.nanoTime();
+            index = new InlineTableDateIndex(dates);
+            builds[i] = System.nanoTime() - start;
+        }
+        LOGGER.info(String.format("%d rows, date index built in %.2f ms", size, median(builds)));
+
+        // The selected rows include the rows without date.
+        LOGGER.info("selected rows | scan ms | index ms");
+        for (double selectivity : SELECTIVITIES) {
+            long begin = FIRST_DATE + DATE_RANGE / 4;
+            long end = begin + (long) (DATE_RANGE * selectivity);
+            long[] scans = new long[iterations];
+            long[] selects = new long[iterations];
+            BitSet scanned = null;
+            BitSet selected = null;
+            for (int i = -WARM_UP_ITERATIONS; i < iterations; i++) {
+                long start = System.nanoTime();
+                scanned = InlineTableRangeScan.select(dates, InlineTable.NO_DATE, begin, end, owner);
+                long middle = System.nanoTime();
+                selected = index.select(begin, end);
+                long stop = System.nanoTime();
+                if (i >= 0) {
+                    scans[i] = middle - start;
+                    selects[i] = stop - middle;
+                }
+            }
+            assertEquals(selected, scanned);
+            LOGGER.info(String.format("%13d | %7.2f | %8.2f", scanned.cardinality(), median(scans), median(selects)));
+        }
+    }
+
+    private static double median(long[] durations)
+    {
+        long[] sorted = durations.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1e6;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link InlineTableRangeScan}, which must select the same rows as {@link InlineTableDateIndex}.
+ * 
+ * @version $Id$
+ */
+class InlineTableRangeScanTest
+{
+    private static final long DAY = 86400;
+
+    // 2024-01-01T00:00:00Z.
+    private static final long START = 1704067200;
+
+    @Test
+    void selectRanges()
+    {
+        long[] dates = {START, InlineTable.NO_DATE, START + DAY, START - DAY, InlineTable.NO_DATE, START};
+
+        assertRows(dates, START, START, 0, 1, 4, 5);
+        assertRows(dates, START, START + DAY, 0, 1, 2, 4, 5);
+        assertRows(dates, START - 2 * DAY, START - DAY / 2, 1, 3, 4);
+        // Only the undated rows are selected by an empty range.
+        assertRows(dates, START + 1, START, 1, 4);
+        assertRows(dates, InlineTable.NO_DATE + 1, Long.MAX_VALUE, 0, 1, 2, 3, 4, 5);
+    }
+
+    @Test
+    void selectSameRowsAsDateIndex()
+    {
+        Random random = new Random(42);
+        // Sizes around the 64 rows of a word, and spans of dates below and above what the index packs in a long.
+        for (int size : new int[] {0, 1, 63, 64, 65, 1000}) {
+            for (long span : new long[] {DAY, 1L << 40}) {
+                long[] dates = new long[size];
+                for (int row = 0; row < size; row++) {
+                    // A quarter of the rows have no date.
+                    boolean dated = random.nextInt(4) > 0;
+                    dates[row] = dated ? START + (long) (random.nextDouble() * span) : InlineTable.NO_DATE;
+                }
+                InlineTableDateIndex index = new InlineTableDateIndex(dates);
+                for (int i = 0; i < 50; i++) {
+                    long begin = START + (long) (random.nextDouble() * span) - span / 10;
+                    long end = begin + (long) (random.nextDouble() * span / 2) - span / 20;
+                    assertEquals(index.select(begin, end),
+                        InlineTableRangeScan.select(dates, InlineTable.NO_DATE, begin, end, Thread.currentThread()));
+                }
+                assertEquals(index.select(Long.MIN_VALUE + 1, Long.MAX_VALUE),
+                    InlineTableRangeScan.select(dates, InlineTable.NO_DATE, Long.MIN_VALUE + 1, Long.MAX_VALUE,
+                        Thread.currentThread()));
+            }
+        }
+    }
+
+    @Test
+    void selectStopsWhenTheQueryIsInterrupted() throws Exception
+    {
+        // The scan may run on another thread than the one of the query, which is the one checked.
+        AtomicBoolean stopped = new AtomicBoolean();
+        Thread query = new Thread(() -> {
+            while (!stopped.get()) {
+                Thread.onSpinWait();
+            }
+        });
+        query.start();
+        try {
+            query.interrupt();
+            long[] dates = new long[100];
+            assertThrows(CancellationException.class,
+                () -> InlineTableRangeScan.select(dates, InlineTable.NO_DATE, START, START, query));
+        } finally {
+            stopped.set(true);
+            query.join();
+        }
+    }
+
+    private static void assertRows(long[] dates, long begin, long end, int... expected)
+    {
+        BitSet expectedRows = new BitSet();
+        for (int row : expected) {
+            expectedRows.set(row);
+        }
+        assertEquals(expectedRows,
+            InlineTableRangeScan.select(dates, InlineTable.NO_DATE, begin, end, Thread.currentThread()));
+        assertEquals(expectedRows, new InlineTableDateIndex(dates).select(begin, end));
+    }
+}
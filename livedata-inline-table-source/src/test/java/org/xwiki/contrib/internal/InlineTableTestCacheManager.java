@@ -0,0 +1,265 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.contrib.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.CacheFactory;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+
+/**
+ * In-memory {@link CacheManager} for the tests. The caches honor the maximum number of entries and the maximum idle
+ * time of their LRU configuration, measured on a clock advanced by the tests, and notify their listeners like the
+ * caches of a node do. Idle entries are removed when the clock moves, like the expiration thread of a node would.
+ * 
+ * @version $Id$
+ */
+public class InlineTableTestCacheManager implements CacheManager
+{
+    private volatile long now;
+
+    private final List<TestCache<?>> caches = new ArrayList<>();
+
+    /**
+     * Map-backed cache.
+     * 
+     * @param <T> the type of the cached values
+     */
+    private final class TestCache<T> implements Cache<T>
+    {
+        private final int maxEntries;
+
+        private final long maxIdle;
+
+        // Entries in access order, with their last access time.
+        private final LinkedHashMap<String, Object[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final List<CacheEntryListener<T>> listeners = new ArrayList<>();
+
+        TestCache(CacheConfiguration configuration)
+        {
+            LRUEvictionConfiguration lru =
+                (LRUEvictionConfiguration) configuration.get(LRUEvictionConfiguration.CONFIGURATIONID);
+            this.maxEntries = lru == null || lru.getMaxEntries() <= 0 ? Integer.MAX_VALUE : lru.getMaxEntries();
+            this.maxIdle = lru == null || lru.getMaxIdle() <= 0 ? Long.MAX_VALUE : lru.getMaxIdle();
+        }
+
+        @Override
+        public void set(String key, T value)
+        {
+            List<Runnable> notifications = new ArrayList<>();
+            synchronized (this) {
+                boolean modified = this.entries.put(key, new Object[] {value, now}) != null;
+                notifications.add(() -> notify(key, value, modified ? 1 : 0));
+                Iterator<Map.Entry<String, Object[]>> it = this.entries.entrySet().iterator();
+                while (this.entries.size() > this.maxEntries) {
+                    Map.Entry<String, Object[]> eldest = it.next();
+                    it.remove();
+                    notifications.add(removal(eldest));
+                }
+            }
+            notifications.forEach(Runnable::run);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized T get(String key)
+        {
+            Object[] entry = this.entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            entry[1] = now;
+            return (T) entry[0];
+        }
+
+        @Override
+        public void remove(String key)
+        {
+            Object[] entry;
+            synchronized (this) {
+                entry = this.entries.remove(key);
+            }
+            if (entry != null) {
+                removal(Map.entry(key, entry)).run();
+            }
+        }
+
+        @Override
+        public void removeAll()
+        {
+            List<Runnable> notifications = new ArrayList<>();
+            synchronized (this) {
+                this.entries.entrySet().forEach(entry -> notifications.add(removal(entry)));
+                this.entries.clear();
+            }
+            notifications.forEach(Runnable::run);
+        }
+
+        @Override
+        public synchronized void addCacheEntryListener(CacheEntryListener<T> listener)
+        {
+            this.listeners.add(listener);
+        }
+
+        @Override
+        public synchronized void removeCacheEntryListener(CacheEntryListener<T> listener)
+        {
+            this.listeners.remove(listener);
+        }
+
+        @Override
+        public void dispose()
+        {
+            // Nothing to release.
+        }
+
+        void expire()
+        {
+            List<Runnable> notifications = new ArrayList<>();
+            synchronized (this) {
+                expire(notifications);
+            }
+            notifications.forEach(Runnable::run);
+        }
+
+        private void expire(List<Runnable> notifications)
+        {
+            for (Iterator<Map.Entry<String, Object[]>> it = this.entries.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<String, Object[]> entry = it.next();
+                if (now - (long) entry.getValue()[1] > this.maxIdle) {
+                    it.remove();
+                    notifications.add(removal(entry));
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Runnable removal(Map.Entry<String, Object[]> entry)
+        {
+            String key = entry.getKey();
+            T value = (T) entry.getValue()[0];
+            return () -> notify(key, value, -1);
+        }
+
+        private void notify(String key, T value, int change)
+        {
+            CacheEntryEvent<T> event = new CacheEntryEvent<T>()
+            {
+                @Override
+                public Cache<T> getCache()
+                {
+                    return TestCache.this;
+                }
+
+                @Override
+                public CacheEntry<T> getEntry()
+                {
+                    return new CacheEntry<T>()
+                    {
+                        @Override
+                        public Cache<T> getCache()
+                        {
+                            return TestCache.this;
+                        }
+
+                        @Override
+                        public String getKey()
+                        {
+                            return key;
+                        }
+
+                        @Override
+                        public T getValue()
+                        {
+                            return value;
+                        }
+                    };
+                }
+            };
+            List<CacheEntryListener<T>> currentListeners;
+            synchronized (this) {
+                currentListeners = new ArrayList<>(this.listeners);
+            }
+            for (CacheEntryListener<T> listener : currentListeners) {
+                if (change < 0) {
+                    listener.cacheEntryRemoved(event);
+                } else if (change > 0) {
+                    listener.cacheEntryModified(event);
+                } else {
+                    listener.cacheEntryAdded(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the clock of the caches forward, and removes the entries idle for longer than their cache allows.
+     * 
+     * @param seconds the number of seconds to add to the clock
+     */
+    public void advance(long seconds)
+    {
+        this.now += seconds;
+        List<TestCache<?>> currentCaches;
+        synchronized (this.caches) {
+            currentCaches = new ArrayList<>(this.caches);
+        }
+        currentCaches.forEach(TestCache::expire);
+    }
+
+    @Override
+    public CacheFactory getCacheFactory()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CacheFactory getLocalCacheFactory()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> Cache<T> createNewCache(CacheConfiguration configuration)
+    {
+        return createNewLocalCache(configuration);
+    }
+
+    @Override
+    public <T> Cache<T> createNewLocalCache(CacheConfiguration configuration)
+    {
+        TestCache<T> cache = new TestCache<>(configuration);
+        synchronized (this.caches) {
+            this.caches.add(cache);
+        }
+        return cache;
+    }
+}